@@ -0,0 +1,102 @@
+package dev.samir.draft;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.samir.TipsApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Baseline benchmark of the DraftService hot paths against the embedded Redis server.
+ * It saves one draft of a session and reads all drafts of the session, for sessions
+ * of different sizes. Saved drafts go to the write-behind buffer, so at the end of each trial
+ * it prints how many drafts were saved and how many were written to Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DraftServiceBenchmark {
+
+	/**
+	 * UUID of the benchmark session.
+	 */
+	private static final String SESSION = "benchmark-session";
+
+	/**
+	 * Number of drafts in the session.
+	 */
+	@Param({"10", "100", "1000"})
+	private int drafts;
+
+	private ConfigurableApplicationContext context;
+
+	private DraftService draftService;
+
+	/**
+	 * Start the application against the embedded Redis server and seed the session.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(TipsApplication.class)
+			.web(WebApplicationType.NONE)
+			.properties("spring.data.redis.port=" + EmbeddedRedis.port())
+			.run();
+		context.getBean(DraftRepository.class).deleteAll();
+		draftService = context.getBean(DraftService.class);
+		draftService.upsertAll(LongStream.rangeClosed(1, drafts)
+			.mapToObj(id -> new Draft(id, "Draft number " + id, SESSION))
+			.toList());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		draftService.flush();
+		MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+		double buffered = meterRegistry.counter("tips.drafts.writes", "stage", "buffered").count();
+		double flushed = meterRegistry.counter("tips.drafts.writes", "stage", "flushed").count();
+		System.out.printf("%nDrafts saved: %.0f, written to Redis: %.0f, coalescing ratio: %.1f%n", buffered, flushed, buffered / flushed);
+		context.close();
+	}
+
+	/**
+	 * Save a random draft of the session.
+	 * @return the saved draft
+	 */
+	@Benchmark
+	public Draft upsert() {
+		long id = ThreadLocalRandom.current().nextLong(1, drafts + 1);
+		return draftService.upsert(new Draft(id, "Draft number " + id, SESSION));
+	}
+
+	/**
+	 * Read all drafts of the session.
+	 * @return the drafts
+	 */
+	@Benchmark
+	public List<Draft> getAll() {
+		return draftService.getAll(SESSION);
+	}
+
+}
@@ -0,0 +1,90 @@
+package dev.samir.draft;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.samir.TipsApplication;
+
+/**
+ * Benchmark comparing the per-item and the pipelined upsert of a batch of drafts,
+ * like an editor autosave sending all of its drafts at once.
+ * It runs against the embedded Redis server on localhost, so the gap only grows
+ * with the round trip time of a real network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DraftUpsertBenchmark {
+
+	/**
+	 * Number of drafts in each autosave.
+	 */
+	@Param({"1", "10", "50"})
+	private int drafts;
+
+	private ConfigurableApplicationContext context;
+
+	private DraftService draftService;
+
+	private List<Draft> autosave;
+
+	/**
+	 * Start the application against the embedded Redis server.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(TipsApplication.class)
+			.web(WebApplicationType.NONE)
+			.properties("spring.data.redis.port=" + EmbeddedRedis.port())
+			.run();
+		draftService = context.getBean(DraftService.class);
+		autosave = LongStream.rangeClosed(1, drafts)
+			.mapToObj(id -> new Draft(id, "Draft number " + id, "benchmark-session"))
+			.toList();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Save each draft with its own repository call, as POST /api/draft used to.
+	 * @return the saved drafts
+	 */
+	@Benchmark
+	public List<Draft> perItem() {
+		return autosave.stream().map(draftService::upsert).toList();
+	}
+
+	/**
+	 * Save all drafts in one pipelined batch.
+	 * @return the result of each draft
+	 */
+	@Benchmark
+	public List<DraftResult> pipelined() {
+		return draftService.upsertAll(autosave);
+	}
+
+}
@@ -0,0 +1,77 @@
+package dev.samir.redis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import dev.samir.draft.Draft;
+
+/**
+ * Benchmark for the serialization of drafts stored through the RedisTemplate.
+ * It compares the JSON with "@class" type information written by GenericJackson2JsonRedisSerializer
+ * with the CompactRedisSerializer format. The number of bytes per draft is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+	/**
+	 * Serializer under test.
+	 */
+	@Param({"json", "compact"})
+	private String serializer;
+
+	private RedisSerializer<Object> redisSerializer;
+
+	private Draft draft;
+
+	private byte[] serialized;
+
+	/**
+	 * Create the serializer and serialize a draft once.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+		redisSerializer = "json".equals(serializer) ? json : new CompactRedisSerializer(json).register(1, Draft.class);
+		draft = new Draft(123_456L, "Prefer records for immutable data carriers", "123e4567-e89b-12d3-a456-426614174000");
+		serialized = redisSerializer.serialize(draft);
+		System.out.println(serializer + ": " + serialized.length + " bytes per draft");
+	}
+
+	/**
+	 * Serialize a draft.
+	 * @return the serialized draft
+	 */
+	@Benchmark
+	public byte[] serialize() {
+		return redisSerializer.serialize(draft);
+	}
+
+	/**
+	 * Deserialize a draft.
+	 * @return the deserialized draft
+	 */
+	@Benchmark
+	public Object deserialize() {
+		return redisSerializer.deserialize(serialized);
+	}
+
+}
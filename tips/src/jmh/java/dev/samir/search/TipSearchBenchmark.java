@@ -0,0 +1,179 @@
+package dev.samir.search;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionOperations;
+
+import dev.samir.tips.TipRepository;
+import dev.samir.tips.TipResponse;
+
+/**
+ * Benchmark of the TipSearchIndex queries at millions of tips.
+ * The messages are drawn from a vocabulary of {@value #VOCABULARY} words with a Zipf-like distribution,
+ * {@value #WORDS_PER_TIP} words each, so a few terms are in most tips and most terms in a few.
+ * The "scan" benchmarks check the messages one by one like a "like '%term%'" query would,
+ * as the baseline the index replaces. It also prints how long the index takes to build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TipSearchBenchmark {
+
+	/**
+	 * Number of distinct words of the messages.
+	 */
+	private static final int VOCABULARY = 5000;
+
+	/**
+	 * Number of words of each message.
+	 */
+	private static final int WORDS_PER_TIP = 8;
+
+	/**
+	 * Number of results of a page.
+	 */
+	private static final int LIMIT = 20;
+
+	/**
+	 * Number of indexed tips.
+	 */
+	@Param({"1000000", "5000000"})
+	private int tips;
+
+	private String[] messages;
+
+	private TipSearchIndex index;
+
+	/**
+	 * Generate the messages and build the index from them.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		double[] cumulative = new double[VOCABULARY];
+		double total = 0;
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			total += 1.0 / (rank + 1);
+			cumulative[rank] = total;
+		}
+		messages = new String[tips];
+		StringBuilder message = new StringBuilder();
+		for (int i = 0; i < tips; i++) {
+			message.setLength(0);
+			for (int word = 0; word < WORDS_PER_TIP; word++) {
+				int rank = Arrays.binarySearch(cumulative, random.nextDouble(total));
+				message.append(word(rank < 0 ? -rank - 1 : rank)).append(' ');
+			}
+			messages[i] = message.toString();
+		}
+		TipRepository tipRepository = mock(TipRepository.class);
+		when(tipRepository.streamAllResponses()).thenAnswer(invocation -> IntStream.range(0, tips)
+			.mapToObj(i -> new TipResponse(i + 1L, messages[i])));
+		index = new TipSearchIndex(tipRepository, TransactionOperations.withoutTransaction());
+		long start = System.nanoTime();
+		index.rebuild();
+		System.out.printf("%nIndexed %d tips, %d terms in %d ms%n", tips, index.terms(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	/**
+	 * Word of the given rank in the vocabulary.
+	 * @param rank the rank, 0 for the most frequent word
+	 * @return the word
+	 */
+	private static String word(int rank) {
+		return "w" + rank;
+	}
+
+	/**
+	 * First page of the most frequent term, in more than half of the tips.
+	 * @return the IDs found
+	 */
+	@Benchmark
+	public long[] frequentTerm() {
+		return index.search(List.of(word(0)), 0L, LIMIT);
+	}
+
+	/**
+	 * First page of two terms of middle frequency, each in about 4% of the tips.
+	 * @return the IDs found
+	 */
+	@Benchmark
+	public long[] twoTerms() {
+		return index.search(List.of(word(20), word(21)), 0L, LIMIT);
+	}
+
+	/**
+	 * A frequent term intersected with a rare one, which the shortest-list-first intersection skips through.
+	 * @return the IDs found
+	 */
+	@Benchmark
+	public long[] frequentAndRareTerms() {
+		return index.search(List.of(word(0), word(4000)), 0L, LIMIT);
+	}
+
+	/**
+	 * Two rare terms, in about 200 tips per million each and with few results, which walks both posting lists to the end.
+	 * @return the IDs found
+	 */
+	@Benchmark
+	public long[] rareTerms() {
+		return index.search(List.of(word(3000), word(4000)), 0L, LIMIT);
+	}
+
+	/**
+	 * The two middle frequency terms, checking every message like a scan of the table.
+	 * @return the number of messages checked
+	 */
+	@Benchmark
+	public int scan() {
+		return scan(List.of(word(20), word(21)));
+	}
+
+	/**
+	 * The two rare terms, checking every message like a scan of the table.
+	 * @return the number of messages checked
+	 */
+	@Benchmark
+	public int scanRareTerms() {
+		return scan(List.of(word(3000), word(4000)));
+	}
+
+	/**
+	 * Check the messages in ID order until a page of them holds every term.
+	 * @param terms the terms
+	 * @return the number of messages checked
+	 */
+	private int scan(List<String> terms) {
+		int found = 0;
+		int i = 0;
+		while (i < messages.length && found < LIMIT) {
+			if (Tokenizer.containsAll(messages[i++], terms)) {
+				found++;
+			}
+		}
+		return i;
+	}
+
+}
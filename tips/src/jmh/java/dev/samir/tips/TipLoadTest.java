@@ -0,0 +1,152 @@
+package dev.samir.tips;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP load test holding thousands of concurrent connections against a running instance.
+ * Each connection is a virtual thread sending requests back to back until the test ends,
+ * so the client isn't the one capping the concurrency. Requests finished during the warmup
+ * aren't counted. A connection whose request is shed with 503 waits for its "Retry-After" before the next one,
+ * like a well-behaved client. It prints the throughput, the error count, the requests shed
+ * and the latency percentiles of the successful requests.
+ * <p>
+ * Start the application with and without the "virtual-threads" profile and run:
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.main=dev.samir.tips.TipLoadTest \
+ *     -Dbenchmark.args="http://localhost:8080 10000 30 /api/tip/random"
+ * </pre>
+ * The arguments are the base URL, the number of connections, the duration in seconds and the path.
+ */
+public final class TipLoadTest {
+
+	/**
+	 * Seconds of warmup before the requests are counted.
+	 */
+	private static final int WARMUP_SECONDS = 5;
+
+	/**
+	 * Latency histogram upper bound, in milliseconds. Slower requests go to the last bucket.
+	 */
+	private static final int MAX_LATENCY_MILLIS = 60_000;
+
+	private TipLoadTest() {
+	}
+
+	/**
+	 * Run the load test.
+	 * @param args the base URL, the number of connections, the duration in seconds and the path
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		URI uri = URI.create(arg(args, 0, "http://localhost:8080") + arg(args, 3, "/api/tip/random"));
+		int connections = Integer.parseInt(arg(args, 1, "10000"));
+		int seconds = Integer.parseInt(arg(args, 2, "30"));
+
+		HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(30))
+			.build();
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+
+		LongAdder ok = new LongAdder();
+		LongAdder errors = new LongAdder();
+		LongAdder shed = new LongAdder();
+		AtomicReference<String> firstError = new AtomicReference<>();
+		AtomicLongArray latencies = new AtomicLongArray(MAX_LATENCY_MILLIS + 1);
+		long start = System.nanoTime();
+		long measureFrom = start + Duration.ofSeconds(WARMUP_SECONDS).toNanos();
+		long deadline = measureFrom + Duration.ofSeconds(seconds).toNanos();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < connections; i++) {
+				executor.submit(() -> {
+					while (System.nanoTime() < deadline) {
+						long sent = System.nanoTime();
+						boolean success;
+						int status = 0;
+						long retryAfter = 0;
+						try {
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							status = response.statusCode();
+							retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(0);
+							success = status < 400;
+							if (!success && status != 503) {
+								firstError.compareAndSet(null, "HTTP " + status);
+							}
+						} catch (Exception e) {
+							success = false;
+							firstError.compareAndSet(null, e.toString());
+						}
+						long received = System.nanoTime();
+						if (status == 503 && retryAfter > 0) {
+							try {
+								Thread.sleep(Duration.ofSeconds(retryAfter));
+							} catch (InterruptedException e) {
+								return;
+							}
+						}
+						if (sent < measureFrom || received > deadline) {
+							continue;
+						}
+						if (success) {
+							ok.increment();
+							latencies.incrementAndGet((int) Math.min(MAX_LATENCY_MILLIS, (received - sent) / 1_000_000));
+						} else if (status == 503) {
+							shed.increment();
+						} else {
+							errors.increment();
+						}
+					}
+				});
+			}
+		}
+
+		System.out.printf("%s with %d connections for %d s%n", uri, connections, seconds);
+		System.out.printf("requests: %d ok, %d errors, %d shed, %.1f req/s%n", ok.sum(), errors.sum(), shed.sum(), ok.sum() / (double) seconds);
+		if (firstError.get() != null) {
+			System.out.println("first error: " + firstError.get());
+		}
+		System.out.printf("latency ms: p50 %d, p90 %d, p99 %d, max %d%n", percentile(latencies, ok.sum(), 0.50),
+			percentile(latencies, ok.sum(), 0.90), percentile(latencies, ok.sum(), 0.99), percentile(latencies, ok.sum(), 1.0));
+	}
+
+	/**
+	 * Get an argument or its default value.
+	 * @param args the arguments
+	 * @param index the argument index
+	 * @param defaultValue the value used when the argument is missing
+	 * @return the argument
+	 */
+	private static String arg(String[] args, int index, String defaultValue) {
+		return args.length > index ? args[index] : defaultValue;
+	}
+
+	/**
+	 * Read a percentile from the latency histogram.
+	 * @param latencies the number of requests per millisecond of latency
+	 * @param count the total number of requests
+	 * @param percentile the percentile, from 0 to 1
+	 * @return the latency in milliseconds
+	 */
+	private static long percentile(AtomicLongArray latencies, long count, double percentile) {
+		long target = (long) Math.ceil(count * percentile);
+		long seen = 0;
+		for (int millis = 0; millis < latencies.length(); millis++) {
+			seen += latencies.get(millis);
+			if (seen >= target && seen > 0) {
+				return millis;
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,108 @@
+package dev.samir.tips;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Benchmark comparing the default Jackson converter with the TipResponseHttpMessageConverter
+ * when writing the body of GET /api/tip. The body goes to a discarding stream, like a servlet
+ * output buffer that is never full, so only the work of the converter is measured.
+ * Run it with "-prof gc" and compare gc.alloc.rate.norm, the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TipResponseConverterBenchmark {
+
+	private static final Type TIP_LIST = new ParameterizedTypeReference<List<TipResponse>>() {}.getType();
+
+	/**
+	 * Converter under test.
+	 */
+	@Param({"jackson", "tips"})
+	private String converter;
+
+	/**
+	 * Number of tips in the response.
+	 */
+	@Param({"1", "100", "1000"})
+	private int size;
+
+	private GenericHttpMessageConverter<Object> messageConverter;
+
+	private List<TipResponse> tips;
+
+	private final DiscardingOutputMessage output = new DiscardingOutputMessage();
+
+	/**
+	 * Create the converter and the list of tips.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		messageConverter = "jackson".equals(converter)
+			? new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build())
+			: new TipResponseHttpMessageConverter();
+		tips = LongStream.rangeClosed(1, size)
+			.mapToObj(id -> new TipResponse(id, "Tip number " + id + " about writing faster Java"))
+			.toList();
+	}
+
+	/**
+	 * Write the list of tips as a response body.
+	 * @throws IOException if the body can't be written
+	 */
+	@Benchmark
+	public void writeList() throws IOException {
+		output.headers.clear();
+		messageConverter.write(tips, TIP_LIST, MediaType.APPLICATION_JSON, output);
+	}
+
+	/**
+	 * Output message discarding the body and reusing its headers.
+	 */
+	private static final class DiscardingOutputMessage implements HttpOutputMessage {
+
+		private final HttpHeaders headers = new HttpHeaders();
+
+		private final OutputStream body = OutputStream.nullOutputStream();
+
+		@Override
+		public OutputStream getBody() {
+			return body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+	}
+
+}
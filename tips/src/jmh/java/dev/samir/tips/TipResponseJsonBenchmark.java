@@ -0,0 +1,68 @@
+package dev.samir.tips;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Benchmark of the Jackson serialization of TipResponse lists, as written by GET /api/tip.
+ * The object mapper is built with the same builder Spring Boot uses for the HTTP message converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TipResponseJsonBenchmark {
+
+	/**
+	 * Number of tips in the list.
+	 */
+	@Param({"10", "100", "1000"})
+	private int size;
+
+	private ObjectWriter writer;
+
+	private List<TipResponse> tips;
+
+	/**
+	 * Create the writer and the list of tips.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		writer = Jackson2ObjectMapperBuilder.json().build().writerFor(new TypeReference<List<TipResponse>>() {});
+		tips = LongStream.rangeClosed(1, size)
+			.mapToObj(id -> new TipResponse(id, "Tip number " + id + " about writing faster Java"))
+			.toList();
+	}
+
+	/**
+	 * Serialize the list of tips.
+	 * @return the JSON bytes
+	 * @throws JsonProcessingException if the tips can't be serialized
+	 */
+	@Benchmark
+	public byte[] writeList() throws JsonProcessingException {
+		return writer.writeValueAsBytes(tips);
+	}
+
+}
@@ -0,0 +1,236 @@
+package dev.samir.tips;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import dev.samir.TipsApplication;
+
+/**
+ * Baseline benchmark of the TipService hot paths against the real application context.
+ * It starts the application without the web layer on an in-memory H2 database created by
+ * the Liquibase changelog, seeds it with the given number of tips and measures the random
+ * draw, the cached lookup by ID, the lookup of a session's tips, a single insert and a single update.
+ * The lookups pick a random tip or session on every call, so with many rows most of
+ * the findById calls miss the "tips" cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TipServiceBenchmark {
+
+	/**
+	 * Number of tips owned by each session.
+	 */
+	private static final int TIPS_PER_SESSION = 10;
+
+	/**
+	 * Number of rows inserted per JDBC batch while seeding.
+	 */
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	/**
+	 * Number of rows in the tips table.
+	 */
+	@Param({"10000", "1000000", "10000000"})
+	private int rows;
+
+	private ConfigurableApplicationContext context;
+
+	private TipService tipService;
+
+	/**
+	 * Identifiers of the seeded tips. They aren't dense, since the sequence hands out blocks of IDs.
+	 */
+	private long[] ids;
+
+	/**
+	 * Number of deletes run by the delete benchmark.
+	 */
+	private long deletes;
+
+	/**
+	 * Number of statements prepared by those deletes.
+	 */
+	private long deleteStatements;
+
+	/**
+	 * Start the application, seed the table and build the random tip index.
+	 * @throws SQLException if the rows can't be inserted
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		context = new SpringApplicationBuilder(TipsApplication.class)
+			.web(WebApplicationType.NONE)
+			.run("--spring.datasource.url=jdbc:h2:mem:tips-" + rows + ";DB_CLOSE_DELAY=-1",
+				"--tips.moment.interval=PT1H",
+				"--tips.random-index.reconcile-interval=PT1H",
+				"--tips.cache.redis.enabled=false",
+				"--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + StatementCounter.class.getName());
+		DataSource dataSource = context.getBean(DataSource.class);
+		seed(dataSource);
+		ids = new JdbcTemplate(dataSource).queryForStream("select tip_id from tb01_tips", (resultSet, row) -> resultSet.getLong(1))
+			.mapToLong(Long::longValue)
+			.toArray();
+		context.getBean(RandomTipIndex.class).rebuild();
+		tipService = context.getBean(TipService.class);
+	}
+
+	/**
+	 * Insert the benchmark rows, {@value #TIPS_PER_SESSION} per session.
+	 * @param dataSource the application data source
+	 * @throws SQLException if the rows can't be inserted
+	 */
+	private void seed(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement insert = connection.prepareStatement("insert into tb01_tips (tip_message, tip_uuid) values (?, ?)")) {
+			connection.setAutoCommit(false);
+			for (int row = 0; row < rows; row++) {
+				insert.setString(1, "Tip number " + row);
+				insert.setString(2, session(row / TIPS_PER_SESSION));
+				insert.addBatch();
+				if ((row + 1) % SEED_BATCH_SIZE == 0) {
+					insert.executeBatch();
+					connection.commit();
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Deterministic UUID of the n-th session.
+	 * @param n the session number
+	 * @return the session UUID
+	 */
+	private static String session(int n) {
+		return new UUID(0L, n).toString();
+	}
+
+	/**
+	 * UUID of a random seeded session.
+	 * @return the session UUID
+	 */
+	private String randomSession() {
+		return session(ThreadLocalRandom.current().nextInt(rows / TIPS_PER_SESSION));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (deletes > 0) {
+			System.out.printf("%nStatements per delete: %.2f%n", (double) deleteStatements / deletes);
+		}
+		context.close();
+	}
+
+	/**
+	 * Draw a random tip.
+	 * @return the drawn tip
+	 */
+	@Benchmark
+	public Tip findRandomTip() {
+		return tipService.findRandomTip();
+	}
+
+	/**
+	 * Get a random tip by its ID, through the "tips" cache.
+	 * @return the tip
+	 * @throws TipNotFoundException if the tip is not found
+	 */
+	@Benchmark
+	public TipResponse findById() throws TipNotFoundException {
+		return tipService.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	/**
+	 * Get all tips of a random session.
+	 * @return the session tips
+	 */
+	@Benchmark
+	public List<TipResponse> getAllTips() {
+		return tipService.getAllTips(randomSession());
+	}
+
+	/**
+	 * Insert a tip into a random session.
+	 * @return the inserted tip
+	 */
+	@Benchmark
+	public Tip insert() {
+		return tipService.insert(new Tip(null, "Benchmark tip", randomSession()));
+	}
+
+	/**
+	 * Update the message of a random tip.
+	 * @return the updated tip
+	 * @throws TipNotFoundException if the tip is not found
+	 */
+	@Benchmark
+	public TipResponse update() throws TipNotFoundException {
+		long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+		return tipService.update(new TipUpdate(id, "Updated tip " + id));
+	}
+
+	/**
+	 * Insert a tip and delete it by its ID. Only the statements of the delete are counted.
+	 * @throws TipNotFoundException if the tip is not found
+	 */
+	@Benchmark
+	public void insertAndDelete() throws TipNotFoundException {
+		Long id = tipService.insert(new Tip(null, "Deleted tip", randomSession())).getId();
+		long statements = StatementCounter.COUNT.sum();
+		tipService.delete(id);
+		deleteStatements += StatementCounter.COUNT.sum() - statements;
+		deletes++;
+	}
+
+	/**
+	 * Hibernate statement inspector counting every statement it prepares.
+	 */
+	public static class StatementCounter implements StatementInspector {
+
+		/**
+		 * Number of statements prepared so far.
+		 */
+		static final LongAdder COUNT = new LongAdder();
+
+		@Override
+		public String inspect(String sql) {
+			COUNT.increment();
+			return sql;
+		}
+
+	}
+
+}
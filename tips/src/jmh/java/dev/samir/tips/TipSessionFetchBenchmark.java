@@ -0,0 +1,153 @@
+package dev.samir.tips;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.samir.TipsApplication;
+
+/**
+ * Benchmark of the read of a large session, with a single query or in partitions read concurrently
+ * by the TipSessionFetcher. It is used to choose "tips.parallel-fetch.min-size" and
+ * "tips.parallel-fetch.partition-size": the smallest session where the partitioned read wins,
+ * and the partition size past which more partitions stop helping.
+ * The tips of the {@value #SESSIONS} sessions are interleaved, like tips added over time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TipSessionFetchBenchmark {
+
+	/**
+	 * Number of seeded sessions.
+	 */
+	private static final int SESSIONS = 8;
+
+	/**
+	 * Number of rows inserted per JDBC batch while seeding.
+	 */
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	/**
+	 * Number of tips of each session.
+	 */
+	@Param({"2000", "10000", "50000", "200000"})
+	private int sessionSize;
+
+	/**
+	 * Number of partitions of the partitioned read, and threads of the executor.
+	 */
+	@Param({"2", "4", "8"})
+	private int partitions;
+
+	private ConfigurableApplicationContext context;
+
+	private TipRepository tipRepository;
+
+	private TipSessionFetcher sessionFetcher;
+
+	/**
+	 * Start the application with every session read in {@link #partitions} partitions, and seed the table.
+	 * @throws SQLException if the rows can't be inserted
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		context = new SpringApplicationBuilder(TipsApplication.class)
+			.web(WebApplicationType.NONE)
+			.run("--spring.datasource.url=jdbc:h2:mem:tips-fetch-" + sessionSize + "-" + partitions + ";DB_CLOSE_DELAY=-1",
+				"--tips.moment.interval=PT1H",
+				"--tips.random-index.reconcile-interval=PT1H",
+				"--tips.cache.redis.enabled=false",
+				"--tips.parallel-fetch.enabled=true",
+				"--tips.parallel-fetch.min-size=0",
+				"--tips.parallel-fetch.partition-size=" + (sessionSize / partitions),
+				"--tips.parallel-fetch.threads=" + partitions);
+		seed(context.getBean(DataSource.class));
+		tipRepository = context.getBean(TipRepository.class);
+		sessionFetcher = context.getBean(TipSessionFetcher.class);
+	}
+
+	/**
+	 * Insert the benchmark rows, each one in the next session.
+	 * @param dataSource the application data source
+	 * @throws SQLException if the rows can't be inserted
+	 */
+	private void seed(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement insert = connection.prepareStatement("insert into tb01_tips (tip_message, tip_uuid) values (?, ?)")) {
+			connection.setAutoCommit(false);
+			int rows = sessionSize * SESSIONS;
+			for (int row = 0; row < rows; row++) {
+				insert.setString(1, "Tip number " + row);
+				insert.setString(2, session(row % SESSIONS));
+				insert.addBatch();
+				if ((row + 1) % SEED_BATCH_SIZE == 0) {
+					insert.executeBatch();
+					connection.commit();
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Deterministic UUID of the n-th session.
+	 * @param n the session number
+	 * @return the session UUID
+	 */
+	private static String session(int n) {
+		return new UUID(0L, n).toString();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Read a random session with a single query.
+	 * @return the session tips
+	 */
+	@Benchmark
+	public List<TipResponse> sequential() {
+		return tipRepository.findAllByUuid(session(ThreadLocalRandom.current().nextInt(SESSIONS)));
+	}
+
+	/**
+	 * Read a random session in partitions, including the query of its ID range.
+	 * @return the session tips
+	 */
+	@Benchmark
+	public List<TipResponse> partitioned() {
+		return sessionFetcher.fetch(session(ThreadLocalRandom.current().nextInt(SESSIONS)));
+	}
+
+}
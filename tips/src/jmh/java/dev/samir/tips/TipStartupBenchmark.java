@@ -0,0 +1,143 @@
+package dev.samir.tips;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import dev.samir.draft.EmbeddedRedis;
+
+/**
+ * Startup benchmark measuring the time from launching the application to its first successful
+ * "GET /api/tip/random", the time an autoscaled instance takes to serve traffic.
+ * Each run starts a new JVM with the given options against the same H2 file database and an embedded Redis server,
+ * so every run but the first finds the schema and the data of the previous one. The first run seeds a tip
+ * and isn't counted. It prints the time of each run and their minimum, median and maximum.
+ * <p>
+ * Build the application, with the "fast-startup" Maven profile for the optimized variant, and run:
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.main=dev.samir.tips.TipStartupBenchmark \
+ *     -Dbenchmark.args="5 -jar target/tips-0.0.1-SNAPSHOT.jar"
+ * </pre>
+ * The arguments are the number of measured runs and the options of the "java" command, the application arguments included.
+ */
+public final class TipStartupBenchmark {
+
+	/**
+	 * How long a run may take before it fails.
+	 */
+	private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+	/**
+	 * Pause between two requests while the application starts.
+	 */
+	private static final long POLL_MILLIS = 10;
+
+	private TipStartupBenchmark() {
+	}
+
+	/**
+	 * Run the benchmark.
+	 * @param args the number of measured runs, then the options of the "java" command
+	 * @throws Exception if a run fails or times out
+	 */
+	public static void main(String[] args) throws Exception {
+		int runs = Integer.parseInt(args[0]);
+		List<String> options = Arrays.asList(args).subList(1, args.length);
+		Path database = Files.createTempDirectory("tips-startup").resolve("tips");
+		String redisPort = String.valueOf(EmbeddedRedis.port());
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+		long[] millis = new long[runs];
+		for (int run = 0; run <= runs; run++) {
+			int port = freePort();
+			List<String> command = new ArrayList<>();
+			command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+			command.addAll(options);
+			command.add("--server.port=" + port);
+			command.add("--spring.datasource.url=jdbc:h2:file:" + database + ";DB_CLOSE_ON_EXIT=FALSE");
+			command.add("--spring.data.redis.port=" + redisPort);
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(new File(System.getProperty("java.io.tmpdir"), "tips-startup-" + run + ".log"))
+				.start();
+			try {
+				long elapsed = awaitFirstTip(client, URI.create("http://localhost:" + port), process, start, run == 0);
+				if (run == 0) {
+					System.out.printf("warmup: %d ms%n", elapsed);
+				} else {
+					millis[run - 1] = elapsed;
+					System.out.printf("run %d: %d ms%n", run, elapsed);
+				}
+			} finally {
+				process.destroy();
+				if (!process.waitFor(30, TimeUnit.SECONDS)) {
+					process.destroyForcibly().waitFor();
+				}
+			}
+		}
+		Arrays.sort(millis);
+		System.out.printf("time to first GET /api/tip/random: min %d ms, median %d ms, max %d ms%n",
+			millis[0], millis[runs / 2], millis[runs - 1]);
+	}
+
+	/**
+	 * Poll "GET /api/tip/random" until it succeeds.
+	 * @param client the HTTP client
+	 * @param base the base URL of the application
+	 * @param process the application process
+	 * @param start when the process was launched, from System.nanoTime
+	 * @param seed whether to insert a tip once the application answers, for an empty database
+	 * @return the milliseconds from the launch to the first successful response
+	 * @throws Exception if the process exits or the run times out
+	 */
+	private static long awaitFirstTip(HttpClient client, URI base, Process process, long start, boolean seed) throws Exception {
+		HttpRequest random = HttpRequest.newBuilder(base.resolve("/api/tip/random")).timeout(Duration.ofSeconds(30)).build();
+		boolean seeded = !seed;
+		while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+			if (!process.isAlive()) {
+				throw new IllegalStateException("The application exited with " + process.exitValue());
+			}
+			try {
+				int status = client.send(random, HttpResponse.BodyHandlers.discarding()).statusCode();
+				if (status == 200) {
+					return (System.nanoTime() - start) / 1_000_000;
+				}
+				if (!seeded) {
+					client.send(HttpRequest.newBuilder(base.resolve("/api/tip"))
+						.header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"Startup tip\",\"uuid\":\"startup\"}"))
+						.build(), HttpResponse.BodyHandlers.discarding());
+					seeded = true;
+				}
+			} catch (IOException e) {
+				// Not listening yet
+			}
+			Thread.sleep(POLL_MILLIS);
+		}
+		throw new IllegalStateException("No tip after " + TIMEOUT);
+	}
+
+	/**
+	 * Find a free local port.
+	 * @return the port
+	 * @throws IOException if no port can be opened
+	 */
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+}
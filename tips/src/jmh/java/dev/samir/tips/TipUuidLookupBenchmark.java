@@ -0,0 +1,156 @@
+package dev.samir.tips;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Benchmark for the lookup of tips by session UUID.
+ * It creates the schema with the real Liquibase changelog in an in-memory H2 database,
+ * seeds it with millions of rows and runs the same query as TipRepository.findAllByUuid,
+ * with and without the "tip_uuid" index. With the index the lookup time should not
+ * depend on the number of rows in the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TipUuidLookupBenchmark {
+
+	/**
+	 * Number of tips owned by each session.
+	 */
+	private static final int TIPS_PER_SESSION = 10;
+
+	/**
+	 * Number of rows inserted per JDBC batch while seeding.
+	 */
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	/**
+	 * Number of rows in the tips table.
+	 */
+	@Param({"100000", "1000000", "5000000"})
+	private int rows;
+
+	/**
+	 * Whether the "tip_uuid" index is kept.
+	 */
+	@Param({"true", "false"})
+	private boolean indexed;
+
+	private Connection connection;
+
+	private PreparedStatement findAllByUuid;
+
+	/**
+	 * Create the schema, seed the table and prepare the lookup statement.
+	 * @throws Exception if the database can't be set up
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:tips-" + rows + "-" + indexed + ";DB_CLOSE_DELAY=-1");
+		connection = dataSource.getConnection();
+
+		SpringLiquibase liquibase = new SpringLiquibase();
+		liquibase.setDataSource(dataSource);
+		liquibase.setChangeLog("classpath:/db/changelog/db.changelog-master.xml");
+		liquibase.setResourceLoader(new DefaultResourceLoader());
+		liquibase.afterPropertiesSet();
+
+		if (!indexed) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("drop index tb01_tips_uuid_id_index");
+			}
+		}
+		seed();
+
+		findAllByUuid = connection.prepareStatement("select tip_id, tip_message from tb01_tips where tip_uuid = ?");
+	}
+
+	/**
+	 * Insert the benchmark rows, {@value #TIPS_PER_SESSION} per session.
+	 * @throws SQLException if the rows can't be inserted
+	 */
+	private void seed() throws SQLException {
+		connection.setAutoCommit(false);
+		try (PreparedStatement insert = connection.prepareStatement("insert into tb01_tips (tip_message, tip_uuid) values (?, ?)")) {
+			for (int row = 0; row < rows; row++) {
+				insert.setString(1, "Tip number " + row);
+				insert.setString(2, session(row / TIPS_PER_SESSION));
+				insert.addBatch();
+				if ((row + 1) % SEED_BATCH_SIZE == 0) {
+					insert.executeBatch();
+					connection.commit();
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+		}
+		connection.setAutoCommit(true);
+	}
+
+	/**
+	 * Deterministic UUID of the n-th session.
+	 * @param n the session number
+	 * @return the session UUID
+	 */
+	private static String session(int n) {
+		return new UUID(0L, n).toString();
+	}
+
+	/**
+	 * Drop the in-memory database.
+	 * @throws SQLException if the database can't be closed
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("shutdown");
+		}
+	}
+
+	/**
+	 * Lookup all tips of a random session.
+	 * @return the sum of the returned identifiers, so the result is consumed
+	 * @throws SQLException if the query fails
+	 */
+	@Benchmark
+	public long findAllByUuid() throws SQLException {
+		findAllByUuid.setString(1, session(ThreadLocalRandom.current().nextInt(rows / TIPS_PER_SESSION)));
+		long sum = 0;
+		try (ResultSet resultSet = findAllByUuid.executeQuery()) {
+			while (resultSet.next()) {
+				sum += resultSet.getLong(1);
+			}
+		}
+		return sum;
+	}
+
+}
@@ -1,15 +1,31 @@
 package dev.samir;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import dev.samir.draft.Draft;
+import dev.samir.redis.CompactRedisSerializer;
+import dev.samir.tips.SessionTipIds;
+import dev.samir.tips.TipResponse;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.resource.ClientResources;
+
 /**
  * Mais class containing the main method to run the Spring Boot application.
  * This class is annotated with @SpringBootApplication, which is a convenience
@@ -17,10 +33,12 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  * - @Configuration: Tags the class as a source of bean definitions for the application context.
  * - @EnableAutoConfiguration: Enables Spring Boot's auto-configuration mechanism.
  * - @ComponentScan: Enables component scanning so that the application can find and register beans.
+ * The R2DBC auto-configuration is excluded: a ConnectionFactory bean would make Spring Boot skip the JDBC
+ * DataSource, which JPA and Liquibase use in every profile. The reactive profile opens its own pool, see ReactiveTipRepository.
  */
+@EnableCaching
 @EnableScheduling
-@EnableRedisRepositories
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class TipsApplication {
 
 	/**
@@ -31,22 +49,64 @@ public class TipsApplication {
 		SpringApplication.run(TipsApplication.class, args);
 	}
 	
+	/**
+	 * Connection factory of Redis.
+	 * It uses the Lettuce client resources configured by Spring Boot, when available,
+	 * so every Redis command is timed by the Micrometer command latency recorder.
+	 * Commands and connections time out quickly, instead of after the 60 and 10 seconds of Lettuce,
+	 * so a Redis outage doesn't hold the requests reading through the caches.
+	 * It is also the ReactiveRedisConnectionFactory of the drafts in the reactive profile.
+	 * @param host the Redis host
+	 * @param port the Redis port
+	 * @param timeout the timeout of the Redis commands
+	 * @param connectTimeout the timeout of the Redis connections
+	 * @param clientResources the Lettuce client resources
+	 * @return the connection factory
+	 */
+	@Bean
+	LettuceConnectionFactory connectionFactory(@Value("${spring.data.redis.host:localhost}") String host,
+			@Value("${spring.data.redis.port:6379}") int port,
+			@Value("${spring.data.redis.timeout:PT1S}") Duration timeout,
+			@Value("${spring.data.redis.connect-timeout:PT1S}") Duration connectTimeout,
+			ObjectProvider<ClientResources> clientResources) {
+		LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder()
+			.commandTimeout(timeout)
+			.clientOptions(ClientOptions.builder()
+				.socketOptions(SocketOptions.builder().connectTimeout(connectTimeout).build())
+				.build());
+		clientResources.ifAvailable(client::clientResources);
+		return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), client.build());
+	}
+
+	/**
+	 * Serializer of the values stored through the RedisTemplate.
+	 * By default records are written in a compact binary format and legacy JSON values are still read.
+	 * Set "tips.redis.serializer=json" to keep writing the JSON with "@class" type information.
+	 * @param mode the serializer mode, "compact" or "json"
+	 * @return the value serializer
+	 */
 	@Bean
-	RedisConnectionFactory connectionFactory() {
-		return new LettuceConnectionFactory();
+	RedisSerializer<Object> redisValueSerializer(@Value("${tips.redis.serializer:compact}") String mode) {
+		GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+		if ("json".equals(mode)) {
+			return json;
+		}
+		return new CompactRedisSerializer(json)
+			.register(1, Draft.class)
+			.register(2, TipResponse.class)
+			.register(3, SessionTipIds.class);
 	}
 
 	@Bean
-	RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+	RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory, RedisSerializer<Object> redisValueSerializer) {
 		RedisTemplate<String, Object> template = new RedisTemplate<>();
 		template.setConnectionFactory(redisConnectionFactory);
-		// The GenericJackson2JsonRedisSerializer uses Jackson to serialize and deserialize
-		// objects to and from JSON, which is a widely used format for data interchange.
-		// This allows for storing complex objects in Redis without needing to convert them to strings or other formats.
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setKeySerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashKeySerializer(new GenericJackson2JsonRedisSerializer());
+		// Keys are plain strings, so they can be read and matched with redis-cli.
+		// Values go through the pluggable serializer, see redisValueSerializer.
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(redisValueSerializer);
+        template.setHashValueSerializer(redisValueSerializer);
 		return template;
 	}
 
@@ -0,0 +1,311 @@
+package dev.samir.admission;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adjusted to the measured latency, like the gradient limit of Netflix's concurrency-limits.
+ * Two moving averages of the latency are kept: a short one of the last few requests and a long one, the latency the
+ * service has without queueing. The gradient is the ratio of the long average, times a tolerance, to the short one.
+ * While the latency stays within the tolerance the gradient is 1 and the limit grows by the square root of the limit
+ * per request; when requests queue up in the database or on the CPU the short average rises, the gradient falls
+ * to as low as 0.5 and the limit shrinks. The limit only grows when at least half of it is used.
+ * <p>
+ * Requests over the limit wait up to "max-wait" in a queue of "queue-size" requests, then are rejected.
+ */
+class AdaptiveLimiter {
+
+	/**
+	 * Number of requests of the short latency average.
+	 */
+	private static final int SHORT_WINDOW = 10;
+
+	/**
+	 * Number of requests of the long latency average.
+	 */
+	private static final int LONG_WINDOW = 600;
+
+	/**
+	 * Weight of the new limit in the limit, smoothing the changes.
+	 */
+	private static final double SMOOTHING = 0.2;
+
+	/**
+	 * Lowest gradient, so a single slow request can't cut the limit by more than half.
+	 */
+	private static final double MIN_GRADIENT = 0.5;
+
+	/**
+	 * Name of the endpoints, the tag of the metrics.
+	 */
+	private final String name;
+
+	/**
+	 * Lowest limit.
+	 */
+	private final int minLimit;
+
+	/**
+	 * Highest limit.
+	 */
+	private final int maxLimit;
+
+	/**
+	 * Most requests waiting for a slot.
+	 */
+	private final int queueSize;
+
+	/**
+	 * Longest wait for a slot, in nanoseconds.
+	 */
+	private final long maxWaitNanos;
+
+	/**
+	 * How much the short latency may exceed the long one before the limit shrinks.
+	 */
+	private final double rttTolerance;
+
+	/**
+	 * Lock of the limit, the counts and the latency averages.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled when a slot is released or the limit grows.
+	 */
+	private final Condition released = lock.newCondition();
+
+	/**
+	 * Current limit, rounded down to admit requests.
+	 */
+	private double limit;
+
+	/**
+	 * Requests admitted and not finished.
+	 */
+	private int inflight;
+
+	/**
+	 * Requests waiting for a slot.
+	 */
+	private int queued;
+
+	/**
+	 * Short latency average in nanoseconds, NaN before the first request.
+	 */
+	private double shortRtt = Double.NaN;
+
+	/**
+	 * Long latency average in nanoseconds, NaN before the first request.
+	 */
+	private double longRtt = Double.NaN;
+
+	/**
+	 * Requests admitted.
+	 */
+	private final LongAdder accepted = new LongAdder();
+
+	/**
+	 * Requests rejected.
+	 */
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Constructor for AdaptiveLimiter.
+	 * @param name the name of the endpoints
+	 * @param initialLimit the limit before any latency is measured
+	 * @param minLimit the lowest limit
+	 * @param maxLimit the highest limit
+	 * @param queueSize the most requests waiting for a slot
+	 * @param maxWait the longest wait for a slot
+	 * @param rttTolerance how much the short latency may exceed the long one before the limit shrinks
+	 */
+	AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, int queueSize, Duration maxWait, double rttTolerance) {
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.queueSize = queueSize;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.rttTolerance = rttTolerance;
+		this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+	}
+
+	/**
+	 * Take a slot, waiting in the queue if every slot is taken.
+	 * @return true if the request is admitted, then it must call {@link #release(long)}, false if it is rejected
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean acquire() throws InterruptedException {
+		lock.lock();
+		try {
+			if (inflight < (int) limit) {
+				return admit();
+			}
+			if (queued >= queueSize) {
+				rejected.increment();
+				return false;
+			}
+			queued++;
+			try {
+				long remaining = maxWaitNanos;
+				while (inflight >= (int) limit) {
+					if (remaining <= 0) {
+						rejected.increment();
+						return false;
+					}
+					remaining = released.awaitNanos(remaining);
+				}
+				return admit();
+			} finally {
+				queued--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reject a request without trying to admit it.
+	 * @return false
+	 */
+	boolean reject() {
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Admit a request, with the lock held.
+	 * @return true
+	 */
+	private boolean admit() {
+		inflight++;
+		accepted.increment();
+		return true;
+	}
+
+	/**
+	 * Release the slot of a finished request and adjust the limit to its latency.
+	 * @param rttNanos the time the request took once admitted, in nanoseconds
+	 */
+	void release(long rttNanos) {
+		lock.lock();
+		try {
+			int used = inflight;
+			inflight--;
+			int before = (int) limit;
+			update(rttNanos, used);
+			if ((int) limit > before) {
+				released.signalAll();
+			} else {
+				released.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adjust the latency averages and the limit, with the lock held.
+	 * @param rttNanos the latency of a request, in nanoseconds
+	 * @param used the requests in flight when it finished, itself included
+	 */
+	private void update(long rttNanos, int used) {
+		if (Double.isNaN(longRtt)) {
+			shortRtt = rttNanos;
+			longRtt = rttNanos;
+			return;
+		}
+		shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+		longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+		// Once an overload is over the long average would take hundreds of requests to come back down
+		if (longRtt > 2 * shortRtt) {
+			longRtt *= 0.95;
+		}
+		if (used < limit / 2) {
+			return;
+		}
+		double gradient = Math.clamp(rttTolerance * longRtt / shortRtt, MIN_GRADIENT, 1.0);
+		double next = limit * gradient + Math.sqrt(limit);
+		limit = Math.clamp(limit * (1 - SMOOTHING) + next * SMOOTHING, minLimit, maxLimit);
+	}
+
+	/**
+	 * Name of the endpoints.
+	 * @return the name
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Current limit.
+	 * @return the most requests admitted at once
+	 */
+	int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requests in flight.
+	 * @return the requests admitted and not finished
+	 */
+	int getInflight() {
+		lock.lock();
+		try {
+			return inflight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requests in the queue.
+	 * @return the requests waiting for a slot
+	 */
+	int getQueued() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Long latency average, the latency without queueing.
+	 * @return the average in seconds, NaN before the first request
+	 */
+	double getLongRttSeconds() {
+		lock.lock();
+		try {
+			return longRtt / TimeUnit.SECONDS.toNanos(1);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requests admitted so far.
+	 * @return the count
+	 */
+	long getAccepted() {
+		return accepted.sum();
+	}
+
+	/**
+	 * Requests rejected so far.
+	 * @return the count
+	 */
+	long getRejected() {
+		return rejected.sum();
+	}
+
+}
@@ -0,0 +1,76 @@
+package dev.samir.admission;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the admission control of the TipController, off unless "tips.admission.enabled" is true.
+ * Every limit starts at "tips.admission.initial-limit" and moves between "tips.admission.min-limit" and the
+ * "max-limit" of its endpoints: "tips.admission.reads", "search", "writes", "bulk" and "drafts".
+ * Only the Spring MVC endpoints are limited, not the reactive profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "tips.admission.enabled")
+public class AdmissionControlConfiguration {
+
+	/**
+	 * Filter limiting the requests of the controller.
+	 * Spring Boot registers it for every path, after the filter timing the requests, so the rejected
+	 * requests show in "http.server.requests" with their 503 status.
+	 * @param initialLimit the limit before any latency is measured
+	 * @param minLimit the lowest limit
+	 * @param readsMaxLimit the highest limit of the tip reads by ID, by session and by page
+	 * @param searchMaxLimit the highest limit of the searches
+	 * @param writesMaxLimit the highest limit of the single tip inserts, updates and deletes
+	 * @param bulkMaxLimit the highest limit of the bulk inserts, updates and deletes
+	 * @param draftsMaxLimit the highest limit of the drafts
+	 * @param queueSize the most requests of each endpoints waiting for a slot
+	 * @param maxWait the longest wait for a slot
+	 * @param rttTolerance how much the latency may grow before the limits shrink
+	 * @param maxPending the most requests waiting for a Tomcat thread before the requests are shed
+	 * @param retryAfter the shortest "Retry-After" of the rejected requests
+	 * @param maxRetryAfter the longest "Retry-After" of the rejected requests
+	 * @param pending the number of requests waiting for a Tomcat thread
+	 * @return the filter
+	 */
+	@Bean
+	AdmissionControlFilter admissionControlFilter(@Value("${tips.admission.initial-limit:20}") int initialLimit,
+			@Value("${tips.admission.min-limit:4}") int minLimit,
+			@Value("${tips.admission.reads.max-limit:200}") int readsMaxLimit,
+			@Value("${tips.admission.search.max-limit:50}") int searchMaxLimit,
+			@Value("${tips.admission.writes.max-limit:50}") int writesMaxLimit,
+			@Value("${tips.admission.bulk.max-limit:8}") int bulkMaxLimit,
+			@Value("${tips.admission.drafts.max-limit:50}") int draftsMaxLimit,
+			@Value("${tips.admission.queue-size:50}") int queueSize,
+			@Value("${tips.admission.max-wait:PT0.05S}") Duration maxWait,
+			@Value("${tips.admission.rtt-tolerance:1.5}") double rttTolerance,
+			@Value("${tips.admission.max-pending:50}") int maxPending,
+			@Value("${tips.admission.retry-after:PT1S}") Duration retryAfter,
+			@Value("${tips.admission.max-retry-after:PT10S}") Duration maxRetryAfter,
+			TomcatPendingRequests pending) {
+		return new AdmissionControlFilter(
+			new AdaptiveLimiter("reads", initialLimit, minLimit, readsMaxLimit, queueSize, maxWait, rttTolerance),
+			new AdaptiveLimiter("search", initialLimit, minLimit, searchMaxLimit, queueSize, maxWait, rttTolerance),
+			new AdaptiveLimiter("writes", initialLimit, minLimit, writesMaxLimit, queueSize, maxWait, rttTolerance),
+			new AdaptiveLimiter("bulk", initialLimit, minLimit, bulkMaxLimit, queueSize, maxWait, rttTolerance),
+			new AdaptiveLimiter("drafts", initialLimit, minLimit, draftsMaxLimit, queueSize, maxWait, rttTolerance),
+			pending, maxPending, retryAfter, maxRetryAfter);
+	}
+
+	/**
+	 * Counter of the requests waiting for a Tomcat thread, applied to the connector by Spring Boot.
+	 * @return the counter
+	 */
+	@Bean
+	TomcatPendingRequests tomcatPendingRequests() {
+		return new TomcatPendingRequests();
+	}
+
+}
@@ -0,0 +1,238 @@
+package dev.samir.admission;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control of the "/api" endpoints of the TipController.
+ * The point and page reads, the searches, the single writes, the bulk writes and the drafts each have their own
+ * AdaptiveLimiter, so a burst of writes waiting on the database can't starve the reads served from the caches, and
+ * a slow bulk insert or search can't shrink the limit of the cheap requests sharing its latency averages. A request over the limit
+ * of its endpoints is answered right away with an empty 503 and a "Retry-After" header, instead of queueing for a
+ * Tomcat thread and then for a database or Redis connection and making every other request late too.
+ * The requests are also shed while more than "max-pending" requests wait for a Tomcat thread: that wait happens
+ * before the filter, so the limiters can't see it, and shedding the requests that get a thread drains it fastest.
+ * The "Retry-After" grows with that queue, up to "max-retry-after": with thousands of clients waiting, a short
+ * "Retry-After" only brings them back into the same queue.
+ * <p>
+ * The streams aren't limited: their body is written after the filter returns, so their latency can't be measured.
+ */
+class AdmissionControlFilter extends OncePerRequestFilter implements MeterBinder {
+
+	/**
+	 * Prefix of the limited paths.
+	 */
+	private static final String API = "/api/";
+
+	/**
+	 * Prefix of the draft endpoints.
+	 */
+	private static final String DRAFTS = "/api/draft";
+
+	/**
+	 * Path of the tips and of the deletes of a session.
+	 */
+	private static final String TIPS = "/api/tip";
+
+	/**
+	 * Path of the bulk inserts, updates and deletes.
+	 */
+	private static final String BULK = "/api/tip/bulk";
+
+	/**
+	 * Path of the searches.
+	 */
+	private static final String SEARCH = "/api/tip/search";
+
+	/**
+	 * Suffix of the streamed endpoints.
+	 */
+	private static final String STREAM = "/stream";
+
+	/**
+	 * Limiter of the tip reads by ID, by session and by page.
+	 */
+	private final AdaptiveLimiter reads;
+
+	/**
+	 * Limiter of the searches.
+	 */
+	private final AdaptiveLimiter search;
+
+	/**
+	 * Limiter of the single tip inserts, updates and deletes.
+	 */
+	private final AdaptiveLimiter writes;
+
+	/**
+	 * Limiter of the bulk inserts, updates and deletes, and of the deletes of a session.
+	 */
+	private final AdaptiveLimiter bulk;
+
+	/**
+	 * Limiter of the drafts.
+	 */
+	private final AdaptiveLimiter drafts;
+
+	/**
+	 * Number of requests waiting for a Tomcat thread.
+	 */
+	private final IntSupplier pending;
+
+	/**
+	 * Most requests waiting for a Tomcat thread before the requests are shed.
+	 */
+	private final int maxPending;
+
+	/**
+	 * Shortest "Retry-After" of the rejected requests, in seconds.
+	 */
+	private final long retryAfter;
+
+	/**
+	 * Longest "Retry-After" of the rejected requests, in seconds.
+	 */
+	private final long maxRetryAfter;
+
+	/**
+	 * Constructor for AdmissionControlFilter.
+	 * @param reads the limiter of the tip reads by ID, by session and by page
+	 * @param search the limiter of the searches
+	 * @param writes the limiter of the single tip inserts, updates and deletes
+	 * @param bulk the limiter of the bulk inserts, updates and deletes
+	 * @param drafts the limiter of the drafts
+	 * @param pending the number of requests waiting for a Tomcat thread
+	 * @param maxPending the most requests waiting for a Tomcat thread before the requests are shed
+	 * @param retryAfter how long a rejected client should wait before retrying
+	 * @param maxRetryAfter how long a rejected client should wait at most, while many requests wait for a thread
+	 */
+	AdmissionControlFilter(AdaptiveLimiter reads, AdaptiveLimiter search, AdaptiveLimiter writes, AdaptiveLimiter bulk, AdaptiveLimiter drafts,
+			IntSupplier pending, int maxPending, Duration retryAfter, Duration maxRetryAfter) {
+		this.reads = reads;
+		this.search = search;
+		this.writes = writes;
+		this.bulk = bulk;
+		this.drafts = drafts;
+		this.pending = pending;
+		this.maxPending = maxPending;
+		this.retryAfter = Math.max(1, retryAfter.toSeconds());
+		this.maxRetryAfter = Math.max(this.retryAfter, maxRetryAfter.toSeconds());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		AdaptiveLimiter limiter = limiterOf(request);
+		if (limiter == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		int backlog = pending.getAsInt();
+		boolean admitted;
+		try {
+			admitted = backlog <= maxPending ? limiter.acquire() : limiter.reject();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			admitted = false;
+		}
+		if (!admitted) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter(backlog)));
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			limiter.release(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * "Retry-After" of a rejected request: the shortest one, times the number of times the queue
+	 * of the requests waiting for a thread exceeds "max-pending".
+	 * @param backlog the number of requests waiting for a Tomcat thread
+	 * @return the seconds to wait, between the shortest and the longest "Retry-After"
+	 */
+	long retryAfter(int backlog) {
+		long overload = Math.max(1, backlog / Math.max(1, maxPending));
+		return Math.min(maxRetryAfter, retryAfter * overload);
+	}
+
+	/**
+	 * Find the limiter of a request.
+	 * @param request the request
+	 * @return the limiter of its endpoints, or null if it isn't limited
+	 */
+	AdaptiveLimiter limiterOf(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (path.startsWith(DRAFTS)) {
+			return drafts;
+		}
+		if (!path.startsWith(API) || path.endsWith(STREAM)) {
+			return null;
+		}
+		if (path.equals(BULK) || (path.equals(TIPS) && "DELETE".equals(request.getMethod()))) {
+			return bulk;
+		}
+		if (path.equals(SEARCH)) {
+			return search;
+		}
+		return switch (request.getMethod()) {
+			case "GET", "HEAD", "OPTIONS" -> reads;
+			default -> writes;
+		};
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tips.admission.pending", pending, IntSupplier::getAsInt)
+			.description("Requests waiting for a Tomcat thread")
+			.register(registry);
+		for (AdaptiveLimiter limiter : List.of(reads, search, writes, bulk, drafts)) {
+			Gauge.builder("tips.admission.limit", limiter, AdaptiveLimiter::getLimit)
+				.description("Requests the endpoints admit at once")
+				.tag("endpoints", limiter.getName())
+				.register(registry);
+			Gauge.builder("tips.admission.inflight", limiter, AdaptiveLimiter::getInflight)
+				.description("Requests admitted and not finished")
+				.tag("endpoints", limiter.getName())
+				.register(registry);
+			Gauge.builder("tips.admission.queued", limiter, AdaptiveLimiter::getQueued)
+				.description("Requests waiting to be admitted")
+				.tag("endpoints", limiter.getName())
+				.register(registry);
+			Gauge.builder("tips.admission.latency", limiter, AdaptiveLimiter::getLongRttSeconds)
+				.description("Long average of the latency the limit is adjusted to, NaN before the first request")
+				.tag("endpoints", limiter.getName())
+				.baseUnit("seconds")
+				.register(registry);
+			FunctionCounter.builder("tips.admission.requests", limiter, AdaptiveLimiter::getAccepted)
+				.description("Requests admitted, and requests rejected with 503")
+				.tag("endpoints", limiter.getName())
+				.tag("result", "accepted")
+				.register(registry);
+			FunctionCounter.builder("tips.admission.requests", limiter, AdaptiveLimiter::getRejected)
+				.description("Requests admitted, and requests rejected with 503")
+				.tag("endpoints", limiter.getName())
+				.tag("result", "rejected")
+				.register(registry);
+		}
+	}
+
+}
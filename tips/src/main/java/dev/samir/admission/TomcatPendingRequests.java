@@ -0,0 +1,44 @@
+package dev.samir.admission;
+
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+
+/**
+ * Number of requests waiting for a Tomcat worker thread.
+ * Once every worker is busy, the connections with a request to read wait in the queue of the
+ * connector's executor, before any filter sees them. The AdaptiveLimiter can't measure that wait,
+ * so the AdmissionControlFilter sheds the requests while the queue is too long.
+ * With virtual threads the executor has no queue and the count is always 0.
+ */
+class TomcatPendingRequests implements TomcatConnectorCustomizer, IntSupplier {
+
+	/**
+	 * Connector of the web server, null until the server is created.
+	 */
+	private volatile Connector connector;
+
+	@Override
+	public void customize(Connector connector) {
+		this.connector = connector;
+	}
+
+	@Override
+	public int getAsInt() {
+		Connector current = connector;
+		if (current == null) {
+			return 0;
+		}
+		Executor executor = current.getProtocolHandler().getExecutor();
+		if (executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor pool) {
+			return pool.getQueue().size();
+		}
+		if (executor instanceof java.util.concurrent.ThreadPoolExecutor pool) {
+			return pool.getQueue().size();
+		}
+		return 0;
+	}
+
+}
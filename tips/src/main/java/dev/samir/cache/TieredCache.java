@@ -0,0 +1,511 @@
+package dev.samir.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+
+/**
+ * Two level cache: an in-process Caffeine cache (L1) in front of Redis (L2).
+ * Reads try L1, then L2, then the loader, and every level that missed is filled on the way back.
+ * Loads of the same key are coalesced by Caffeine, so concurrent callers missing a cold key
+ * wait for a single load on each node.
+ * <p>
+ * Evictions remove the key from both levels and are published through the TieredCacheManager,
+ * so every other node drops its L1 copy. In Redis the key is replaced by a tombstone for "tombstone-ttl", and the
+ * values loaded from the database are only written with SET NX: a load that read the old row before
+ * another node's update can't put it back in L2 once the update evicted it, unless the load outlived the tombstone.
+ * A value read from L2 is only kept in L1 if no eviction of its key arrived during the read. When Redis fails the cache keeps working on L1 alone
+ * and doesn't try Redis again until the retry interval has passed; evictions missed during the
+ * outage are bounded by the time to live of both levels.
+ * <p>
+ * Null values are not cached.
+ */
+public class TieredCache extends AbstractValueAdaptingCache {
+
+	/**
+	 * Logger of the TieredCache.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TieredCache.class);
+
+	/**
+	 * Value stored in Redis in place of an evicted key, read as a miss.
+	 */
+	static final String TOMBSTONE = "\u0000evicted";
+
+	/**
+	 * Number of stripes of the eviction generations.
+	 */
+	private static final int GENERATION_STRIPES = 64;
+
+	/**
+	 * Number of keys scanned and deleted at a time when the cache is cleared.
+	 */
+	private static final int CLEAR_BATCH_SIZE = 1000;
+
+	/**
+	 * Name of the cache.
+	 */
+	private final String name;
+
+	/**
+	 * In-process cache, the first level.
+	 */
+	private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+
+	/**
+	 * Template of the second level, or null if the cache is local only.
+	 */
+	private final RedisTemplate<String, Object> redisTemplate;
+
+	/**
+	 * Time to live of the entries in Redis.
+	 */
+	private final Duration timeToLive;
+
+	/**
+	 * Time to live of the tombstones of the evicted keys in Redis.
+	 */
+	private final Duration tombstoneTtl;
+
+	/**
+	 * How long Redis is skipped after it fails.
+	 */
+	private final Duration retryInterval;
+
+	/**
+	 * Evictions of the keys of each stripe, incremented before the keys are dropped from L1.
+	 */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	/**
+	 * Manager publishing the evictions to the other nodes.
+	 */
+	private final TieredCacheManager manager;
+
+	/**
+	 * Prefix of the keys of this cache in Redis.
+	 */
+	private final String keyPrefix;
+
+	/**
+	 * Time in nanoseconds, from System.nanoTime, until which Redis is skipped.
+	 */
+	private volatile long redisRetryAt;
+
+	/**
+	 * Whether Redis is currently skipped.
+	 */
+	private volatile boolean redisDown;
+
+	/**
+	 * Number of L1 misses found in Redis.
+	 */
+	private final LongAdder redisHits = new LongAdder();
+
+	/**
+	 * Number of L1 misses not found in Redis.
+	 */
+	private final LongAdder redisMisses = new LongAdder();
+
+	/**
+	 * Constructor for TieredCache.
+	 * @param name the name of the cache
+	 * @param local the in-process cache
+	 * @param redisTemplate the template of the second level, or null for a local only cache
+	 * @param timeToLive the time to live of the entries in Redis
+	 * @param tombstoneTtl the time to live of the tombstones of the evicted keys in Redis
+	 * @param retryInterval how long Redis is skipped after it fails
+	 * @param manager the manager publishing the evictions
+	 */
+	TieredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, RedisTemplate<String, Object> redisTemplate,
+			Duration timeToLive, Duration tombstoneTtl, Duration retryInterval, TieredCacheManager manager) {
+		super(false);
+		this.name = name;
+		this.local = local;
+		this.redisTemplate = redisTemplate;
+		this.timeToLive = timeToLive;
+		this.tombstoneTtl = tombstoneTtl;
+		this.retryInterval = retryInterval;
+		this.manager = manager;
+		this.keyPrefix = "cache:" + name + ":";
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return local;
+	}
+
+	/**
+	 * The in-process cache, used to bind its metrics.
+	 * @return the first level cache
+	 */
+	public com.github.benmanes.caffeine.cache.Cache<Object, Object> getLocalCache() {
+		return local;
+	}
+
+	/**
+	 * Number of L1 misses found in Redis.
+	 * @return the number of L2 hits
+	 */
+	public long getRedisHits() {
+		return redisHits.sum();
+	}
+
+	/**
+	 * Number of L1 misses not found in Redis, or not looked up because Redis was failing.
+	 * @return the number of L2 misses
+	 */
+	public long getRedisMisses() {
+		return redisMisses.sum();
+	}
+
+	/**
+	 * Whether this cache has a Redis level.
+	 * @return true if the entries are stored in Redis too
+	 */
+	public boolean isTiered() {
+		return redisTemplate != null;
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		Object value = local.getIfPresent(key);
+		if (value == null) {
+			long generation = generation(key);
+			value = redisGet(key);
+			if (value != null) {
+				putLocal(key, value, generation);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Get a value, loading it on a miss of both levels.
+	 * Caffeine makes an eviction of the key wait for the load, then drops the loaded value from L1.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		return (T) fromStoreValue(local.get(key, k -> {
+			Object value = redisGet(k);
+			if (value == null) {
+				try {
+					value = toStoreValue(valueLoader.call());
+				} catch (Exception e) {
+					throw new ValueRetrievalException(k, valueLoader, e);
+				}
+				redisSetIfAbsent(k, value);
+			}
+			return value;
+		}));
+	}
+
+	/**
+	 * Get the values of many keys, reading all L1 misses from Redis in a single round trip.
+	 * @param keys the keys to look up
+	 * @return the values found, by key
+	 */
+	public Map<Object, Object> getAll(Collection<?> keys) {
+		Map<Object, Object> values = new HashMap<>(keys.size() * 2);
+		List<Object> misses = new ArrayList<>();
+		List<Long> missGenerations = new ArrayList<>();
+		for (Object key : keys) {
+			Object value = local.getIfPresent(key);
+			if (value != null) {
+				values.put(key, fromStoreValue(value));
+			} else {
+				misses.add(key);
+				missGenerations.add(generation(key));
+			}
+		}
+		if (misses.isEmpty() || !redisAvailable()) {
+			redisMisses.add(misses.size());
+			return values;
+		}
+		try {
+			List<Object> found = redisTemplate.opsForValue().multiGet(misses.stream().map(this::redisKey).toList());
+			redisSucceeded();
+			for (int i = 0; i < misses.size(); i++) {
+				Object value = found == null ? null : found.get(i);
+				if (value != null && !TOMBSTONE.equals(value)) {
+					redisHits.increment();
+					putLocal(misses.get(i), value, missGenerations.get(i));
+					values.put(misses.get(i), fromStoreValue(value));
+				} else {
+					redisMisses.increment();
+				}
+			}
+		} catch (DataAccessException e) {
+			redisMisses.add(misses.size());
+			redisFailed(e);
+		}
+		return values;
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		Object stored = toStoreValue(value);
+		local.put(key, stored);
+		redisSet(key, stored);
+	}
+
+	/**
+	 * Put many values read from the database, writing them to Redis in a single pipeline.
+	 * Like the loaded values they are only written to the keys that aren't in Redis, nor evicted lately.
+	 * @param values the values to put, by key
+	 */
+	public void putAll(Map<?, ?> values) {
+		if (values.isEmpty()) {
+			return;
+		}
+		values.forEach((key, value) -> local.put(key, toStoreValue(value)));
+		if (!redisAvailable()) {
+			return;
+		}
+		try {
+			redisTemplate.executePipelined(new SessionCallback<Object>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public <K, V> Object execute(RedisOperations<K, V> operations) {
+					RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+					values.forEach((key, value) -> redis.opsForValue().setIfAbsent(redisKey(key), toStoreValue(value), timeToLive));
+					return null;
+				}
+			});
+			redisSucceeded();
+		} catch (DataAccessException e) {
+			redisFailed(e);
+		}
+	}
+
+	@Override
+	public void evict(Object key) {
+		evictAll(List.of(key));
+	}
+
+	/**
+	 * Evict many keys from both levels with a single Redis pipeline writing their tombstones,
+	 * and tell the other nodes with a single message.
+	 * @param keys the keys to evict
+	 */
+	public void evictAll(Collection<?> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		invalidateLocal(keys);
+		if (redisAvailable()) {
+			try {
+				redisTemplate.executePipelined(new SessionCallback<Object>() {
+					@Override
+					@SuppressWarnings("unchecked")
+					public <K, V> Object execute(RedisOperations<K, V> operations) {
+						RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+						keys.forEach(key -> redis.opsForValue().set(redisKey(key), TOMBSTONE, tombstoneTtl));
+						return null;
+					}
+				});
+				redisSucceeded();
+			} catch (DataAccessException e) {
+				redisFailed(e);
+			}
+		}
+		manager.publishEviction(name, keys);
+	}
+
+	@Override
+	public void clear() {
+		invalidateLocal();
+		if (redisAvailable()) {
+			try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(keyPrefix + "*").count(CLEAR_BATCH_SIZE).build())) {
+				List<String> batch = new ArrayList<>(CLEAR_BATCH_SIZE);
+				while (cursor.hasNext()) {
+					batch.add(cursor.next());
+					if (batch.size() == CLEAR_BATCH_SIZE || !cursor.hasNext()) {
+						redisTemplate.delete(batch);
+						batch.clear();
+					}
+				}
+				redisSucceeded();
+			} catch (DataAccessException e) {
+				redisFailed(e);
+			}
+		}
+		manager.publishClear(name);
+	}
+
+	/**
+	 * Drop keys from L1 only, after another node evicted them.
+	 * @param keys the keys to drop
+	 */
+	void invalidateLocal(Collection<?> keys) {
+		for (Object key : keys) {
+			generations.incrementAndGet(stripe(key));
+		}
+		local.invalidateAll(keys);
+	}
+
+	/**
+	 * Drop every key from L1 only, after another node cleared the cache.
+	 */
+	void invalidateLocal() {
+		for (int i = 0; i < GENERATION_STRIPES; i++) {
+			generations.incrementAndGet(i);
+		}
+		local.invalidateAll();
+	}
+
+	/**
+	 * Eviction generation of a key, read before its value is read from Redis.
+	 * @param key the cache key
+	 * @return the generation of the stripe of the key
+	 */
+	private long generation(Object key) {
+		return generations.get(stripe(key));
+	}
+
+	/**
+	 * Put a value read from Redis in L1, unless the key was evicted since the generation was read.
+	 * The value is put first and removed again if the generation moved, so an eviction arriving in between
+	 * either drops it or is seen here.
+	 * @param key the cache key
+	 * @param value the value read from Redis
+	 * @param generation the generation of the key before the read
+	 */
+	private void putLocal(Object key, Object value, long generation) {
+		local.put(key, value);
+		if (generations.get(stripe(key)) != generation) {
+			local.asMap().remove(key, value);
+		}
+	}
+
+	/**
+	 * Stripe of the eviction generation of a key.
+	 * @param key the cache key
+	 * @return the index of the stripe
+	 */
+	private static int stripe(Object key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+	}
+
+	/**
+	 * Read a value from Redis.
+	 * @param key the cache key
+	 * @return the stored value, or null if it isn't in Redis or Redis can't be read
+	 */
+	private Object redisGet(Object key) {
+		if (!redisAvailable()) {
+			redisMisses.increment();
+			return null;
+		}
+		try {
+			Object value = redisTemplate.opsForValue().get(redisKey(key));
+			redisSucceeded();
+			if (TOMBSTONE.equals(value)) {
+				value = null;
+			}
+			(value == null ? redisMisses : redisHits).increment();
+			return value;
+		} catch (DataAccessException e) {
+			redisMisses.increment();
+			redisFailed(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write a value to Redis with the time to live.
+	 * @param key the cache key
+	 * @param value the value to store
+	 */
+	private void redisSet(Object key, Object value) {
+		if (!redisAvailable()) {
+			return;
+		}
+		try {
+			redisTemplate.opsForValue().set(redisKey(key), value, timeToLive);
+			redisSucceeded();
+		} catch (DataAccessException e) {
+			redisFailed(e);
+		}
+	}
+
+	/**
+	 * Write a loaded value to Redis with the time to live, unless the key holds a value or a tombstone.
+	 * @param key the cache key
+	 * @param value the value to store
+	 */
+	private void redisSetIfAbsent(Object key, Object value) {
+		if (!redisAvailable()) {
+			return;
+		}
+		try {
+			redisTemplate.opsForValue().setIfAbsent(redisKey(key), value, timeToLive);
+			redisSucceeded();
+		} catch (DataAccessException e) {
+			redisFailed(e);
+		}
+	}
+
+	/**
+	 * Key of an entry in Redis, like "cache:tips:42".
+	 * @param key the cache key
+	 * @return the Redis key
+	 */
+	private String redisKey(Object key) {
+		return keyPrefix + key;
+	}
+
+	/**
+	 * Whether Redis should be used: the cache is tiered and Redis didn't fail within the retry interval.
+	 * @return true if Redis should be used
+	 */
+	private boolean redisAvailable() {
+		return redisTemplate != null && (!redisDown || System.nanoTime() - redisRetryAt >= 0);
+	}
+
+	/**
+	 * Use Redis again after a successful command, if it had failed.
+	 */
+	private void redisSucceeded() {
+		if (redisDown) {
+			redisDown = false;
+			LOGGER.info("Redis level of cache {} recovered", name);
+		}
+	}
+
+	/**
+	 * Skip Redis until the retry interval has passed.
+	 * @param e the Redis failure
+	 */
+	private void redisFailed(DataAccessException e) {
+		if (!redisDown) {
+			LOGGER.warn("Redis level of cache {} failed, using the local level only for {}: {}", name, retryInterval, e.getMessage());
+		}
+		redisRetryAt = System.nanoTime() + retryInterval.toNanos();
+		redisDown = true;
+	}
+
+}
@@ -0,0 +1,92 @@
+package dev.samir.cache;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Configuration of the two level caches.
+ * The cache names and the Caffeine specification of the local level come from the usual
+ * "spring.cache.cache-names" and "spring.cache.caffeine.spec" properties. The caches listed in
+ * "tips.cache.redis.caches" are stored in Redis too once "tips.cache.redis.enabled=true" is set.
+ * It is off by default, so every cache is local and the reads don't depend on Redis, like a single node.
+ * Turn it on for several nodes, which then also publish their evictions to each other.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TieredCacheConfiguration {
+
+	/**
+	 * Manager of the two level caches. Spring Boot doesn't configure its own cache manager when this one exists.
+	 * @param cacheNames the names of all caches
+	 * @param tieredNames the names of the caches stored in Redis too
+	 * @param spec the Caffeine specification of the local level
+	 * @param redisEnabled whether Redis is used for the second level and the evictions
+	 * @param timeToLive the time to live of the entries in Redis
+	 * @param tombstoneTtl the time to live of the tombstones of the evicted keys, longer than the slowest load
+	 * @param retryInterval how long Redis is skipped after it fails
+	 * @param redisTemplate the Redis template, resolved on the first use of Redis
+	 * @return the cache manager
+	 */
+	@Bean
+	TieredCacheManager cacheManager(@Value("${spring.cache.cache-names}") List<String> cacheNames,
+			@Value("${tips.cache.redis.caches:}") List<String> tieredNames,
+			@Value("${spring.cache.caffeine.spec:}") String spec,
+			@Value("${tips.cache.redis.enabled:false}") boolean redisEnabled,
+			@Value("${tips.cache.redis.time-to-live:PT10M}") Duration timeToLive,
+			@Value("${tips.cache.redis.tombstone-ttl:PT30S}") Duration tombstoneTtl,
+			@Value("${tips.cache.redis.retry-interval:PT5S}") Duration retryInterval,
+			@Lazy RedisTemplate<String, Object> redisTemplate) {
+		return new TieredCacheManager(cacheNames, tieredNames, spec, redisEnabled ? redisTemplate : null, timeToLive, tombstoneTtl,
+			retryInterval);
+	}
+
+	/**
+	 * Subscriber of the evictions published by the other nodes.
+	 * @param connectionFactory the Redis connection factory, resolved on the first subscription
+	 * @param cacheManager the cache manager applying the evictions
+	 * @return the subscriber
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "tips.cache.redis.enabled", havingValue = "true")
+	TieredCacheSubscriber tieredCacheSubscriber(@Lazy RedisConnectionFactory connectionFactory, TieredCacheManager cacheManager) {
+		return new TieredCacheSubscriber(connectionFactory, cacheManager);
+	}
+
+	/**
+	 * Metrics of the caches: the Caffeine metrics of the local level, like Spring Boot binds
+	 * for a Caffeine cache, and the hits and misses of the Redis level.
+	 * @return the provider of the cache meter binders
+	 */
+	@Bean
+	CacheMeterBinderProvider<TieredCache> tieredCacheMeterBinderProvider() {
+		return (cache, tags) -> registry -> {
+			new CaffeineCacheMetrics<>(cache.getLocalCache(), cache.getName(), tags).bindTo(registry);
+			if (cache.isTiered()) {
+				FunctionCounter.builder("cache.redis.gets", cache, TieredCache::getRedisHits)
+					.description("Local cache misses looked up in Redis")
+					.tags(tags)
+					.tag("cache", cache.getName())
+					.tag("result", "hit")
+					.register(registry);
+				FunctionCounter.builder("cache.redis.gets", cache, TieredCache::getRedisMisses)
+					.description("Local cache misses looked up in Redis")
+					.tags(tags)
+					.tag("cache", cache.getName())
+					.tag("result", "miss")
+					.register(registry);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,202 @@
+package dev.samir.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+
+/**
+ * Cache manager of the TieredCache instances.
+ * The caches are created once, from a fixed list of names, and all use the same Caffeine
+ * specification for their local level. Only the caches listed as tiered are stored in Redis too;
+ * the others are local only, but their evictions are still sent to the other nodes.
+ * <p>
+ * Evictions are published on the {@value #CHANNEL} channel as plain text: the ID of the node,
+ * the cache name, the key type and then one key per line. Every node drops the keys from its
+ * local level and ignores its own messages.
+ */
+public final class TieredCacheManager implements CacheManager, MessageListener {
+
+	/**
+	 * Logger of the TieredCacheManager.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TieredCacheManager.class);
+
+	/**
+	 * Redis channel of the cache evictions.
+	 */
+	public static final String CHANNEL = "cache:evictions";
+
+	/**
+	 * Key type of the messages clearing a whole cache.
+	 */
+	private static final String CLEAR = "*";
+
+	/**
+	 * Key type of Long keys, like tip IDs.
+	 */
+	private static final String LONG = "L";
+
+	/**
+	 * Key type of String keys, like session UUIDs.
+	 */
+	private static final String STRING = "S";
+
+	/**
+	 * Random ID of this node, so it can ignore its own messages.
+	 */
+	private final String node = UUID.randomUUID().toString();
+
+	/**
+	 * Caches by name.
+	 */
+	private final Map<String, TieredCache> caches = new LinkedHashMap<>();
+
+	/**
+	 * Template used to publish the evictions, or null if they aren't published.
+	 */
+	private final RedisTemplate<String, Object> redisTemplate;
+
+	/**
+	 * How long publishing is skipped after it fails.
+	 */
+	private final Duration retryInterval;
+
+	/**
+	 * Time in nanoseconds, from System.nanoTime, until which publishing is skipped.
+	 */
+	private volatile long publishRetryAt;
+
+	/**
+	 * Whether publishing is currently skipped.
+	 */
+	private volatile boolean publishDown;
+
+	/**
+	 * Constructor for TieredCacheManager.
+	 * @param cacheNames the names of all caches
+	 * @param tieredNames the names of the caches stored in Redis too
+	 * @param spec the Caffeine specification of the local level
+	 * @param redisTemplate the template of Redis, or null to keep every cache local and not publish evictions
+	 * @param timeToLive the time to live of the entries in Redis
+	 * @param tombstoneTtl the time to live of the tombstones of the evicted keys in Redis
+	 * @param retryInterval how long Redis is skipped after it fails
+	 */
+	public TieredCacheManager(Collection<String> cacheNames, Collection<String> tieredNames, String spec,
+			RedisTemplate<String, Object> redisTemplate, Duration timeToLive, Duration tombstoneTtl, Duration retryInterval) {
+		this.redisTemplate = redisTemplate;
+		this.retryInterval = retryInterval;
+		CaffeineSpec caffeineSpec = CaffeineSpec.parse(spec);
+		for (String name : cacheNames) {
+			RedisTemplate<String, Object> level = tieredNames.contains(name) ? redisTemplate : null;
+			caches.put(name, new TieredCache(name, Caffeine.from(caffeineSpec).build(), level, timeToLive, tombstoneTtl, retryInterval, this));
+		}
+	}
+
+	@Override
+	public Cache getCache(String name) {
+		return caches.get(name);
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(caches.keySet());
+	}
+
+	/**
+	 * Tell the other nodes to drop keys from their local level.
+	 * Failures are only logged, the entries then live until they expire on the other nodes.
+	 * @param cacheName the name of the cache
+	 * @param keys the evicted keys
+	 */
+	void publishEviction(String cacheName, Collection<?> keys) {
+		StringBuilder message = new StringBuilder(64 + keys.size() * 16)
+			.append(node).append('\n')
+			.append(cacheName).append('\n')
+			.append(keys.iterator().next() instanceof Long ? LONG : STRING);
+		for (Object key : keys) {
+			message.append('\n').append(key);
+		}
+		publish(message.toString());
+	}
+
+	/**
+	 * Tell the other nodes to clear their local level of a cache.
+	 * @param cacheName the name of the cache
+	 */
+	void publishClear(String cacheName) {
+		publish(node + "\n" + cacheName + "\n" + CLEAR);
+	}
+
+	/**
+	 * Publish a message on the evictions channel.
+	 * After a failure nothing is published until the retry interval has passed.
+	 * @param message the message
+	 */
+	private void publish(String message) {
+		if (redisTemplate == null || (publishDown && System.nanoTime() - publishRetryAt < 0)) {
+			return;
+		}
+		byte[] channel = CHANNEL.getBytes(StandardCharsets.UTF_8);
+		byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		try {
+			redisTemplate.execute(connection -> connection.publish(channel, body), true);
+			publishDown = false;
+		} catch (DataAccessException e) {
+			LOGGER.warn("Cache evictions won't be published for {}: {}", retryInterval, e.getMessage());
+			publishRetryAt = System.nanoTime() + retryInterval.toNanos();
+			publishDown = true;
+		}
+	}
+
+	/**
+	 * Apply an eviction published by another node.
+	 * @param message the published message
+	 * @param pattern the pattern of the subscription
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+		if (lines.length < 3 || node.equals(lines[0])) {
+			return;
+		}
+		TieredCache cache = caches.get(lines[1]);
+		if (cache == null) {
+			return;
+		}
+		if (CLEAR.equals(lines[2])) {
+			cache.invalidateLocal();
+			return;
+		}
+		List<Object> keys = new ArrayList<>(lines.length - 3);
+		for (int i = 3; i < lines.length; i++) {
+			keys.add(LONG.equals(lines[2]) ? Long.valueOf(lines[i]) : lines[i]);
+		}
+		cache.invalidateLocal(keys);
+	}
+
+	/**
+	 * Clear the local level of every cache, after evictions of the other nodes may have been missed.
+	 */
+	public void invalidateLocal() {
+		caches.values().forEach(TieredCache::invalidateLocal);
+	}
+
+}
@@ -0,0 +1,125 @@
+package dev.samir.cache;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps this node subscribed to the cache evictions of the other nodes.
+ * The listener container isn't a bean started with the application, which would fail to start
+ * when Redis is down. It is started here instead, and a new container is tried every
+ * "tips.cache.redis.retry-interval" until the subscription succeeds, since a container
+ * that failed to start can't be started again. Evictions published while the node wasn't subscribed are lost,
+ * so the local level of every cache is cleared once it subscribes.
+ */
+public class TieredCacheSubscriber {
+
+	/**
+	 * Logger of the TieredCacheSubscriber.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TieredCacheSubscriber.class);
+
+	/**
+	 * Lock of the subscription state. It isn't a synchronized block, which would pin a virtual thread
+	 * during the Redis I/O of the subscription.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Redis connection factory of the listener containers.
+	 */
+	private final RedisConnectionFactory connectionFactory;
+
+	/**
+	 * Container of the eviction listener, or null if not subscribed yet.
+	 */
+	private RedisMessageListenerContainer container;
+
+	/**
+	 * Manager of the caches cleared once subscribed.
+	 */
+	private final TieredCacheManager cacheManager;
+
+	/**
+	 * Whether a failed subscription was already logged.
+	 */
+	private boolean failureLogged;
+
+	/**
+	 * Constructor for TieredCacheSubscriber.
+	 * @param connectionFactory the Redis connection factory
+	 * @param cacheManager the cache manager applying the evictions
+	 */
+	public TieredCacheSubscriber(RedisConnectionFactory connectionFactory, TieredCacheManager cacheManager) {
+		this.connectionFactory = connectionFactory;
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * Start a listener container if none is running yet.
+	 */
+	@Scheduled(fixedDelayString = "${tips.cache.redis.retry-interval:PT5S}")
+	public void subscribe() {
+		lock.lock();
+		try {
+			if (container != null) {
+				return;
+			}
+			RedisMessageListenerContainer started = new RedisMessageListenerContainer();
+			started.setConnectionFactory(connectionFactory);
+			started.addMessageListener(cacheManager, ChannelTopic.of(TieredCacheManager.CHANNEL));
+			try {
+				started.afterPropertiesSet();
+				started.start();
+				container = started;
+				cacheManager.invalidateLocal();
+				failureLogged = false;
+				LOGGER.info("Subscribed to the cache evictions");
+			} catch (RuntimeException e) {
+				destroy(started);
+				if (!failureLogged) {
+					LOGGER.warn("Can't subscribe to the cache evictions, retrying: {}", e.getMessage());
+					failureLogged = true;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unsubscribe and release the listener container.
+	 */
+	@PreDestroy
+	public void unsubscribe() {
+		lock.lock();
+		try {
+			if (container != null) {
+				destroy(container);
+				container = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Destroy a listener container, ignoring failures.
+	 * @param listener the container to destroy
+	 */
+	private static void destroy(RedisMessageListenerContainer listener) {
+		try {
+			listener.destroy();
+		} catch (Exception e) {
+			LOGGER.debug("Listener container couldn't be destroyed", e);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package dev.samir.datasource;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Configuration of the read replica, active when "tips.datasource.replica.enabled" is true.
+ * The primary pool is built from the usual "spring.datasource" properties and the replica pool from
+ * "tips.datasource.replica.url", "username" and "password", each sized by its own "hikari" properties.
+ * The DataSource used by JPA, Liquibase and the JdbcTemplate routes the read-only transactions to the replica,
+ * see ReadRouting for when a read stays on the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "tips.datasource.replica.enabled")
+public class ReadReplicaConfiguration {
+
+	/**
+	 * Pool of the primary database, taking every write.
+	 * @param properties the "spring.datasource" properties
+	 * @return the primary pool
+	 */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	/**
+	 * Pool of the read replica, with read-only connections.
+	 * @param url the JDBC URL of the replica
+	 * @param username the database user of the replica
+	 * @param password the database password of the replica
+	 * @return the replica pool
+	 */
+	@Bean
+	@ConfigurationProperties("tips.datasource.replica.hikari")
+	HikariDataSource replicaDataSource(@Value("${tips.datasource.replica.url}") String url,
+			@Value("${tips.datasource.replica.username:${spring.datasource.username:sa}}") String username,
+			@Value("${tips.datasource.replica.password:${spring.datasource.password:}}") String password) {
+		HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+			.url(url)
+			.username(username)
+			.password(password)
+			.build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	/**
+	 * DataSource of the application, routing the read-only transactions to the replica.
+	 * @param primary the primary pool
+	 * @param replica the replica pool
+	 * @param readRouting the routing state
+	 * @return the routing DataSource
+	 */
+	@Bean
+	@Primary
+	DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, @Qualifier("replicaDataSource") DataSource replica, ReadRouting readRouting) {
+		return new LazyConnectionDataSourceProxy(new ReadRoutingDataSource(primary, replica, readRouting));
+	}
+
+	/**
+	 * Filter keeping the reads of a client on the primary for the sticky window after it wrote, on every node.
+	 * @param readRouting the routing state
+	 * @param stickyWindow how long the reads of a client stay on the primary after it wrote
+	 * @return the filter
+	 */
+	@Bean
+	@ConditionalOnWebApplication(type = Type.SERVLET)
+	ReadYourWritesFilter readYourWritesFilter(ReadRouting readRouting,
+			@Value("${tips.datasource.replica.sticky-window:PT5S}") Duration stickyWindow) {
+		return new ReadYourWritesFilter(readRouting, stickyWindow);
+	}
+
+	/**
+	 * Monitor of the replica lag, turning the replica routing on and off.
+	 * @param primary the primary pool
+	 * @param replica the replica pool
+	 * @param readRouting the routing state
+	 * @param maxLag the largest lag of the replica still serving reads
+	 * @return the lag monitor
+	 */
+	@Bean
+	ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary, @Qualifier("replicaDataSource") DataSource replica,
+			ReadRouting readRouting, @Value("${tips.datasource.replica.max-lag:PT2S}") Duration maxLag) {
+		return new ReplicaLagMonitor(primary, replica, readRouting, maxLag);
+	}
+
+}
@@ -0,0 +1,230 @@
+package dev.samir.datasource;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Decides whether the read-only transactions may run on the read replica.
+ * Reads go to the replica only while its lag is within "tips.datasource.replica.max-lag", as measured by the
+ * ReplicaLagMonitor, and only for the sessions and tips this node hasn't written in the last
+ * "tips.datasource.replica.sticky-window". Reads of a recently written key run on the primary, so a lagging replica
+ * never refills the caches with the version of a tip from before its change.
+ * <p>
+ * The written keys are only known to the node that wrote them. A client reads its own writes on the other nodes
+ * through the ReadYourWritesFilter, which runs every read of a client that wrote within the sticky window on the primary.
+ * When "tips.datasource.replica.enabled" is false every call runs as is, on the single DataSource.
+ */
+@Component
+public class ReadRouting {
+
+	/**
+	 * Whether the reads of the current thread must run on the primary.
+	 */
+	private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+	/**
+	 * Called on the first write of the current request, to tell the client when it wrote.
+	 */
+	private static final ThreadLocal<Runnable> WRITE_LISTENER = new ThreadLocal<>();
+
+	/**
+	 * Most recently written keys remembered, so a burst of writes can't use up the memory.
+	 */
+	private static final int MAX_WRITTEN_KEYS = 100_000;
+
+	/**
+	 * Whether a read replica is configured.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Session UUIDs and tip IDs written in the last sticky window.
+	 */
+	private Cache<Object, Boolean> written;
+
+	/**
+	 * Whether the replica is reachable and its lag is within the tolerance.
+	 */
+	private volatile boolean replicaAvailable;
+
+	/**
+	 * Constructor for ReadRouting.
+	 * @param enabled whether a read replica is configured
+	 * @param stickyWindow how long the reads of a written key stay on the primary
+	 */
+	public ReadRouting(@Value("${tips.datasource.replica.enabled:false}") boolean enabled,
+			@Value("${tips.datasource.replica.sticky-window:PT5S}") Duration stickyWindow) {
+		this.enabled = enabled;
+		this.written = Caffeine.newBuilder()
+			.expireAfterWrite(stickyWindow)
+			.maximumSize(MAX_WRITTEN_KEYS)
+			.build();
+	}
+
+	/**
+	 * Record a write, so the reads of the key run on the primary for the sticky window.
+	 * @param key the session UUID or the tip ID
+	 */
+	public void written(Object key) {
+		if (enabled) {
+			written.put(key, Boolean.TRUE);
+			notifyWrite();
+		}
+	}
+
+	/**
+	 * Record the writes of many keys.
+	 * @param keys the session UUIDs or the tip IDs
+	 */
+	public void writtenAll(Collection<?> keys) {
+		if (enabled) {
+			for (Object key : keys) {
+				written.put(key, Boolean.TRUE);
+			}
+			notifyWrite();
+		}
+	}
+
+	/**
+	 * Start a request on the current thread.
+	 * @param primary whether every read of the request must run on the primary, because its client wrote lately
+	 * @param onWrite called on the first write of the request
+	 */
+	void startRequest(boolean primary, Runnable onWrite) {
+		if (primary) {
+			PRIMARY.set(Boolean.TRUE);
+		}
+		WRITE_LISTENER.set(onWrite);
+	}
+
+	/**
+	 * End the request of the current thread.
+	 */
+	void endRequest() {
+		PRIMARY.remove();
+		WRITE_LISTENER.remove();
+	}
+
+	/**
+	 * Tell the listener of the current request about its first write.
+	 */
+	private static void notifyWrite() {
+		Runnable listener = WRITE_LISTENER.get();
+		if (listener != null) {
+			WRITE_LISTENER.remove();
+			listener.run();
+		}
+	}
+
+	/**
+	 * Run a read of a key, on the primary if the key was written in the sticky window.
+	 * @param <T> the type of the result
+	 * @param key the session UUID or the tip ID
+	 * @param read the read
+	 * @return the result of the read
+	 */
+	public <T> T read(Object key, Supplier<T> read) {
+		if (enabled && written.getIfPresent(key) != null) {
+			return onPrimary(read);
+		}
+		return read.get();
+	}
+
+	/**
+	 * Run a read of many keys, on the primary if any of them was written in the sticky window.
+	 * @param <T> the type of the result
+	 * @param keys the session UUIDs or the tip IDs
+	 * @param read the read
+	 * @return the result of the read
+	 */
+	public <T> T readAll(Collection<?> keys, Supplier<T> read) {
+		if (enabled && !written.getAllPresent(keys).isEmpty()) {
+			return onPrimary(read);
+		}
+		return read.get();
+	}
+
+	/**
+	 * Run a read of a key without a result, like {@link #read(Object, Supplier)}.
+	 * @param key the session UUID or the tip ID
+	 * @param read the read
+	 */
+	public void run(Object key, Runnable read) {
+		read(key, () -> {
+			read.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Run a read on the primary, even in a read-only transaction.
+	 * @param <T> the type of the result
+	 * @param read the read
+	 * @return the result of the read
+	 */
+	private static <T> T onPrimary(Supplier<T> read) {
+		Boolean previous = PRIMARY.get();
+		PRIMARY.set(Boolean.TRUE);
+		try {
+			return read.get();
+		} finally {
+			if (previous == null) {
+				PRIMARY.remove();
+			}
+		}
+	}
+
+	/**
+	 * Wrap a task handed over to another thread, so it reads from the same database as the calling thread.
+	 * @param <T> the type of the result
+	 * @param task the task
+	 * @return the task, running on the primary if the calling thread does
+	 */
+	public static <T> Callable<T> inherit(Callable<T> task) {
+		if (PRIMARY.get() == null) {
+			return task;
+		}
+		return () -> onPrimary(() -> {
+			try {
+				return task.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * Whether the read-only transactions of the current thread may run on the replica.
+	 * @return true if the replica is available and the thread doesn't read a recently written key
+	 */
+	boolean useReplica() {
+		return replicaAvailable && PRIMARY.get() == null;
+	}
+
+	/**
+	 * Whether the replica is reachable and its lag is within the tolerance.
+	 * @return true if the read-only transactions may run on the replica
+	 */
+	public boolean isReplicaAvailable() {
+		return replicaAvailable;
+	}
+
+	/**
+	 * Set whether the replica serves the read-only transactions.
+	 * @param replicaAvailable true if the replica is reachable and its lag is within the tolerance
+	 */
+	void setReplicaAvailable(boolean replicaAvailable) {
+		this.replicaAvailable = replicaAvailable;
+	}
+
+}
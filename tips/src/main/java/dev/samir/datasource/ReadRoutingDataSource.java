@@ -0,0 +1,48 @@
+package dev.samir.datasource;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataSource sending the read-only transactions to the replica pool and everything else to the primary pool.
+ * The route is chosen when a connection is requested, so it must sit behind a LazyConnectionDataSourceProxy:
+ * the transaction manager asks for the connection before it marks the transaction as read-only, and the proxy
+ * only fetches the real connection at the first statement.
+ */
+class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+	/**
+	 * Pools of the routing.
+	 */
+	enum Route {
+		PRIMARY, REPLICA
+	}
+
+	/**
+	 * Routing state, with the replica availability and the keys read from the primary.
+	 */
+	private ReadRouting readRouting;
+
+	/**
+	 * Constructor for ReadRoutingDataSource.
+	 * @param primary the pool of the primary database
+	 * @param replica the pool of the read replica
+	 * @param readRouting the routing state
+	 */
+	ReadRoutingDataSource(DataSource primary, DataSource replica, ReadRouting readRouting) {
+		this.readRouting = readRouting;
+		setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && readRouting.useReplica() ? Route.REPLICA : Route.PRIMARY;
+	}
+
+}
@@ -0,0 +1,92 @@
+package dev.samir.datasource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Carries the read-your-writes stickiness in the client, so it holds on every node behind the load balancer.
+ * A request that writes a tip or a session gets the {@value #COOKIE} cookie with the time of the write, and every
+ * read of a request sent with that cookie within the sticky window runs on the primary, whichever node serves it.
+ * The window must be longer than "tips.datasource.replica.max-lag" plus the clock skew between the nodes:
+ * past it, the replica serving reads is known to hold the write.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	/**
+	 * Name of the cookie holding the time of the last write of the client, in milliseconds since the epoch.
+	 */
+	static final String COOKIE = "tips-written-at";
+
+	/**
+	 * Routing state the requests are marked on.
+	 */
+	private ReadRouting readRouting;
+
+	/**
+	 * How long the reads of a client stay on the primary after it wrote.
+	 */
+	private Duration stickyWindow;
+
+	/**
+	 * Constructor for ReadYourWritesFilter.
+	 * @param readRouting the routing state
+	 * @param stickyWindow how long the reads of a client stay on the primary after it wrote
+	 */
+	ReadYourWritesFilter(ReadRouting readRouting, Duration stickyWindow) {
+		this.readRouting = readRouting;
+		this.stickyWindow = stickyWindow;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long writtenAt = writtenAt(request);
+		boolean recent = writtenAt > 0 && System.currentTimeMillis() - writtenAt < stickyWindow.toMillis();
+		readRouting.startRequest(recent, () -> response.addHeader(HttpHeaders.SET_COOKIE,
+			ResponseCookie.from(COOKIE, String.valueOf(System.currentTimeMillis()))
+				.path("/")
+				.maxAge(stickyWindow)
+				.httpOnly(true)
+				.sameSite("Lax")
+				.build()
+				.toString()));
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			readRouting.endRequest();
+		}
+	}
+
+	/**
+	 * Time of the last write of the client.
+	 * @param request the request
+	 * @return the time in milliseconds since the epoch, or 0 if the request has no valid cookie
+	 */
+	private static long writtenAt(HttpServletRequest request) {
+		Cookie[] cookies = request.getCookies();
+		if (cookies == null) {
+			return 0;
+		}
+		for (Cookie cookie : cookies) {
+			if (COOKIE.equals(cookie.getName())) {
+				try {
+					return Long.parseLong(cookie.getValue());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,129 @@
+package dev.samir.datasource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Measures the replication lag of the read replica and turns the replica routing on and off.
+ * Every "tips.datasource.replica.heartbeat-interval" it stamps the heartbeat row of the primary with the time of the
+ * primary database, then reads the row from both databases: the lag is how far the replica's copy is behind.
+ * The replica serves the read-only transactions only while the lag is within "tips.datasource.replica.max-lag"
+ * and the replica answers; otherwise every read runs on the primary until the replica catches up.
+ * Every node stamps the same row, which only moves it forward.
+ */
+class ReplicaLagMonitor implements MeterBinder {
+
+	/**
+	 * Logger of the ReplicaLagMonitor.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+	/**
+	 * Statement stamping the heartbeat on the primary.
+	 */
+	private static final String STAMP = "update tb02_heartbeat set heartbeat_at = current_timestamp where heartbeat_id = 1";
+
+	/**
+	 * Query reading the heartbeat.
+	 */
+	private static final String READ = "select heartbeat_at from tb02_heartbeat where heartbeat_id = 1";
+
+	/**
+	 * Template on the pool of the primary database.
+	 */
+	private JdbcTemplate primary;
+
+	/**
+	 * Template on the pool of the read replica.
+	 */
+	private JdbcTemplate replica;
+
+	/**
+	 * Routing state whose replica availability is updated.
+	 */
+	private ReadRouting readRouting;
+
+	/**
+	 * Largest lag of the replica still serving reads.
+	 */
+	private Duration maxLag;
+
+	/**
+	 * Last measured lag, or null if the last check failed.
+	 */
+	private volatile Duration lag;
+
+	/**
+	 * Constructor for ReplicaLagMonitor.
+	 * @param primary the pool of the primary database
+	 * @param replica the pool of the read replica
+	 * @param readRouting the routing state
+	 * @param maxLag the largest lag of the replica still serving reads
+	 */
+	ReplicaLagMonitor(DataSource primary, DataSource replica, ReadRouting readRouting, Duration maxLag) {
+		this.primary = new JdbcTemplate(primary);
+		this.replica = new JdbcTemplate(replica);
+		this.readRouting = readRouting;
+		this.maxLag = maxLag;
+	}
+
+	/**
+	 * Stamp the heartbeat, measure the lag and route the reads accordingly.
+	 */
+	@Scheduled(fixedRateString = "${tips.datasource.replica.heartbeat-interval:PT1S}")
+	public void check() {
+		try {
+			primary.update(STAMP);
+			Timestamp written = primary.queryForObject(READ, Timestamp.class);
+			Timestamp replicated = replica.queryForObject(READ, Timestamp.class);
+			Duration measured = Duration.between(replicated.toInstant(), written.toInstant());
+			lag = measured.isNegative() ? Duration.ZERO : measured;
+		} catch (DataAccessException e) {
+			if (lag != null || readRouting.isReplicaAvailable()) {
+				LOGGER.warn("Replica lag check failed, reading from the primary", e);
+			}
+			lag = null;
+		}
+		boolean available = lag != null && lag.compareTo(maxLag) <= 0;
+		if (available != readRouting.isReplicaAvailable()) {
+			if (available) {
+				LOGGER.info("Replica lag {} ms, reading from the replica", lag.toMillis());
+			} else if (lag != null) {
+				LOGGER.warn("Replica lag {} ms is above {} ms, reading from the primary", lag.toMillis(), maxLag.toMillis());
+			}
+			readRouting.setReplicaAvailable(available);
+		}
+	}
+
+	/**
+	 * Last measured lag of the replica.
+	 * @return the lag, or null if the replica couldn't be checked
+	 */
+	Duration getLag() {
+		return lag;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tips.datasource.replica.lag", this, monitor -> monitor.lag == null ? Double.NaN : monitor.lag.toMillis() / 1000.0)
+			.description("Replication lag of the read replica, NaN when it can't be checked")
+			.baseUnit("seconds")
+			.register(registry);
+		Gauge.builder("tips.datasource.replica.available", readRouting, routing -> routing.isReplicaAvailable() ? 1 : 0)
+			.description("Whether the read replica serves the read-only transactions")
+			.register(registry);
+	}
+
+}
@@ -1,11 +1,10 @@
 package dev.samir.draft;
 
-import org.springframework.data.redis.core.RedisHash;
-
 /**
  * Represents a draft tip.
  * This class is used to store draft tips in Redis.
  * It contains a UUID and a message.
+ * The DraftRepository stores each draft as one compact value at "draft:{id}", and keeps a
+ * "draft:session:{uuid}" set with the IDs of each session's drafts.
  */
-@RedisHash("drafts")
-public record Draft(Long id, String message, String uuid) {}
\ No newline at end of file
+public record Draft(Long id, String message, String uuid) {}
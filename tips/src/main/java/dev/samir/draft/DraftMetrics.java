@@ -0,0 +1,52 @@
+package dev.samir.draft;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges of the drafts stored in Redis.
+ * The number of drafts is read with a single SCARD of the set holding every draft ID, through the DraftRepository,
+ * only when the metrics are scraped.
+ */
+@Component
+public class DraftMetrics implements MeterBinder {
+
+	/**
+	 * Repository used to count the drafts.
+	 */
+	private DraftRepository draftRepository;
+
+	/**
+	 * Constructor for DraftMetrics.
+	 * @param draftRepository the draft repository, resolved on the first scrape
+	 */
+	public DraftMetrics(@Lazy DraftRepository draftRepository) {
+		this.draftRepository = draftRepository;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tips.drafts", this, DraftMetrics::countDrafts)
+			.description("Number of drafts stored in Redis")
+			.baseUnit("drafts")
+			.register(registry);
+	}
+
+	/**
+	 * Count the drafts stored in Redis.
+	 * @return the number of drafts, or NaN if Redis can't be reached
+	 */
+	private double countDrafts() {
+		try {
+			return draftRepository.count();
+		} catch (DataAccessException e) {
+			return Double.NaN;
+		}
+	}
+
+}
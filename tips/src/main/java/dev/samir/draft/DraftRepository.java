@@ -1,10 +1,201 @@
 package dev.samir.draft;
 
-import org.springframework.data.repository.CrudRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.data.redis.connection.DefaultSortParameters;
+import org.springframework.data.redis.connection.SortParameters;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
 
 /**
- * Repository interface for managing Draft entities.
- * This interface extends the Spring Data Repository interface,
- * providing CRUD operations for Draft entities.
+ * Repository of the drafts in Redis, which owns their whole layout:
+ * - "draft:{id}", the draft as one value written by the value serializer of the RedisTemplate,
+ *   so in the compact binary format unless "tips.redis.serializer=json";
+ * - "draft:session:{uuid}", the set of the IDs of the drafts of a session;
+ * - "draft:ids", the set of the IDs of every draft.
+ * A batch is written in two pipelined round trips: one reading the current version of the drafts, to know
+ * which session they leave, and one MULTI block writing them and moving them between the session sets.
+ * The drafts of a session are read with a single SORT command over its set.
+ * Drafts stored as hashes under "drafts:{id}" by the former Spring Data repository aren't read.
  */
-public interface DraftRepository extends CrudRepository<Draft, String> {}
+@Repository
+public class DraftRepository {
+
+	/**
+	 * Key of the set of the IDs of every draft.
+	 */
+	static final String IDS = "draft:ids";
+
+	/**
+	 * SORT parameters returning the ID and the value of each draft of a session, ordered by ID.
+	 */
+	private static final SortParameters DRAFT_VALUES = new DefaultSortParameters()
+		.numeric()
+		.get(bytes("#"))
+		.get(bytes("draft:*"));
+
+	/**
+	 * Template whose value serializer writes and reads the drafts.
+	 */
+	private RedisTemplate<String, Object> redisTemplate;
+
+	/**
+	 * Constructor for DraftRepository.
+	 * @param redisTemplate the RedisTemplate instance
+	 */
+	public DraftRepository(RedisTemplate<String, Object> redisTemplate) {
+		this.redisTemplate = redisTemplate;
+	}
+
+	/**
+	 * Save a draft. A draft without an ID gets a random one, like the Spring Data repository did.
+	 * @param draft the draft
+	 * @return the saved draft, with its ID
+	 */
+	public Draft save(Draft draft) {
+		Draft saved = draft.id() != null ? draft : new Draft(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE), draft.message(), draft.uuid());
+		saveAll(List.of(saved));
+		return saved;
+	}
+
+	/**
+	 * Save drafts with IDs and UUIDs, in two pipelined round trips for the whole batch.
+	 * @param drafts the drafts, at most one per ID
+	 */
+	public void saveAll(Collection<Draft> drafts) {
+		List<byte[]> keys = drafts.stream().map(draft -> bytes(key(draft.id()))).toList();
+		List<Object> current = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for (byte[] key : keys) {
+				connection.stringCommands().get(key);
+			}
+			return null;
+		}, redisTemplate.getValueSerializer());
+
+		@SuppressWarnings("unchecked")
+		RedisSerializer<Object> values = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+		redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			connection.multi();
+			int i = 0;
+			for (Draft draft : drafts) {
+				byte[] id = bytes(draft.id().toString());
+				if (current.get(i) instanceof Draft previous && previous.uuid() != null && !previous.uuid().equals(draft.uuid())) {
+					connection.setCommands().sRem(bytes(sessionKey(previous.uuid())), id);
+				}
+				connection.stringCommands().set(keys.get(i), values.serialize(draft));
+				connection.setCommands().sAdd(bytes(sessionKey(draft.uuid())), id);
+				connection.setCommands().sAdd(bytes(IDS), id);
+				i++;
+			}
+			connection.exec();
+			return null;
+		}, RedisSerializer.byteArray());
+	}
+
+	/**
+	 * Find a draft by its ID.
+	 * @param id the ID of the draft
+	 * @return the draft, or empty if it doesn't exist
+	 */
+	public Optional<Draft> findById(long id) {
+		return Optional.ofNullable((Draft) redisTemplate.opsForValue().get(key(id)));
+	}
+
+	/**
+	 * Find all drafts of a session, with a single SORT command over the set of the session.
+	 * Its cost depends only on the number of drafts in the session.
+	 * @param uuid the session identifier
+	 * @return the drafts of the session, ordered by ID
+	 */
+	public List<Draft> findAllByUuid(String uuid) {
+		byte[] session = bytes(sessionKey(uuid));
+		List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.keyCommands().sort(session, DRAFT_VALUES));
+		if (values == null) {
+			return List.of();
+		}
+		List<Draft> drafts = new ArrayList<>(values.size() / 2);
+		for (int i = 0; i + 1 < values.size(); i += 2) {
+			// An ID left in the set by a draft deleted in the meantime has no value
+			if (values.get(i + 1) != null && redisTemplate.getValueSerializer().deserialize(values.get(i + 1)) instanceof Draft draft
+					&& uuid.equals(draft.uuid())) {
+				drafts.add(draft);
+			}
+		}
+		return drafts;
+	}
+
+	/**
+	 * Count the drafts.
+	 * @return the number of drafts
+	 */
+	public long count() {
+		Long count = redisTemplate.opsForSet().size(IDS);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Delete a draft, and remove it from the set of its session.
+	 * @param id the ID of the draft
+	 */
+	public void deleteById(long id) {
+		Optional<Draft> draft = findById(id);
+		byte[] member = bytes(Long.toString(id));
+		redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			connection.multi();
+			connection.keyCommands().del(bytes(key(id)));
+			draft.ifPresent(found -> connection.setCommands().sRem(bytes(sessionKey(found.uuid())), member));
+			connection.setCommands().sRem(bytes(IDS), member);
+			connection.exec();
+			return null;
+		}, RedisSerializer.byteArray());
+	}
+
+	/**
+	 * Delete every draft and session set. It scans the keys, so it's meant for tests and benchmarks.
+	 */
+	public void deleteAll() {
+		List<String> keys = new ArrayList<>();
+		try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match("draft:*").count(1000).build())) {
+			cursor.forEachRemaining(keys::add);
+		}
+		if (!keys.isEmpty()) {
+			redisTemplate.delete(keys);
+		}
+	}
+
+	/**
+	 * Key of the value of a draft.
+	 * @param id the ID of the draft
+	 * @return the key, "draft:{id}"
+	 */
+	static String key(long id) {
+		return "draft:" + id;
+	}
+
+	/**
+	 * Key of the set of the drafts of a session.
+	 * @param uuid the session identifier
+	 * @return the key, "draft:session:{uuid}"
+	 */
+	static String sessionKey(String uuid) {
+		return "draft:session:" + uuid;
+	}
+
+	/**
+	 * Encode a key or a set member.
+	 * @param value the key or member
+	 * @return its UTF-8 bytes
+	 */
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
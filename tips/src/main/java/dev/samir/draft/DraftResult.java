@@ -0,0 +1,62 @@
+package dev.samir.draft;
+
+/**
+ * Result of the upsert of one draft of a batch.
+ * @param draft the draft sent by the client
+ * @param status whether the draft was saved, is waiting in the write-behind buffer, or failed
+ * @param error why the draft wasn't saved, or null if it was saved or is pending
+ */
+public record DraftResult(Draft draft, Status status, String error) {
+
+	/**
+	 * State of a draft once its batch is accepted.
+	 */
+	public enum Status {
+
+		/**
+		 * The draft is written to Redis.
+		 */
+		SAVED,
+
+		/**
+		 * The draft is in the write-behind buffer, and is written to Redis by the next flush.
+		 * It is lost if the process dies before that.
+		 */
+		PENDING,
+
+		/**
+		 * The draft was rejected, and the error tells why.
+		 */
+		FAILED
+
+	}
+
+	/**
+	 * Result of a saved draft.
+	 * @param draft the saved draft
+	 * @return the result
+	 */
+	static DraftResult saved(Draft draft) {
+		return new DraftResult(draft, Status.SAVED, null);
+	}
+
+	/**
+	 * Result of a draft accepted into the write-behind buffer.
+	 * @param draft the buffered draft
+	 * @return the result
+	 */
+	static DraftResult pending(Draft draft) {
+		return new DraftResult(draft, Status.PENDING, null);
+	}
+
+	/**
+	 * Result of a draft that wasn't saved.
+	 * @param draft the draft
+	 * @param error why it wasn't saved
+	 * @return the result
+	 */
+	static DraftResult failed(Draft draft, String error) {
+		return new DraftResult(draft, Status.FAILED, error);
+	}
+
+}
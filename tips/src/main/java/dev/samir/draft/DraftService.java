@@ -1,53 +1,251 @@
 package dev.samir.draft;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
 /**
  * Service for Redis operations.
  * This class is used to interact with Redis for caching or other purposes.
  * Currently being used to save draft tips
+ * <p>
+ * Drafts are written behind: a batch only replaces the latest version of each draft in an
+ * in-memory buffer, and the buffer is written to Redis as one coalesced batch every
+ * "tips.drafts.flush-interval", or by the caller that fills it to "tips.drafts.flush-size".
+ * Autosave clients sending the same draft many times between two flushes cost a single write.
+ * Reading a session first writes its buffered drafts, and the buffer is written when the
+ * application shuts down. Drafts still buffered when the process dies are lost.
  */
 @Service
 public class DraftService {
 
+	/**
+	 * Logger of the DraftService.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(DraftService.class);
+
 	/**
 	 * Repository for accessing draft data.
 	 */
 	private DraftRepository draftRepository;
 	
+	/**
+	 * Distribution of the number of drafts read per session.
+	 */
+	private DistributionSummary sessionSize;
+	
+	/**
+	 * Latest version of every draft not written to Redis yet, by ID.
+	 */
+	private final ConcurrentMap<Long, Draft> pending = new ConcurrentHashMap<>();
+	
+	/**
+	 * Lock held while buffered drafts are written, so an older version is never written after a newer one.
+	 * It isn't a monitor, so virtual threads waiting for it don't pin their carrier.
+	 */
+	private final ReentrantLock flushLock = new ReentrantLock();
+	
+	/**
+	 * Number of buffered drafts that makes the caller write the buffer.
+	 */
+	private int flushSize;
+	
+	/**
+	 * Number of drafts accepted into the buffer.
+	 */
+	private Counter buffered;
+	
+	/**
+	 * Number of drafts written to Redis by the flushes.
+	 */
+	private Counter flushed;
+	
 	/**
 	 * Constructor for DraftService.
 	 * @param draftRepository the draft repository
+	 * @param meterRegistry the registry of the draft metrics
+	 * @param flushSize the number of buffered drafts that makes the caller write the buffer
 	 */
-	public DraftService(DraftRepository draftRepository) {
+	public DraftService(DraftRepository draftRepository, MeterRegistry meterRegistry, @Value("${tips.drafts.flush-size:1000}") int flushSize) {
 		this.draftRepository = draftRepository;
+		this.flushSize = flushSize;
+		this.sessionSize = DistributionSummary.builder("tips.drafts.session.size")
+			.description("Number of drafts per session, recorded when a session is read")
+			.baseUnit("drafts")
+			.register(meterRegistry);
+		this.buffered = Counter.builder("tips.drafts.writes")
+			.description("Drafts received, and drafts written to Redis after coalescing")
+			.tag("stage", "buffered")
+			.baseUnit("drafts")
+			.register(meterRegistry);
+		this.flushed = Counter.builder("tips.drafts.writes")
+			.description("Drafts received, and drafts written to Redis after coalescing")
+			.tag("stage", "flushed")
+			.baseUnit("drafts")
+			.register(meterRegistry);
+		Gauge.builder("tips.drafts.pending", pending, Map::size)
+			.description("Drafts buffered and not written to Redis yet")
+			.baseUnit("drafts")
+			.register(meterRegistry);
 	}
 	
 	/**
-	 * Saves a draft to the repository.
+	 * Saves a draft.
+	 * A draft with an ID is buffered like the drafts of a batch; a draft without one
+	 * is saved to the repository right away, which generates its ID.
 	 * @param draft the draft to save
 	 * @return the saved draft
+	 * @throws DataAccessException if the buffer is full and can't be written
 	 */
-	@CacheEvict(key = "#draft.id")
 	public Draft upsert(Draft draft) {
-		return draftRepository.save(draft);
+		if (draft.id() == null) {
+			return draftRepository.save(draft);
+		}
+		buffer(Map.of(draft.id(), draft));
+		return draft;
 	} 
 	
+	/**
+	 * Saves a batch of drafts into the write-behind buffer.
+	 * The buffer is written by the DraftRepository in two pipelined round trips for the whole
+	 * buffer instead of several round trips per draft.
+	 * When a draft is sent more than once, the last one wins.
+	 * The accepted drafts are reported as pending, since they aren't in Redis yet.
+	 * The batch is only reported as failed when the buffer is full and can't be written.
+	 * @param drafts the drafts to save
+	 * @return the result for each draft, in the same order
+	 */
+	public List<DraftResult> upsertAll(List<Draft> drafts) {
+		DraftResult[] results = new DraftResult[drafts.size()];
+		Map<Long, Draft> latest = new LinkedHashMap<>();
+		for (int i = 0; i < drafts.size(); i++) {
+			Draft draft = drafts.get(i);
+			if (draft == null || draft.id() == null) {
+				results[i] = DraftResult.failed(draft, "The draft ID can't be null.");
+			} else if (draft.uuid() == null || draft.uuid().isBlank()) {
+				results[i] = DraftResult.failed(draft, "The draft UUID can't be null or empty.");
+			} else {
+				latest.put(draft.id(), draft);
+			}
+		}
+		
+		String error = null;
+		if (!latest.isEmpty()) {
+			try {
+				buffer(latest);
+			} catch (DataAccessException e) {
+				error = "The draft couldn't be saved: " + e.getMostSpecificCause().getMessage();
+			}
+		}
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null) {
+				results[i] = error == null ? DraftResult.pending(drafts.get(i)) : DraftResult.failed(drafts.get(i), error);
+			}
+		}
+		return List.of(results);
+	}
+	
+	/**
+	 * Put drafts into the write-behind buffer, replacing their buffered versions.
+	 * When the buffer is full, the caller writes it first, so it never holds much more than the flush size.
+	 * @param drafts the valid drafts to buffer, by ID
+	 * @throws DataAccessException if the buffer is full and can't be written, then the drafts aren't buffered
+	 */
+	private void buffer(Map<Long, Draft> drafts) {
+		if (pending.size() >= flushSize) {
+			flush(draft -> true);
+		}
+		pending.putAll(drafts);
+		buffered.increment(drafts.size());
+	}
+	
+	/**
+	 * Write every buffered draft to Redis.
+	 * It runs every "tips.drafts.flush-interval", 1 second by default. Failures are logged
+	 * and the drafts stay buffered until the next flush.
+	 */
+	@Scheduled(fixedDelayString = "${tips.drafts.flush-interval:PT1S}")
+	public void flush() {
+		try {
+			flush(draft -> true);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Buffered drafts couldn't be written, retrying later: {}", e.getMostSpecificCause().getMessage());
+		}
+	}
+	
+	/**
+	 * Write the buffered drafts when the application shuts down.
+	 */
+	@PreDestroy
+	public void flushOnShutdown() {
+		flush();
+	}
+	
+	/**
+	 * Write the buffered drafts matching a filter as one batch, and drop them from the buffer.
+	 * A draft replaced in the buffer while it is written stays buffered, so its newer version is written next time.
+	 * @param filter the drafts to write
+	 * @throws DataAccessException if Redis fails, then the drafts stay buffered
+	 */
+	private void flush(Predicate<Draft> filter) {
+		flushLock.lock();
+		try {
+			List<Draft> drafts = new ArrayList<>();
+			for (Draft draft : pending.values()) {
+				if (filter.test(draft)) {
+					drafts.add(draft);
+				}
+			}
+			if (drafts.isEmpty()) {
+				return;
+			}
+			draftRepository.saveAll(drafts);
+			for (Draft draft : drafts) {
+				pending.remove(draft.id(), draft);
+			}
+			flushed.increment(drafts.size());
+		} finally {
+			flushLock.unlock();
+		}
+	}
+	
 	/**
 	 * Gets all drafts from the repository for a given UUID.
-	 * @param uuid draft identifier
+	 * The buffered drafts of the session are written first, then only the drafts of the session
+	 * are read, through the set of the session. Drafts buffered for another session, moved
+	 * there after they were written, are left out.
+	 * @param uuid session identifier
 	 * @return list of drafts
+	 * @throws DataAccessException if the buffered drafts of the session can't be written
 	 */
-	@Cacheable(key = "#draft.id")
 	public List<Draft> getAll(String uuid) {
-		return StreamSupport.stream(draftRepository.findAll().spliterator(), true)
-			.filter(draft -> draft.uuid().equals(uuid))
-			.toList();
+		flush(draft -> uuid.equals(draft.uuid()));
+		List<Draft> drafts = draftRepository.findAllByUuid(uuid);
+		if (!pending.isEmpty()) {
+			drafts = drafts.stream()
+				.filter(draft -> !(pending.get(draft.id()) instanceof Draft moved && !uuid.equals(moved.uuid())))
+				.toList();
+		}
+		sessionSize.record(drafts.size());
+		return drafts;
 	}
 	
 }
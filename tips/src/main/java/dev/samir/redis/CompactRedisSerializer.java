@@ -0,0 +1,348 @@
+package dev.samir.redis;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Compact binary serializer for the records stored through the RedisTemplate.
+ * Registered record types are written as a marker byte, a one byte type ID, a bitmap of the
+ * null components and then each non-null component in declaration order: numbers as
+ * variable-length integers and strings as length-prefixed UTF-8. There is no class name or
+ * field name in the payload, so a draft takes a fraction of the bytes of the JSON with
+ * "@class" written by GenericJackson2JsonRedisSerializer.
+ * <p>
+ * Values that don't start with the marker are read with the legacy serializer, so data
+ * written before the switch is still readable, and types that aren't registered are
+ * written with it too. The marker can't start a JSON document.
+ * <p>
+ * Supported component types are String, int, long and boolean, boxed or not, and long[],
+ * written as its length followed by each element.
+ * Type IDs must never be reused for a different type while old values may still be stored.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+	/**
+	 * First byte of every compact value. It isn't valid as the first byte of UTF-8 JSON.
+	 */
+	static final byte MARKER = (byte) 0xC1;
+
+	/**
+	 * Serializer used for legacy values and unregistered types.
+	 */
+	private final RedisSerializer<Object> legacy;
+
+	/**
+	 * Codecs by record type.
+	 */
+	private final Map<Class<?>, RecordCodec> codecsByType = new HashMap<>();
+
+	/**
+	 * Codecs by type ID.
+	 */
+	private final RecordCodec[] codecsById = new RecordCodec[256];
+
+	/**
+	 * Constructor for CompactRedisSerializer.
+	 * @param legacy the serializer for legacy values and unregistered types
+	 */
+	public CompactRedisSerializer(RedisSerializer<Object> legacy) {
+		this.legacy = legacy;
+	}
+
+	/**
+	 * Registers a record type to be written in the compact format.
+	 * @param id the type ID, from 0 to 255, written in every value of the type
+	 * @param type the record type
+	 * @return this serializer
+	 * @throws IllegalArgumentException if the ID is taken or a component type isn't supported
+	 */
+	public CompactRedisSerializer register(int id, Class<? extends Record> type) {
+		if (id < 0 || id >= codecsById.length || codecsById[id] != null) {
+			throw new IllegalArgumentException("Invalid or duplicated type ID " + id + " for " + type.getName());
+		}
+		RecordCodec codec = new RecordCodec((byte) id, type);
+		codecsById[id] = codec;
+		codecsByType.put(type, codec);
+		return this;
+	}
+
+	@Override
+	public byte[] serialize(Object value) throws SerializationException {
+		if (value == null) {
+			return null;
+		}
+		RecordCodec codec = codecsByType.get(value.getClass());
+		if (codec == null) {
+			return legacy.serialize(value);
+		}
+		Output output = new Output();
+		output.write(MARKER);
+		output.write(codec.id);
+		codec.write((Record) value, output);
+		return output.toByteArray();
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		if (bytes[0] != MARKER) {
+			return legacy.deserialize(bytes);
+		}
+		if (bytes.length < 2 || codecsById[bytes[1] & 0xFF] == null) {
+			throw new SerializationException("Unknown compact type ID " + (bytes.length < 2 ? "(missing)" : bytes[1] & 0xFF));
+		}
+		Input input = new Input(bytes, 2);
+		return codecsById[bytes[1] & 0xFF].read(input);
+	}
+
+	/**
+	 * Kinds of supported record components.
+	 */
+	private enum Kind {
+		STRING, LONG, INT, BOOLEAN, LONG_ARRAY;
+
+		static Kind of(Class<?> type) {
+			if (type == String.class) {
+				return STRING;
+			} else if (type == long.class || type == Long.class) {
+				return LONG;
+			} else if (type == int.class || type == Integer.class) {
+				return INT;
+			} else if (type == boolean.class || type == Boolean.class) {
+				return BOOLEAN;
+			} else if (type == long[].class) {
+				return LONG_ARRAY;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Reads and writes the components of one record type.
+	 */
+	private static final class RecordCodec {
+
+		private final byte id;
+
+		private final Class<?> type;
+
+		private final Kind[] kinds;
+
+		private final MethodHandle[] accessors;
+
+		private final MethodHandle constructor;
+
+		RecordCodec(byte id, Class<? extends Record> type) {
+			this.id = id;
+			this.type = type;
+			RecordComponent[] components = type.getRecordComponents();
+			kinds = new Kind[components.length];
+			accessors = new MethodHandle[components.length];
+			Class<?>[] parameterTypes = new Class<?>[components.length];
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			try {
+				for (int i = 0; i < components.length; i++) {
+					kinds[i] = Kind.of(components[i].getType());
+					if (kinds[i] == null) {
+						throw new IllegalArgumentException("Unsupported type " + components[i].getType().getName()
+							+ " of " + type.getName() + "." + components[i].getName());
+					}
+					Method accessor = components[i].getAccessor();
+					accessor.setAccessible(true);
+					accessors[i] = lookup.unreflect(accessor);
+					parameterTypes[i] = components[i].getType();
+				}
+				Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+				canonical.setAccessible(true);
+				constructor = lookup.unreflectConstructor(canonical);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Can't access the components of " + type.getName(), e);
+			}
+		}
+
+		void write(Record value, Output output) {
+			Object[] values = new Object[kinds.length];
+			byte[] nulls = new byte[(kinds.length + 7) / 8];
+			for (int i = 0; i < kinds.length; i++) {
+				try {
+					values[i] = accessors[i].invoke(value);
+				} catch (Throwable e) {
+					throw new SerializationException("Can't read " + type.getName(), e);
+				}
+				if (values[i] == null) {
+					nulls[i / 8] |= (byte) (1 << (i % 8));
+				}
+			}
+			output.write(nulls);
+			for (int i = 0; i < kinds.length; i++) {
+				if (values[i] != null) {
+					switch (kinds[i]) {
+						case STRING -> output.writeString((String) values[i]);
+						case LONG -> output.writeVarLong((Long) values[i]);
+						case INT -> output.writeVarLong((Integer) values[i]);
+						case BOOLEAN -> output.write((byte) ((Boolean) values[i] ? 1 : 0));
+						case LONG_ARRAY -> output.writeVarLongs((long[]) values[i]);
+					}
+				}
+			}
+		}
+
+		Object read(Input input) {
+			byte[] nulls = input.read((kinds.length + 7) / 8);
+			Object[] values = new Object[kinds.length];
+			for (int i = 0; i < kinds.length; i++) {
+				if ((nulls[i / 8] & (1 << (i % 8))) == 0) {
+					values[i] = switch (kinds[i]) {
+						case STRING -> input.readString();
+						case LONG -> input.readVarLong();
+						case INT -> (int) input.readVarLong();
+						case BOOLEAN -> input.read() != 0;
+						case LONG_ARRAY -> input.readVarLongs();
+					};
+				}
+			}
+			try {
+				return constructor.invokeWithArguments(values);
+			} catch (Throwable e) {
+				throw new SerializationException("Can't create " + type.getName(), e);
+			}
+		}
+
+	}
+
+	/**
+	 * Growable output buffer.
+	 */
+	private static final class Output {
+
+		private byte[] buffer = new byte[64];
+
+		private int size;
+
+		void write(byte value) {
+			ensure(1);
+			buffer[size++] = value;
+		}
+
+		void write(byte[] values) {
+			ensure(values.length);
+			System.arraycopy(values, 0, buffer, size, values.length);
+			size += values.length;
+		}
+
+		/**
+		 * Writes a zigzag encoded variable-length integer, 1 byte for values from -64 to 63.
+		 */
+		void writeVarLong(long value) {
+			long zigzag = (value << 1) ^ (value >> 63);
+			ensure(10);
+			while ((zigzag & ~0x7FL) != 0) {
+				buffer[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+				zigzag >>>= 7;
+			}
+			buffer[size++] = (byte) zigzag;
+		}
+
+		void writeVarLongs(long[] values) {
+			writeVarLong(values.length);
+			for (long value : values) {
+				writeVarLong(value);
+			}
+		}
+
+		void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(bytes.length);
+			write(bytes);
+		}
+
+		private void ensure(int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+
+	}
+
+	/**
+	 * Input over a serialized value.
+	 */
+	private static final class Input {
+
+		private final byte[] buffer;
+
+		private int position;
+
+		Input(byte[] buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		byte read() {
+			check(1);
+			return buffer[position++];
+		}
+
+		byte[] read(int length) {
+			check(length);
+			byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+			position += length;
+			return bytes;
+		}
+
+		long readVarLong() {
+			long zigzag = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = read();
+				zigzag |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return (zigzag >>> 1) ^ -(zigzag & 1);
+				}
+			}
+			throw new SerializationException("Malformed variable-length integer");
+		}
+
+		long[] readVarLongs() {
+			int length = (int) readVarLong();
+			// Every element takes at least one byte
+			check(length);
+			long[] values = new long[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = readVarLong();
+			}
+			return values;
+		}
+
+		String readString() {
+			int length = (int) readVarLong();
+			check(length);
+			String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+		private void check(int length) {
+			if (length < 0 || position + length > buffer.length) {
+				throw new SerializationException("Truncated compact value");
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,300 @@
+package dev.samir.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted list of the tip IDs holding a term, compressed.
+ * IDs are stored as the variable-length deltas between consecutive IDs, so the dense IDs handed out
+ * by the sequence mostly take one or two bytes each instead of eight. Every {@value #SKIP_INTERVAL}th
+ * ID is also kept in a skip table, so a cursor can jump close to a target ID without decoding everything before it.
+ * <p>
+ * New tips get the largest IDs and are appended at the end. An ID smaller than the last one, like
+ * an updated tip getting a new term, goes to a small sorted array merged into the compressed data
+ * once it grows too large. The same ID may then be in both; cursors return it once.
+ * IDs are never removed: deleted tips are filtered out by the index.
+ * <p>
+ * Not thread-safe, the TipSearchIndex guards it with its lock.
+ */
+final class PostingList {
+
+	/**
+	 * Number of IDs between two entries of the skip table.
+	 */
+	static final int SKIP_INTERVAL = 128;
+
+	/**
+	 * Smallest number of out of order IDs that makes the list compact itself.
+	 */
+	private static final int MIN_COMPACT_THRESHOLD = 64;
+
+	/**
+	 * ID returned by the cursors when they are exhausted.
+	 */
+	static final long END = Long.MAX_VALUE;
+
+	private static final long[] NO_IDS = {};
+
+	/**
+	 * Variable-length deltas of the sorted IDs.
+	 */
+	private byte[] data = new byte[8];
+
+	/**
+	 * Number of bytes used in {@link #data}.
+	 */
+	private int length;
+
+	/**
+	 * Number of IDs in {@link #data}.
+	 */
+	private int count;
+
+	/**
+	 * Last ID of {@link #data}, 0 when it is empty.
+	 */
+	private long last;
+
+	/**
+	 * ID of every {@value #SKIP_INTERVAL}th entry of {@link #data}, starting with the first one.
+	 */
+	private long[] skipIds = new long[1];
+
+	/**
+	 * Offset in {@link #data} right after each entry of {@link #skipIds}.
+	 */
+	private int[] skipOffsets = new int[1];
+
+	/**
+	 * Sorted IDs added out of order, not merged into {@link #data} yet.
+	 */
+	private long[] inserted = NO_IDS;
+
+	/**
+	 * Number of IDs used in {@link #inserted}.
+	 */
+	private int insertedCount;
+
+	/**
+	 * Add an ID. Adding an ID already in the list has no effect on the results.
+	 * @param id the tip ID, must be positive
+	 */
+	void add(long id) {
+		if (id > last) {
+			append(id);
+		} else if (id < last) {
+			insert(id);
+		}
+	}
+
+	/**
+	 * Number of IDs in the list, counting an ID held twice twice. Used to intersect the shortest lists first.
+	 * @return the number of IDs
+	 */
+	int size() {
+		return count + insertedCount;
+	}
+
+	/**
+	 * Number of bytes used by the compressed IDs.
+	 * @return the compressed size
+	 */
+	int compressedSize() {
+		return length;
+	}
+
+	/**
+	 * Open a cursor over the IDs, in ascending order.
+	 * @return the cursor
+	 */
+	Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Append an ID larger than every ID of the compressed data.
+	 * @param id the ID
+	 */
+	private void append(long id) {
+		if (length + 10 > data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+		long delta = id - last;
+		while ((delta & ~0x7FL) != 0) {
+			data[length++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		data[length++] = (byte) delta;
+		if (count % SKIP_INTERVAL == 0) {
+			int skip = count / SKIP_INTERVAL;
+			if (skip == skipIds.length) {
+				skipIds = Arrays.copyOf(skipIds, skipIds.length * 2);
+				skipOffsets = Arrays.copyOf(skipOffsets, skipOffsets.length * 2);
+			}
+			skipIds[skip] = id;
+			skipOffsets[skip] = length;
+		}
+		last = id;
+		count++;
+	}
+
+	/**
+	 * Insert an ID smaller than the last one into the sorted array, compacting the list when it is large.
+	 * @param id the ID
+	 */
+	private void insert(long id) {
+		int position = Arrays.binarySearch(inserted, 0, insertedCount, id);
+		if (position >= 0) {
+			return;
+		}
+		position = -position - 1;
+		if (insertedCount == inserted.length) {
+			inserted = Arrays.copyOf(inserted, Math.max(8, inserted.length * 2));
+		}
+		System.arraycopy(inserted, position, inserted, position + 1, insertedCount - position);
+		inserted[position] = id;
+		insertedCount++;
+		if (insertedCount > Math.max(MIN_COMPACT_THRESHOLD, count >>> 6)) {
+			compact();
+		}
+	}
+
+	/**
+	 * Merge the out of order IDs into the compressed data.
+	 */
+	private void compact() {
+		long[] ids = new long[size()];
+		int merged = 0;
+		Cursor cursor = cursor();
+		for (long id = cursor.next(); id != END; id = cursor.next()) {
+			ids[merged++] = id;
+		}
+		data = new byte[Math.max(8, length + insertedCount * 2)];
+		length = 0;
+		count = 0;
+		last = 0;
+		inserted = NO_IDS;
+		insertedCount = 0;
+		for (int i = 0; i < merged; i++) {
+			append(ids[i]);
+		}
+	}
+
+	/**
+	 * Cursor over the IDs of the list, merging the compressed data and the out of order IDs.
+	 * It reads the list as it is when opened; the list must not change while it is used.
+	 */
+	final class Cursor {
+
+		/**
+		 * Next ID of the compressed data not returned yet, or END.
+		 */
+		private long dataId;
+
+		/**
+		 * Offset of the next delta to decode.
+		 */
+		private int offset;
+
+		/**
+		 * Number of IDs of the compressed data decoded so far.
+		 */
+		private int decoded;
+
+		/**
+		 * Position of the next out of order ID not returned yet.
+		 */
+		private int insertedIndex;
+
+		/**
+		 * Last ID returned, 0 before the first one.
+		 */
+		private long current;
+
+		private Cursor() {
+			dataId = decodeNext(0);
+		}
+
+		/**
+		 * Return the next ID.
+		 * @return the next ID, or END when there are no more
+		 */
+		long next() {
+			long insertedId = insertedIndex < insertedCount ? inserted[insertedIndex] : END;
+			long id = Math.min(dataId, insertedId);
+			current = id;
+			if (id == END) {
+				return END;
+			}
+			if (dataId == id) {
+				dataId = decodeNext(dataId);
+			}
+			if (insertedId == id) {
+				insertedIndex++;
+			}
+			return id;
+		}
+
+		/**
+		 * Skip to the first ID greater than or equal to the target and return it.
+		 * When the last returned ID already is, the cursor doesn't move and returns it again.
+		 * @param target the smallest ID to return
+		 * @return the ID, or END when there are no more
+		 */
+		long advance(long target) {
+			if (current >= target) {
+				return current;
+			}
+			if (dataId < target) {
+				skipTo(target);
+				while (dataId < target) {
+					dataId = decodeNext(dataId);
+				}
+			}
+			if (insertedIndex < insertedCount && inserted[insertedIndex] < target) {
+				int position = Arrays.binarySearch(inserted, insertedIndex, insertedCount, target);
+				insertedIndex = position >= 0 ? position : -position - 1;
+			}
+			return next();
+		}
+
+		/**
+		 * Jump to the last skip entry not after the target, if it is ahead of the cursor.
+		 * @param target the ID looked for
+		 */
+		private void skipTo(long target) {
+			int skips = (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+			int skip = Arrays.binarySearch(skipIds, 0, skips, target);
+			if (skip < 0) {
+				skip = -skip - 2;
+			}
+			if (skip >= 0 && skip * SKIP_INTERVAL >= decoded) {
+				dataId = skipIds[skip];
+				offset = skipOffsets[skip];
+				decoded = skip * SKIP_INTERVAL + 1;
+			}
+		}
+
+		/**
+		 * Decode the ID following the given one.
+		 * @param previous the previous ID, 0 before the first one
+		 * @return the next ID, or END after the last one
+		 */
+		private long decodeNext(long previous) {
+			if (decoded == count) {
+				return END;
+			}
+			long delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[offset++];
+				delta |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			decoded++;
+			return previous + delta;
+		}
+
+	}
+
+}
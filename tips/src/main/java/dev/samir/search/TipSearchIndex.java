@@ -0,0 +1,358 @@
+package dev.samir.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import dev.samir.tips.TipRepository;
+import dev.samir.tips.TipResponse;
+
+/**
+ * In-memory inverted index of the tip messages.
+ * Every term of a message maps to the compressed, sorted PostingList of the IDs of the tips holding it,
+ * so a search intersects a few posting lists instead of scanning the messages with "like '%term%'".
+ * <p>
+ * The index is updated as TipService inserts, updates and deletes tips. An update only adds the tip to
+ * the terms of its new message, since the old one isn't known, and a deleted tip is only marked as deleted:
+ * search results are candidates that the caller checks against the current message. Like the
+ * RandomTipIndex, the index is rebuilt from the database every "tips.search.reconcile-interval",
+ * which drops the stale entries and catches the changes made by other nodes.
+ */
+@Component
+public class TipSearchIndex {
+
+	/**
+	 * Logger of the TipSearchIndex.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TipSearchIndex.class);
+
+	/**
+	 * Repository used to load the messages when the index is (re)built.
+	 */
+	private TipRepository tipRepository;
+
+	/**
+	 * Read-only transaction keeping the connection open while the messages are streamed.
+	 */
+	private TransactionOperations readOnlyTransaction;
+
+	/**
+	 * Lock guarding the posting lists and the deleted tips.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Lock making sure only one rebuild runs at a time.
+	 */
+	private final ReentrantLock rebuildLock = new ReentrantLock();
+
+	/**
+	 * Posting list of every term.
+	 */
+	private Map<String, PostingList> postings = new HashMap<>();
+
+	/**
+	 * IDs of the tips deleted since the last rebuild. IDs beyond the range of an int are left to the caller's check.
+	 */
+	private BitSet deleted = new BitSet();
+
+	/**
+	 * Whether the index has been built at least once.
+	 */
+	private volatile boolean ready;
+
+	/**
+	 * Changes applied while a rebuild is loading the messages, replayed on top of the loaded index.
+	 * It is null when no rebuild is running.
+	 */
+	private List<Change> journal;
+
+	/**
+	 * Constructor for TipSearchIndex.
+	 * @param tipRepository the TipRepository instance
+	 * @param transactionManager the transaction manager used to stream the messages
+	 */
+	@Autowired
+	public TipSearchIndex(TipRepository tipRepository, PlatformTransactionManager transactionManager) {
+		this(tipRepository, readOnly(new TransactionTemplate(transactionManager)));
+	}
+
+	/**
+	 * Constructor for TipSearchIndex receiving the transaction to stream the messages in.
+	 * @param tipRepository the TipRepository instance
+	 * @param readOnlyTransaction the read-only transaction
+	 */
+	TipSearchIndex(TipRepository tipRepository, TransactionOperations readOnlyTransaction) {
+		this.tipRepository = tipRepository;
+		this.readOnlyTransaction = readOnlyTransaction;
+	}
+
+	/**
+	 * Mark a transaction template as read-only.
+	 * @param template the transaction template
+	 * @return the same template
+	 */
+	private static TransactionTemplate readOnly(TransactionTemplate template) {
+		template.setReadOnly(true);
+		return template;
+	}
+
+	/**
+	 * Builds the index once the application is ready to serve requests.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Periodically rebuilds the index, dropping the stale entries of updated and deleted tips.
+	 */
+	@Scheduled(initialDelayString = "${tips.search.reconcile-interval:PT10M}",
+			fixedDelayString = "${tips.search.reconcile-interval:PT10M}")
+	public void reconcile() {
+		rebuild();
+	}
+
+	/**
+	 * Rebuilds the index from the messages stored in the database.
+	 * The messages are streamed outside of the lock, so searches keep being served
+	 * from the previous index while the new one is built.
+	 */
+	public void rebuild() {
+		rebuildLock.lock();
+		try {
+			lock.writeLock().lock();
+			try {
+				journal = new ArrayList<>();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			swap(readOnlyTransaction.execute(status -> load()));
+		} finally {
+			lock.writeLock().lock();
+			try {
+				journal = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			rebuildLock.unlock();
+		}
+	}
+
+	/**
+	 * Streams every tip from the database, in ID order, into new posting lists.
+	 * @return the posting list of every term
+	 */
+	private Map<String, PostingList> load() {
+		Map<String, PostingList> loaded = new HashMap<>();
+		try (Stream<TipResponse> stream = tipRepository.streamAllResponses()) {
+			for (TipResponse tip : (Iterable<TipResponse>) stream::iterator) {
+				index(loaded, tip.id(), tip.message());
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Replaces the current index with the loaded one and replays the changes journaled while it was loading.
+	 * @param loaded the posting lists loaded from the database
+	 */
+	private void swap(Map<String, PostingList> loaded) {
+		lock.writeLock().lock();
+		try {
+			postings = loaded;
+			deleted = new BitSet();
+			for (Change change : journal) {
+				if (change.message() != null) {
+					index(postings, change.id(), change.message());
+				} else {
+					markDeleted(change.id());
+				}
+			}
+			ready = true;
+			LOGGER.debug("Search index rebuilt with {} terms", postings.size());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Index the message of an inserted or updated tip.
+	 * @param id the tip ID
+	 * @param message the current message of the tip
+	 */
+	public void add(long id, String message) {
+		lock.writeLock().lock();
+		try {
+			index(postings, id, message);
+			if (id <= Integer.MAX_VALUE) {
+				deleted.clear((int) id);
+			}
+			if (journal != null) {
+				journal.add(new Change(id, message));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Mark a deleted tip, so searches skip it.
+	 * @param id the tip ID
+	 */
+	public void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			markDeleted(id);
+			if (journal != null) {
+				journal.add(new Change(id, null));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the IDs of the tips holding every term, in ascending order.
+	 * The tips may have been updated since and not hold the terms anymore, so the caller checks them.
+	 * @param terms the terms, as returned by the Tokenizer
+	 * @param afterId only IDs greater than this one are returned
+	 * @param limit the most IDs to return
+	 * @return the IDs of the matching tips
+	 */
+	public long[] search(List<String> terms, long afterId, int limit) {
+		if (terms.isEmpty() || limit <= 0) {
+			return new long[0];
+		}
+		lock.readLock().lock();
+		try {
+			List<PostingList> lists = new ArrayList<>(terms.size());
+			for (String term : terms) {
+				PostingList list = postings.get(term);
+				if (list == null) {
+					return new long[0];
+				}
+				lists.add(list);
+			}
+			lists.sort(Comparator.comparingInt(PostingList::size));
+			PostingList.Cursor[] cursors = new PostingList.Cursor[lists.size()];
+			for (int i = 0; i < cursors.length; i++) {
+				cursors[i] = lists.get(i).cursor();
+			}
+			return intersect(cursors, afterId, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Intersect the cursors, leading with the first one, which is the shortest.
+	 * Must be called holding the read lock.
+	 * @param cursors the cursors of the posting lists
+	 * @param afterId only IDs greater than this one are returned
+	 * @param limit the most IDs to return
+	 * @return the IDs found in every cursor and not deleted
+	 */
+	private long[] intersect(PostingList.Cursor[] cursors, long afterId, int limit) {
+		long[] found = new long[Math.min(limit, 64)];
+		int count = 0;
+		long candidate = cursors[0].advance(afterId + 1);
+		while (candidate != PostingList.END && count < limit) {
+			long next = candidate;
+			for (int i = 1; i < cursors.length && next == candidate; i++) {
+				next = cursors[i].advance(candidate);
+			}
+			if (next == candidate) {
+				if (!isDeleted(candidate)) {
+					if (count == found.length) {
+						found = Arrays.copyOf(found, Math.min(limit, found.length * 2));
+					}
+					found[count++] = candidate;
+				}
+				candidate = cursors[0].next();
+			} else {
+				candidate = next == PostingList.END ? PostingList.END : cursors[0].advance(next);
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Whether the index has been built and can serve searches.
+	 * @return true if the index is ready
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Number of distinct terms in the index.
+	 * @return the number of terms
+	 */
+	public int terms() {
+		lock.readLock().lock();
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add a tip to the posting lists of the terms of its message.
+	 * @param target the posting lists
+	 * @param id the tip ID
+	 * @param message the message
+	 */
+	private static void index(Map<String, PostingList> target, long id, String message) {
+		for (String term : Tokenizer.terms(message)) {
+			target.computeIfAbsent(term, key -> new PostingList()).add(id);
+		}
+	}
+
+	/**
+	 * Mark a tip as deleted. Must be called holding the write lock.
+	 * @param id the tip ID
+	 */
+	private void markDeleted(long id) {
+		if (id > 0 && id <= Integer.MAX_VALUE) {
+			deleted.set((int) id);
+		}
+	}
+
+	/**
+	 * Whether a tip was deleted since the last rebuild. Must be called holding the read lock.
+	 * @param id the tip ID
+	 * @return true if the tip was deleted
+	 */
+	private boolean isDeleted(long id) {
+		return id <= Integer.MAX_VALUE && deleted.get((int) id);
+	}
+
+	/**
+	 * A change applied to the index while a rebuild was running.
+	 * @param id the tip ID
+	 * @param message the new message of the tip, or null if it was deleted
+	 */
+	private record Change(long id, String message) {}
+
+}
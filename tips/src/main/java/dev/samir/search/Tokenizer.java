@@ -0,0 +1,63 @@
+package dev.samir.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into the terms of the search index.
+ * A term is a run of letters and digits, lower-cased; everything else separates terms.
+ * Terms longer than {@value #MAX_TERM_LENGTH} characters are cut, so a long token can't bloat the index.
+ */
+public final class Tokenizer {
+
+	/**
+	 * Most characters kept of a term.
+	 */
+	static final int MAX_TERM_LENGTH = 64;
+
+	private Tokenizer() {
+	}
+
+	/**
+	 * The distinct terms of a text, in the order they first appear.
+	 * @param text the text, may be null
+	 * @return the terms, empty if the text has none
+	 */
+	public static List<String> terms(String text) {
+		if (text == null) {
+			return List.of();
+		}
+		Set<String> terms = new LinkedHashSet<>();
+		StringBuilder term = new StringBuilder();
+		for (int i = 0; i < text.length(); ) {
+			int codePoint = text.codePointAt(i);
+			i += Character.charCount(codePoint);
+			if (Character.isLetterOrDigit(codePoint)) {
+				if (term.length() < MAX_TERM_LENGTH) {
+					term.appendCodePoint(Character.toLowerCase(codePoint));
+				}
+			} else if (!term.isEmpty()) {
+				terms.add(term.toString());
+				term.setLength(0);
+			}
+		}
+		if (!term.isEmpty()) {
+			terms.add(term.toString());
+		}
+		return new ArrayList<>(terms);
+	}
+
+	/**
+	 * Whether a text has every given term.
+	 * @param text the text, may be null
+	 * @param terms the terms to look for
+	 * @return true if the text has all the terms
+	 */
+	public static boolean containsAll(String text, Collection<String> terms) {
+		return terms(text).containsAll(terms);
+	}
+
+}
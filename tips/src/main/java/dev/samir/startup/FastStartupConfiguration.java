@@ -0,0 +1,52 @@
+package dev.samir.startup;
+
+import org.springframework.boot.actuate.data.redis.RedisHealthIndicator;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * Configuration of the startup shortcuts, all off by default and turned on by the "fast-startup" profile.
+ * "tips.startup.lazy-redis" creates the Redis beans on their first use and "tips.startup.liquibase-precheck"
+ * skips Liquibase when the changelog hasn't changed. Both post-processors are static beans,
+ * so they are registered before the other beans are created.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FastStartupConfiguration {
+
+	/**
+	 * Post-processor making the Redis beans lazy.
+	 * @return the post-processor
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "tips.startup.lazy-redis")
+	static LazyRedisPostProcessor lazyRedisPostProcessor() {
+		return new LazyRedisPostProcessor();
+	}
+
+	/**
+	 * Health of Redis, connecting on the first health check instead of during the startup.
+	 * It replaces the Redis health contributor of Spring Boot, which takes the connection factory itself.
+	 * @param connectionFactory the Redis connection factory, resolved on the first check
+	 * @return the Redis health indicator
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "tips.startup.lazy-redis")
+	HealthIndicator redisHealthContributor(@Lazy RedisConnectionFactory connectionFactory) {
+		return new RedisHealthIndicator(connectionFactory);
+	}
+
+	/**
+	 * Post-processor skipping Liquibase when the changelog is unchanged.
+	 * @return the post-processor
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "tips.startup.liquibase-precheck")
+	static LiquibasePrecheck liquibasePrecheck() {
+		return new LiquibasePrecheck();
+	}
+
+}
@@ -0,0 +1,48 @@
+package dev.samir.startup;
+
+import java.util.List;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Marks the beans of the Redis path lazy, so they are created by their first use instead of during the startup.
+ * No Redis bean is needed to serve the tips: the caches, the eviction subscriber and the draft metrics
+ * reach Redis through lazy injection points, and the drafts are only created by the first draft request.
+ * The beans are recognized by the package of their type or of their class, for the factory beans:
+ * Spring Data Redis, Lettuce, the Redis auto-configuration of Spring Boot and the drafts.
+ */
+class LazyRedisPostProcessor implements BeanFactoryPostProcessor {
+
+	/**
+	 * Packages of the types of the lazy beans.
+	 */
+	private static final List<String> LAZY_PACKAGES = List.of(
+		"org.springframework.data.redis.",
+		"org.springframework.boot.autoconfigure.data.redis.",
+		"io.lettuce.",
+		"dev.samir.draft.");
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		for (String name : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition definition = beanFactory.getBeanDefinition(name);
+			Class<?> type = beanFactory.getType(name, false);
+			if (isRedis(type == null ? null : type.getName()) || isRedis(definition.getBeanClassName())) {
+				definition.setLazyInit(true);
+			}
+		}
+	}
+
+	/**
+	 * Whether a class belongs to the Redis path.
+	 * @param className the name of the class, or null
+	 * @return true if the beans of the class are made lazy
+	 */
+	static boolean isRedis(String className) {
+		return className != null && LAZY_PACKAGES.stream().anyMatch(className::startsWith);
+	}
+
+}
@@ -0,0 +1,211 @@
+package dev.samir.startup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Skips the Liquibase update when the changelog hasn't changed since the last update of the database.
+ * Checking the changesets against the DATABASECHANGELOG table takes seconds even when there is nothing to run,
+ * so before Liquibase starts the checksum of the changelog, the files it includes, the contexts and labels is compared with the one
+ * stored in the "tb03_schema_checksum" table by the last update. When they match Liquibase doesn't run;
+ * otherwise it runs as usual and the new checksum is stored.
+ * The check trusts the stored checksum: a schema changed by hand isn't noticed, clear the row to force an update.
+ */
+class LiquibasePrecheck implements BeanPostProcessor {
+
+	/**
+	 * Logger of the LiquibasePrecheck.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(LiquibasePrecheck.class);
+
+	/**
+	 * Query reading the stored checksum.
+	 */
+	private static final String READ = "select checksum_value from tb03_schema_checksum where checksum_id = 1";
+
+	/**
+	 * Statement storing the checksum after an update.
+	 */
+	private static final String STORE = "update tb03_schema_checksum set checksum_value = ? where checksum_id = 1";
+
+	/**
+	 * Checksum of the changelog to store once Liquibase has updated the database, or null if it was skipped.
+	 */
+	private String pending;
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof SpringLiquibase liquibase) {
+			String checksum = checksum(liquibase);
+			if (checksum.equals(storedChecksum(liquibase.getDataSource()))) {
+				LOGGER.info("Schema checksum {} unchanged, skipping Liquibase", checksum);
+				liquibase.setShouldRun(false);
+			} else {
+				pending = checksum;
+			}
+		}
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof SpringLiquibase liquibase && pending != null) {
+			new JdbcTemplate(liquibase.getDataSource()).update(STORE, pending);
+			LOGGER.info("Schema checksum {} stored", pending);
+			pending = null;
+		}
+		return bean;
+	}
+
+	/**
+	 * Read the checksum stored by the last update.
+	 * @param dataSource the database updated by Liquibase
+	 * @return the checksum, or null if there is none yet
+	 */
+	private static String storedChecksum(DataSource dataSource) {
+		try {
+			return new JdbcTemplate(dataSource).queryForList(READ, String.class).stream().findFirst().orElse(null);
+		} catch (DataAccessException e) {
+			// The table is created by the first update
+			return null;
+		}
+	}
+
+	/**
+	 * Compute the SHA-256 checksum of the changelog and of the files it includes, with the contexts and labels of the update.
+	 * The files are hashed with their path relative to the directory of the changelog, in the order of these paths,
+	 * so the checksum doesn't depend on where they are loaded from and other files of the directory don't change it.
+	 * @param liquibase the Liquibase bean
+	 * @return the checksum in hexadecimal
+	 */
+	static String checksum(SpringLiquibase liquibase) {
+		String changeLog = liquibase.getChangeLog();
+		String directory = changeLog.substring(0, changeLog.lastIndexOf('/') + 1);
+		ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(
+				Objects.requireNonNullElseGet(liquibase.getResourceLoader(), DefaultResourceLoader::new));
+		try {
+			Map<String, byte[]> files = new TreeMap<>();
+			read(resolver, changeLog, directory, files);
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (Map.Entry<String, byte[]> file : files.entrySet()) {
+				digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				digest.update(file.getValue());
+			}
+			digest.update((liquibase.getContexts() + "|" + liquibase.getLabelFilter()).getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Can't read the changelog " + changeLog, e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Read a changelog file and, for an XML changelog, the files of its "include" and "includeAll" elements.
+	 * @param resolver the resolver of the changelog files
+	 * @param location the location of the file
+	 * @param directory the directory of the master changelog
+	 * @param files the files read so far, by their path relative to the directory
+	 * @throws IOException if a file can't be read
+	 */
+	private static void read(ResourcePatternResolver resolver, String location, String directory, Map<String, byte[]> files) throws IOException {
+		String path = location.startsWith(directory) ? location.substring(directory.length()) : location;
+		if (files.containsKey(path)) {
+			return;
+		}
+		byte[] content;
+		try (InputStream in = resolver.getResource(location).getInputStream()) {
+			content = in.readAllBytes();
+		}
+		files.put(path, content);
+		if (!location.endsWith(".xml")) {
+			return;
+		}
+		String parent = location.substring(0, location.lastIndexOf('/') + 1);
+		NodeList elements = parse(content, location).getElementsByTagNameNS("*", "*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			boolean relative = Boolean.parseBoolean(element.getAttribute("relativeToChangelogFile"));
+			if ("include".equals(element.getLocalName())) {
+				read(resolver, resolve(parent, element.getAttribute("file"), relative), directory, files);
+			} else if ("includeAll".equals(element.getLocalName())) {
+				String base = resolve(parent, element.getAttribute("path"), relative);
+				base = base.endsWith("/") ? base : base + "/";
+				String baseUrl = resolver.getResource(base).getURL().toString();
+				for (Resource resource : resolver.getResources(base + "**/*")) {
+					String url = resource.getURL().toString();
+					if (resource.isReadable() && url.startsWith(baseUrl)) {
+						read(resolver, base + url.substring(baseUrl.length()), directory, files);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Location of a file included by a changelog.
+	 * @param parent the directory of the including changelog
+	 * @param file the path of the included file
+	 * @param relative whether the path is relative to the including changelog, otherwise to the classpath
+	 * @return the location of the file
+	 */
+	private static String resolve(String parent, String file, boolean relative) {
+		if (relative) {
+			return StringUtils.cleanPath(parent + file);
+		}
+		return ResourceLoader.CLASSPATH_URL_PREFIX + StringUtils.cleanPath(file.startsWith("/") ? file : "/" + file);
+	}
+
+	/**
+	 * Parse an XML changelog.
+	 * @param content the changelog
+	 * @param location the location of the changelog, for the error message
+	 * @return the document
+	 * @throws IOException if the changelog isn't valid XML
+	 */
+	private static Document parse(byte[] content, String location) throws IOException {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			return factory.newDocumentBuilder().parse(new ByteArrayInputStream(content));
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException("Invalid changelog " + location, e);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package dev.samir.tips;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A tip encoded once as its JSON response body, with a strong ETag derived from the body.
+ * The body is shared by every response serving the tip and must never be modified.
+ * @param id the tip ID
+ * @param body the UTF-8 JSON body, exactly as written for a TipResponse
+ * @param etag the quoted strong ETag of the body
+ */
+public record EncodedTip(long id, byte[] body, String etag) {
+
+	/**
+	 * Number of bytes of the SHA-256 digest of the body kept in the ETag.
+	 */
+	private static final int ETAG_BYTES = 16;
+
+	/**
+	 * Encode a tip.
+	 * @param tip the tip to encode
+	 * @return the encoded tip
+	 */
+	public static EncodedTip of(TipResponse tip) {
+		byte[] body = TipResponseHttpMessageConverter.encode(tip);
+		return new EncodedTip(tip.id(), body, etag(body));
+	}
+
+	/**
+	 * Derive a strong ETag from the body, so equal bodies always get the same ETag.
+	 * @param body the response body
+	 * @return the quoted ETag
+	 */
+	private static String etag(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			return "\"" + HexFormat.of().formatHex(digest, 0, ETAG_BYTES) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+}
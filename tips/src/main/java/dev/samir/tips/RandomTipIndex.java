@@ -0,0 +1,434 @@
+package dev.samir.tips;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory dense index of the live tip identifiers.
+ * The identifiers are kept in a primitive array so that drawing a random tip
+ * costs a single array access instead of sorting the whole table with "order by random()".
+ * Inserts append to the end of the array and deletes swap the last identifier into the
+ * freed slot, so both operations run in constant time.
+ */
+@Component
+public class RandomTipIndex {
+
+	/**
+	 * Logger of the RandomTipIndex.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RandomTipIndex.class);
+
+	/**
+	 * Initial capacity of the identifier array.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Repository used to load the identifiers when the index is (re)built.
+	 */
+	private TipRepository tipRepository;
+
+	/**
+	 * Read-only transaction keeping the connection open while the identifiers are streamed.
+	 */
+	private TransactionOperations readOnlyTransaction;
+
+	/**
+	 * Lock guarding the identifier array, its size and the position table.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Lock making sure only one rebuild runs at a time.
+	 */
+	private final ReentrantLock rebuildLock = new ReentrantLock();
+
+	/**
+	 * Dense array of live tip identifiers. Only the first {@link #size} slots are used.
+	 */
+	private long[] ids = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Number of identifiers currently in the index.
+	 */
+	private int size;
+
+	/**
+	 * Position of each identifier inside {@link #ids}, required by the swap-remove.
+	 */
+	private Positions positions = new Positions(INITIAL_CAPACITY);
+
+	/**
+	 * Whether the index has been built at least once.
+	 * Until then the index can't be trusted to be complete.
+	 */
+	private volatile boolean ready;
+
+	/**
+	 * Changes applied while a rebuild is loading identifiers from the database.
+	 * They are replayed on top of the loaded snapshot, so nothing is lost during the swap.
+	 * It is null when no rebuild is running.
+	 */
+	private List<Change> journal;
+
+	/**
+	 * Constructor for RandomTipIndex.
+	 * @param tipRepository the TipRepository instance
+	 * @param transactionManager the transaction manager used to stream the identifiers
+	 */
+	@Autowired
+	public RandomTipIndex(TipRepository tipRepository, PlatformTransactionManager transactionManager) {
+		this(tipRepository, readOnly(new TransactionTemplate(transactionManager)));
+	}
+
+	/**
+	 * Constructor for RandomTipIndex receiving the transaction to stream the identifiers in.
+	 * @param tipRepository the TipRepository instance
+	 * @param readOnlyTransaction the read-only transaction
+	 */
+	RandomTipIndex(TipRepository tipRepository, TransactionOperations readOnlyTransaction) {
+		this.tipRepository = tipRepository;
+		this.readOnlyTransaction = readOnlyTransaction;
+	}
+
+	/**
+	 * Mark a transaction template as read-only.
+	 * @param template the transaction template
+	 * @return the same template
+	 */
+	private static TransactionTemplate readOnly(TransactionTemplate template) {
+		template.setReadOnly(true);
+		return template;
+	}
+
+	/**
+	 * Builds the index once the application is ready to serve requests.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Periodically reconciles the index with the database.
+	 * This catches drift caused by changes that didn't go through this instance,
+	 * like other application nodes or manual SQL.
+	 */
+	@Scheduled(initialDelayString = "${tips.random-index.reconcile-interval:PT5M}",
+			fixedDelayString = "${tips.random-index.reconcile-interval:PT5M}")
+	public void reconcile() {
+		rebuild();
+	}
+
+	/**
+	 * Rebuilds the index from the identifiers stored in the database.
+	 * The identifiers are streamed outside of the lock, so draws keep being served
+	 * from the previous snapshot while the new one is loaded.
+	 */
+	public void rebuild() {
+		rebuildLock.lock();
+		try {
+			lock.writeLock().lock();
+			try {
+				journal = new ArrayList<>();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			swap(readOnlyTransaction.execute(status -> load()));
+		} finally {
+			lock.writeLock().lock();
+			try {
+				journal = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			rebuildLock.unlock();
+		}
+	}
+
+	/**
+	 * Streams every tip identifier from the database into a new array.
+	 * @return the loaded identifiers, trimmed to their count
+	 */
+	private long[] load() {
+		long[] loaded = new long[Math.max(INITIAL_CAPACITY, size())];
+		int count = 0;
+		try (Stream<Long> stream = tipRepository.streamAllIds()) {
+			for (Long id : (Iterable<Long>) stream::iterator) {
+				if (count == loaded.length) {
+					loaded = grow(loaded);
+				}
+				loaded[count++] = id;
+			}
+		}
+		return Arrays.copyOf(loaded, count);
+	}
+
+	/**
+	 * Replaces the current snapshot with the loaded one and replays the changes
+	 * journaled while it was loading.
+	 * @param loaded the identifiers loaded from the database
+	 */
+	private void swap(long[] loaded) {
+		Positions loadedPositions = new Positions(loaded.length);
+		for (int i = 0; i < loaded.length; i++) {
+			loadedPositions.put(loaded[i], i);
+		}
+
+		lock.writeLock().lock();
+		try {
+			int drift = loaded.length - size;
+			ids = loaded;
+			size = loaded.length;
+			positions = loadedPositions;
+			for (Change change : journal) {
+				if (change.added()) {
+					append(change.id());
+				} else {
+					swapRemove(change.id());
+				}
+			}
+			ready = true;
+			LOGGER.debug("Random tip index rebuilt with {} tips (drift {})", size, drift);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Draws a random tip identifier from the index.
+	 * @return a random tip identifier, or empty if the index has no tips
+	 */
+	public OptionalLong draw() {
+		lock.readLock().lock();
+		try {
+			if (size == 0) {
+				return OptionalLong.empty();
+			}
+			return OptionalLong.of(ids[ThreadLocalRandom.current().nextInt(size)]);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a tip identifier to the index. Adding an identifier twice has no effect.
+	 * @param id the identifier of the inserted tip
+	 */
+	public void add(long id) {
+		lock.writeLock().lock();
+		try {
+			append(id);
+			if (journal != null) {
+				journal.add(new Change(id, true));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a tip identifier from the index. Removing an unknown identifier has no effect.
+	 * @param id the identifier of the deleted tip
+	 */
+	public void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			swapRemove(id);
+			if (journal != null) {
+				journal.add(new Change(id, false));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Whether the index has been built and can be used to draw tips.
+	 * @return true if the index is ready
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Number of tips currently in the index.
+	 * @return the number of tips
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Appends an identifier to the end of the array. Must be called holding the write lock.
+	 * @param id the identifier to append
+	 */
+	private void append(long id) {
+		if (positions.get(id) >= 0) {
+			return;
+		}
+		if (size == ids.length) {
+			ids = grow(ids);
+		}
+		ids[size] = id;
+		positions.put(id, size);
+		size++;
+	}
+
+	/**
+	 * Moves the last identifier into the slot of the removed one. Must be called holding the write lock.
+	 * @param id the identifier to remove
+	 */
+	private void swapRemove(long id) {
+		int position = positions.get(id);
+		if (position < 0) {
+			return;
+		}
+		int last = --size;
+		if (position != last) {
+			long moved = ids[last];
+			ids[position] = moved;
+			positions.put(moved, position);
+		}
+		positions.remove(id);
+	}
+
+	/**
+	 * Doubles the length of an identifier array.
+	 * @param array the array to grow
+	 * @return a copy of the array with twice the length
+	 */
+	private static long[] grow(long[] array) {
+		return Arrays.copyOf(array, Math.max(INITIAL_CAPACITY, array.length * 2));
+	}
+
+	/**
+	 * A change applied to the index while a rebuild was running.
+	 * @param id the tip identifier
+	 * @param added true if the identifier was added, false if it was removed
+	 */
+	private record Change(long id, boolean added) {}
+
+	/**
+	 * Open addressing hash table from tip identifier to array position.
+	 * It uses linear probing with backward shift deletion and stores primitives only,
+	 * so it doesn't allocate a boxed entry per tip. Identifiers must be positive,
+	 * since zero marks an empty slot.
+	 */
+	private static final class Positions {
+
+		/**
+		 * Marker for an empty slot.
+		 */
+		private static final long EMPTY = 0L;
+
+		private long[] keys;
+
+		private int[] values;
+
+		private int mask;
+
+		private int count;
+
+		Positions(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+			keys = new long[capacity];
+			values = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		int get(long key) {
+			for (int slot = slot(key);; slot = (slot + 1) & mask) {
+				long current = keys[slot];
+				if (current == EMPTY) {
+					return -1;
+				}
+				if (current == key) {
+					return values[slot];
+				}
+			}
+		}
+
+		void put(long key, int value) {
+			if (key <= EMPTY) {
+				throw new IllegalArgumentException("Tip identifiers must be positive: " + key);
+			}
+			int slot = slot(key);
+			while (keys[slot] != EMPTY && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if (keys[slot] == EMPTY) {
+				keys[slot] = key;
+				if (++count * 2 > keys.length) {
+					values[slot] = value;
+					resize();
+					return;
+				}
+			}
+			values[slot] = value;
+		}
+
+		void remove(long key) {
+			int gap = slot(key);
+			while (keys[gap] != key) {
+				if (keys[gap] == EMPTY) {
+					return;
+				}
+				gap = (gap + 1) & mask;
+			}
+			for (int slot = (gap + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+				int home = slot(keys[slot]);
+				boolean between = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+				if (!between) {
+					keys[gap] = keys[slot];
+					values[gap] = values[slot];
+					gap = slot;
+				}
+			}
+			keys[gap] = EMPTY;
+			count--;
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldValues.length * 2];
+			mask = keys.length - 1;
+			count = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		private int slot(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		}
+
+	}
+
+}
@@ -0,0 +1,10 @@
+package dev.samir.tips;
+
+import java.util.List;
+
+/**
+ * Tips removed by the delete of a session.
+ * @param ids the IDs of the tips of the session locked before the delete, the ones to evict
+ * @param deleted the number of rows deleted, more than the IDs if a tip was added to the session in the meantime
+ */
+public record SessionDelete(List<Long> ids, int deleted) {}
@@ -0,0 +1,9 @@
+package dev.samir.tips;
+
+/**
+ * IDs of the tips of a session, as cached in the "tip-sessions" cache.
+ * Only the IDs are cached, the tips themselves are read from the "tips" cache,
+ * so updating a tip doesn't need to know its session.
+ * @param ids the tip IDs ordered by ID, or null if the session has too many tips to be cached
+ */
+public record SessionTipIds(long[] ids) {}
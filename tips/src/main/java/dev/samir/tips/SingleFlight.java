@@ -0,0 +1,108 @@
+package dev.samir.tips;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalescing of concurrent identical reads, also known as single-flight.
+ * The first caller for a key runs the load and publishes its result in a CompletableFuture;
+ * callers arriving while it runs wait for that future instead of running the load again.
+ * The future is dropped as soon as the load completes, so nothing is cached here:
+ * a caller arriving after the load completed runs a new one.
+ * <p>
+ * A load failure is thrown to every caller waiting for it.
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+
+	/**
+	 * Loads currently running, by key.
+	 */
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of loads run.
+	 */
+	private final LongAdder executed = new LongAdder();
+
+	/**
+	 * Number of calls that waited for the load of another caller.
+	 */
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Run the load of a key, or wait for the one already running.
+	 * @param key the key of the load
+	 * @param loader the load, run by the first caller only
+	 * @return the loaded value
+	 */
+	public V execute(K key, Supplier<V> loader) {
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, created);
+		if (running != null) {
+			coalesced.increment();
+			return join(running);
+		}
+		executed.increment();
+		try {
+			V value = loader.get();
+			created.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			created.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, created);
+		}
+	}
+
+	/**
+	 * Stop sharing the running load of a key, after the data it reads changed.
+	 * The callers already waiting still get its result, but the next ones run a new load.
+	 * @param key the key of the load
+	 */
+	public void forget(K key) {
+		inFlight.remove(key);
+	}
+
+	/**
+	 * Number of loads run.
+	 * @return the number of loads
+	 */
+	public long getExecuted() {
+		return executed.sum();
+	}
+
+	/**
+	 * Number of calls that waited for the load of another caller instead of running their own.
+	 * @return the number of coalesced calls
+	 */
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * Wait for a load of another caller, and throw its failure as is.
+	 * @param running the running load
+	 * @return the loaded value
+	 */
+	private static <V> V join(CompletableFuture<V> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+}
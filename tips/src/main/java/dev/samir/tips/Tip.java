@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 /**
@@ -18,11 +19,13 @@ public class Tip {
 
 	/**
 	 * Unique identifier for the tip.
-	 * This field is auto-generated by the database.
+	 * This field is generated from the "tb01_tips_seq" sequence, in blocks of 50 IDs,
+	 * so new tips don't need a round trip each and their inserts can be batched.
 	 */
 	@Id
 	@Column(name = "tip_id")
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb01_tips_seq")
+	@SequenceGenerator(name = "tb01_tips_seq", sequenceName = "tb01_tips_seq", allocationSize = 50)
 	private Long id;
 	
 	/**
@@ -80,5 +83,9 @@ public class Tip {
 	public void setMessage(String message) {
 		this.message = message;
 	}
+
+	public String getUuid() {
+		return uuid;
+	}
 	
 }
@@ -0,0 +1,104 @@
+package dev.samir.tips;
+
+import java.util.Collection;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import dev.samir.cache.TieredCache;
+import dev.samir.search.TipSearchIndex;
+
+/**
+ * Applies the inserts, updates and deletes of the tips to the in-memory indexes and to the caches.
+ * The TipService and the ReactiveTipService both go through it, so the random tip index, the search index
+ * and the cached tips and sessions follow the database the same way whichever stack changed it.
+ */
+@Component
+public class TipChanges {
+
+	/**
+	 * In-memory index of the tip identifiers used to draw random tips.
+	 */
+	private RandomTipIndex randomTipIndex;
+
+	/**
+	 * In-memory inverted index of the tip messages used to search tips.
+	 */
+	private TipSearchIndex searchIndex;
+
+	/**
+	 * Cache manager of the caches evicted when tips change.
+	 */
+	private CacheManager cacheManager;
+
+	/**
+	 * Constructor for TipChanges.
+	 * @param randomTipIndex the RandomTipIndex instance
+	 * @param searchIndex the TipSearchIndex instance
+	 * @param cacheManager the CacheManager instance
+	 */
+	public TipChanges(RandomTipIndex randomTipIndex, TipSearchIndex searchIndex, CacheManager cacheManager) {
+		this.randomTipIndex = randomTipIndex;
+		this.searchIndex = searchIndex;
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * Add an inserted tip to the random tip and search indexes.
+	 * @param id the ID of the tip
+	 * @param message the message of the tip
+	 */
+	void inserted(Long id, String message) {
+		randomTipIndex.add(id);
+		searchIndex.add(id, message);
+	}
+
+	/**
+	 * Index the new message of an updated tip.
+	 * @param id the ID of the tip
+	 * @param message the new message of the tip
+	 */
+	void updated(Long id, String message) {
+		searchIndex.add(id, message);
+	}
+
+	/**
+	 * Remove deleted tips from the random tip and search indexes.
+	 * @param ids the IDs of the deleted tips
+	 */
+	void deleted(Collection<Long> ids) {
+		for (Long id : ids) {
+			randomTipIndex.remove(id);
+			searchIndex.remove(id);
+		}
+	}
+
+	/**
+	 * Evict changed tips and sessions from the caches, with a single Redis delete and eviction message per TieredCache.
+	 * @param ids the IDs of the tips
+	 * @param sessions the session identifiers
+	 */
+	void evict(Collection<Long> ids, Collection<String> sessions) {
+		evictAll(cacheManager.getCache(TipService.TIPS_CACHE), ids);
+		evictAll(cacheManager.getCache(TipService.TIP_BODIES_CACHE), ids);
+		evictAll(cacheManager.getCache(TipService.TIP_SESSIONS_CACHE), sessions);
+	}
+
+	/**
+	 * Evict many keys from a cache, with a single Redis delete and eviction message for a TieredCache.
+	 * @param cache the cache
+	 * @param keys the keys to evict
+	 */
+	private static void evictAll(Cache cache, Collection<?> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		if (cache instanceof TieredCache tiered) {
+			tiered.evictAll(keys);
+		} else {
+			keys.forEach(cache::evict);
+		}
+	}
+
+}
@@ -1,7 +1,18 @@
 package dev.samir.tips;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.OptionalLong;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,23 +20,62 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 
 import dev.samir.draft.Draft;
+import dev.samir.draft.DraftResult;
 import dev.samir.draft.DraftService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 
 /**
  * Controller class for handling requests related to tips.
  * This class is responsible for processing incoming HTTP requests
  * and returning the appropriate responses.	
+ * It serves the Spring MVC application; the reactive profile is served by the ReactiveTipController.
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping("/api")
 public class TipController {
 
+	/**
+	 * Maximum number of tips in a page.
+	 */
+	static final int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * Maximum number of tips in a bulk update.
+	 */
+	static final int MAX_BULK_UPDATE = 10_000;
+
+	/**
+	 * Maximum number of tips in a bulk delete.
+	 */
+	static final int MAX_BULK_DELETE = 10_000;
+
+	/**
+	 * Maximum number of tips in a page of search results.
+	 */
+	static final int MAX_SEARCH_SIZE = 100;
+
 	/**
 	 * Service class for managing tips.
 	 * This class is used to interact with the database and perform
@@ -40,55 +90,201 @@ public class TipController {
 	 */
 	private DraftService draftService;
 	
+	/**
+	 * Service class for the bulk ingestion of tips.
+	 */
+	private TipIngestService tipIngestService;
+	
+	/**
+	 * Object mapper used to write the streamed tips.
+	 */
+	private ObjectMapper objectMapper;
+	
+	/**
+	 * Holder of the tip of the moment.
+	 */
+	private TipOfTheMoment tipOfTheMoment;
+	
 	/**
 	 * Constructor for TipController.
 	 * @param tipService
+	 * @param draftService the DraftService, resolved on the first draft request
+	 * @param tipIngestService
+	 * @param objectMapper
+	 * @param tipOfTheMoment
 	 */
-	public TipController(TipService tipService) {
+	public TipController(TipService tipService, @Lazy DraftService draftService, TipIngestService tipIngestService, ObjectMapper objectMapper,
+			TipOfTheMoment tipOfTheMoment) {
 		this.tipService = tipService;
+		this.draftService = draftService;
+		this.tipIngestService = tipIngestService;
+		this.objectMapper = objectMapper;
+		this.tipOfTheMoment = tipOfTheMoment;
 	}
 	
 	/**
 	 * Endpoint to get a random tip.
 	 * This method handles GET requests to the "/tip/random" URL.
-	 * @return a random Tip object from the database.
+	 * In mode "random" a new tip is drawn for every request. In mode "current" the tip of
+	 * the moment published by the scheduled job is returned. Both serve the cached response
+	 * body of the tip, so they don't touch the database once the tip is cached. Until the
+	 * random tip index is built, or when the drawn tip was deleted, a tip is drawn from the database.
+	 * @param mode "random" or "current"
+	 * @return a random Tip object from the database, or 404 if there are no tips.
 	 */
 	@GetMapping("/tip/random")
-	public ResponseEntity<TipResponse> getRandomTip() {
+	public ResponseEntity<byte[]> getRandomTip(@RequestParam(defaultValue = "random") @Pattern(regexp = "random|current", message = "The mode must be random or current.") String mode) {
+		OptionalLong id = "current".equals(mode)
+			? tipOfTheMoment.current().map(tip -> OptionalLong.of(tip.id())).orElseGet(OptionalLong::empty)
+			: tipService.drawRandomTipId();
+		if (id.isPresent()) {
+			try {
+				return encoded(tipService.findEncodedById(id.getAsLong()));
+			} catch (TipNotFoundException e) {
+				// The tip was deleted after it was drawn, fall back to a new draw
+			}
+		}
 		Tip tip = tipService.findRandomTip();
-		return ResponseEntity.ok(new TipResponse(tip.getId(), tip.getMessage()));
+		if (tip == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return encoded(EncodedTip.of(new TipResponse(tip.getId(), tip.getMessage())));
+	}
+	
+	/**
+	 * Endpoint to receive the tip of the moment over Server-Sent Events.
+	 * This method handles GET requests to the "/tip/random/stream" URL.
+	 * The current tip is sent right away and every new one as soon as it is published.
+	 * @return the emitter of the "tip" events
+	 */
+	@GetMapping(value = "/tip/random/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamTipOfTheMoment() {
+		return tipOfTheMoment.subscribe();
 	}
 	
 	/**
 	 * Endpoint to get all tips.
 	 * This method handles GET requests to the "/tip" URL.
-	 * @return a list of all Tip objects from the database.
+	 * When a limit is given only one page of tips is returned, starting after the "afterId" tip.
+	 * If the page is full, the "Link" header points to the next page.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page
+	 * @param limit the maximum number of tips in the page
+	 * @return a list of all Tip objects from the database, or a page of them.
 	 */
 	@GetMapping("/tip")
-	public ResponseEntity<List<TipResponse>> getAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid) {
-		List<TipResponse> tips = tipService.getAllTips(uuid).stream()
-			.map(tip -> new TipResponse(tip.getId(), tip.getMessage()))
-			.toList();
-		return ResponseEntity.ok(tips);
+	public ResponseEntity<List<TipResponse>> getAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid,
+			@RequestParam(required = false) @PositiveOrZero(message = "The afterId can't be negative.") Long afterId,
+			@RequestParam(required = false) @Min(value = 1, message = "The limit must be at least 1.") @Max(value = MAX_PAGE_SIZE, message = "The limit can't be greater than " + MAX_PAGE_SIZE + ".") Integer limit) {
+		if (limit == null) {
+			return ResponseEntity.ok(tipService.getAllTips(uuid));
+		}
+		List<TipResponse> tips = tipService.getTipsPage(uuid, afterId == null ? 0L : afterId, limit);
+		if (tips.size() < limit) {
+			return ResponseEntity.ok(tips);
+		}
+		URI next = ServletUriComponentsBuilder.fromCurrentRequest()
+			.replaceQueryParam("afterId", tips.getLast().id())
+			.build()
+			.toUri();
+		return ResponseEntity.ok()
+			.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+			.body(tips);
+	}
+	
+	/**
+	 * Endpoint to search tips.
+	 * This method handles GET requests to the "/tip/search" URL.
+	 * It returns the tips whose message holds every word of the query, ignoring case and punctuation,
+	 * ordered by ID and starting after the "afterId" tip. If the page is full, the "Link" header
+	 * points to the next page. Until the search index is built it answers 503.
+	 * @param q the words to look for
+	 * @param afterId the ID of the last tip of the previous page
+	 * @param limit the maximum number of tips in the page
+	 * @return a page of the matching Tip objects
+	 */
+	@GetMapping("/tip/search")
+	public ResponseEntity<List<TipResponse>> searchTips(@RequestParam(required = true) @NotBlank(message = "The search query can't be blank.") String q,
+			@RequestParam(defaultValue = "0") @PositiveOrZero(message = "The afterId can't be negative.") long afterId,
+			@RequestParam(defaultValue = "20") @Min(value = 1, message = "The limit must be at least 1.") @Max(value = MAX_SEARCH_SIZE, message = "The limit can't be greater than " + MAX_SEARCH_SIZE + ".") int limit) {
+		if (!tipService.isSearchReady()) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
+		List<TipResponse> tips = tipService.search(q, afterId, limit);
+		if (tips.size() < limit) {
+			return ResponseEntity.ok(tips);
+		}
+		URI next = ServletUriComponentsBuilder.fromCurrentRequest()
+			.replaceQueryParam("afterId", tips.getLast().id())
+			.build()
+			.toUri();
+		return ResponseEntity.ok()
+			.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+			.body(tips);
+	}
+	
+	/**
+	 * Endpoint to stream all tips.
+	 * This method handles GET requests to the "/tip/stream" URL.
+	 * The tips are written to the response as they are read from the database, as
+	 * newline delimited JSON, or as a JSON array when only "application/json" is accepted.
+	 * @param uuid the session identifier
+	 * @param accept the accepted media types
+	 * @return the body writing the tips to the response
+	 */
+	@GetMapping(value = "/tip/stream", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+		boolean array = accept != null && MediaType.parseMediaTypes(accept).stream()
+			.noneMatch(type -> type.isWildcardType() || type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+		ObjectWriter writer = objectMapper.writerFor(TipResponse.class);
+		StreamingResponseBody body = output -> {
+			try (SequenceWriter tips = array ? writer.writeValuesAsArray(output) : writer.withRootValueSeparator("\n").writeValues(output)) {
+				tipService.streamAllTips(uuid, tip -> {
+					try {
+						tips.write(tip);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+		};
+		return ResponseEntity.ok()
+			.contentType(array ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+			.body(body);
 	}
 	
 	/**
 	 * Endpoint to get a tip by its ID.
 	 * This method handles GET requests to the "/tip/{id}" URL.
+	 * The cached response body is written as is, with a strong ETag, so a request whose
+	 * "If-None-Match" header holds the current ETag gets a 304 without a body.
 	 * @param id the ID of the tip to retrieve
 	 * @return the Tip object with the specified ID
 	 * @throws TipNotFoundException 
 	 */
 	@GetMapping("/tip/{id}")
-	public ResponseEntity<TipResponse> getTipById(@PathVariable Long id) throws TipNotFoundException {
+	public ResponseEntity<byte[]> getTipById(@PathVariable Long id) throws TipNotFoundException {
 		try {
-			Tip tip = tipService.findById(id);
-			return ResponseEntity.ok(new TipResponse(tip.getId(), tip.getMessage()));
+			return encoded(tipService.findEncodedById(id));
 		} catch (TipNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 	}
 	
+	/**
+	 * Build the response serving an encoded tip.
+	 * Spring MVC answers 304 on its own when the ETag matches the "If-None-Match" header of a GET.
+	 * @param tip the encoded tip
+	 * @return the response with the JSON body and its ETag
+	 */
+	private static ResponseEntity<byte[]> encoded(EncodedTip tip) {
+		return ResponseEntity.ok()
+			.contentType(MediaType.APPLICATION_JSON)
+			.eTag(tip.etag())
+			.body(tip.body());
+	}
+	
 	/**
 	 * Endpoint to insert a new tip.
 	 * This method handles POST requests to the "/tip" URL.
@@ -96,20 +292,34 @@ public class TipController {
 	 * @return the inserted Tip object
 	 */
 	@PostMapping("/tip")
-	public ResponseEntity<TipResponse> insert(@RequestBody TipRequest tip) {
-		Tip insertedTip = tipService.insert(new Tip(tip.message()));
+	public ResponseEntity<TipResponse> insert(@RequestBody @Valid TipRequest tip) {
+		Tip insertedTip = tipService.insert(new Tip(null, tip.message(), tip.uuid()));
 		return ResponseEntity.ok(new TipResponse(insertedTip.getId(), insertedTip.getMessage()));
 	}
 	
+	/**
+	 * Endpoint to insert many tips at once.
+	 * This method handles POST requests to the "/tip/bulk" URL.
+	 * The body is a JSON array or newline delimited JSON of tips and is read while the
+	 * tips are inserted in batches, so it can be arbitrarily large.
+	 * @param body the request body
+	 * @return the summary of the ingestion
+	 * @throws IOException if the request body can't be read
+	 */
+	@PostMapping(value = "/tip/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<TipIngestResult> bulkInsert(InputStream body) throws IOException {
+		return ResponseEntity.ok(tipIngestService.ingest(body));
+	}
+	
 	/**
 	 * Endpoint to update an existing tip.
 	 * This method handles PATCH requests to the "/tip" URL.
-	 * @param tip the Tip object to update
+	 * @param tip the ID and new message of the tip
 	 * @return the updated Tip object
 	 * @throws ResourceNotFoundException if the tip with the given ID does not exist
 	 */
 	@PatchMapping("/tip")
-	public ResponseEntity<Tip> updateTip(@RequestBody Tip tip) {
+	public ResponseEntity<TipResponse> updateTip(@RequestBody @Valid TipUpdate tip) {
 		try {
 			return ResponseEntity.ok(tipService.update(tip));
 		} catch (TipNotFoundException e) {
@@ -117,6 +327,18 @@ public class TipController {
 		}
 	}
 	
+	/**
+	 * Endpoint to update many tips at once.
+	 * This method handles PATCH requests to the "/tip/bulk" URL.
+	 * All messages are updated with one batched statement, in a single transaction.
+	 * @param tips the IDs and new messages of the tips
+	 * @return the summary of the update, with the IDs of the tips that don't exist
+	 */
+	@PatchMapping("/tip/bulk")
+	public ResponseEntity<TipUpdateResult> bulkUpdate(@RequestBody @Size(max = MAX_BULK_UPDATE, message = "At most " + MAX_BULK_UPDATE + " tips can be updated at once.") List<@Valid TipUpdate> tips) {
+		return ResponseEntity.ok(tipService.updateAll(tips));
+	}
+	
 	/**
 	 * Endpoint to delete a tip by its ID.
 	 * This method handles DELETE requests to the "/tip/{id}" URL.
@@ -133,18 +355,46 @@ public class TipController {
 		return ResponseEntity.noContent().build();
 	}
 	
+	/**
+	 * Endpoint to delete many tips by their IDs.
+	 * This method handles DELETE requests to the "/tip/bulk" URL, with the IDs as a JSON array body.
+	 * The tips are deleted with one statement whose IN list holds the IDs, at most MAX_BULK_DELETE of them,
+	 * then each ID is evicted from the caches and indexes. IDs of tips that don't exist are ignored.
+	 * @param ids the IDs of the tips to delete
+	 * @return the summary of the delete
+	 */
+	@DeleteMapping("/tip/bulk")
+	public ResponseEntity<TipDeleteResult> bulkDelete(@RequestBody @Size(max = MAX_BULK_DELETE, message = "At most " + MAX_BULK_DELETE + " tips can be deleted at once.") List<@NotNull(message = "The tip ID can't be null.") Long> ids) {
+		return ResponseEntity.ok(tipService.deleteAll(ids));
+	}
+	
+	/**
+	 * Endpoint to delete all tips of a session.
+	 * This method handles DELETE requests to the "/tip" URL.
+	 * The IDs of the tips are locked and read, then the rows of the session are deleted by UUID in the same transaction.
+	 * @param uuid the session identifier
+	 * @return the summary of the delete
+	 */
+	@DeleteMapping("/tip")
+	public ResponseEntity<TipDeleteResult> deleteAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid) {
+		return ResponseEntity.ok(tipService.deleteAllByUuid(uuid));
+	}
+	
 	/**
 	 * Create a draft of a tip.
 	 * This method handles POST requests to the "/draft" URL.
-	 * @param sessionUuid the UUID of the session
+	 * The drafts are buffered and written to Redis in a single batch by the next flush,
+	 * so the response is 202 Accepted with the accepted drafts reported as pending.
 	 * @param messages the list of messages to draft
+	 * @return the result of the upsert of each draft
 	 */
 	@PostMapping("/draft")
-	public ResponseEntity<List<Draft>> draft(@RequestBody List<Draft> messages) {
-		List<Draft> result = messages.stream()
-			.map(draft -> draftService.upsert(draft))
-			.toList();
-		return ResponseEntity.ok(result);
+	public ResponseEntity<List<DraftResult>> draft(@RequestBody List<Draft> messages) {
+		List<DraftResult> results = draftService.upsertAll(messages);
+		if (results.stream().anyMatch(result -> result.status() == DraftResult.Status.PENDING)) {
+			return ResponseEntity.accepted().body(results);
+		}
+		return ResponseEntity.ok(results);
 	}
 	
 }
@@ -0,0 +1,8 @@
+package dev.samir.tips;
+
+/**
+ * Summary of a bulk tip delete.
+ * @param received the number of tips to delete, the IDs in the request or the tips found for the session
+ * @param deleted the number of tips deleted
+ */
+public record TipDeleteResult(int received, int deleted) {}
@@ -0,0 +1,9 @@
+package dev.samir.tips;
+
+/**
+ * Bounds and size of the tip IDs of a session.
+ * @param minId the smallest tip ID, or null if the session has no tips
+ * @param maxId the largest tip ID, or null if the session has no tips
+ * @param count the number of tips
+ */
+public record TipIdRange(Long minId, Long maxId, Long count) {}
@@ -0,0 +1,21 @@
+package dev.samir.tips;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk tip ingestion.
+ * @param received the number of tips read from the request
+ * @param inserted the number of tips inserted
+ * @param failed the number of tips that couldn't be inserted
+ * @param failures the reasons of the first failures
+ */
+public record TipIngestResult(long received, long inserted, long failed, List<Failure> failures) {
+
+	/**
+	 * A tip, or batch of tips, that couldn't be inserted.
+	 * @param index the position of the (first) tip in the request, starting at 0
+	 * @param reason why it couldn't be inserted
+	 */
+	public record Failure(long index, String reason) {}
+
+}
@@ -0,0 +1,154 @@
+package dev.samir.tips;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validator;
+
+/**
+ * Service class for the bulk ingestion of tips.
+ * The request body is read incrementally with the Jackson streaming parser,
+ * either as a JSON array or as newline delimited JSON, and the tips are inserted
+ * in batches, each batch in its own transaction. Only one batch is held in memory,
+ * so catalogues of any size can be imported in a single request.
+ */
+@Service
+public class TipIngestService {
+
+	/**
+	 * Service used to insert the batches of tips.
+	 */
+	private TipService tipService;
+	
+	/**
+	 * Object mapper used to parse the request body.
+	 */
+	private ObjectMapper objectMapper;
+	
+	/**
+	 * Validator for the parsed tips.
+	 */
+	private Validator validator;
+	
+	/**
+	 * Number of tips inserted per transaction.
+	 */
+	private int batchSize;
+	
+	/**
+	 * Maximum number of failures described in the result. All failures are still counted.
+	 */
+	private int maxReportedFailures;
+	
+	/**
+	 * Constructor for TipIngestService.
+	 * @param tipService the TipService instance
+	 * @param objectMapper the ObjectMapper instance
+	 * @param validator the Validator instance
+	 * @param batchSize the number of tips inserted per transaction
+	 * @param maxReportedFailures the maximum number of failures described in the result
+	 */
+	public TipIngestService(TipService tipService, ObjectMapper objectMapper, Validator validator,
+			@Value("${tips.bulk.batch-size:1000}") int batchSize,
+			@Value("${tips.bulk.max-reported-failures:100}") int maxReportedFailures) {
+		this.tipService = tipService;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.batchSize = batchSize;
+		this.maxReportedFailures = maxReportedFailures;
+	}
+	
+	/**
+	 * Reads the tips from the input and inserts them in batches.
+	 * Invalid tips are skipped and reported, and a batch the database rejects is reported as a whole.
+	 * Malformed JSON stops the ingestion, but the tips read before it are still inserted.
+	 * @param input a JSON array or newline delimited JSON of TipRequest objects
+	 * @return the summary of the ingestion
+	 * @throws IOException if the input can't be read
+	 */
+	public TipIngestResult ingest(InputStream input) throws IOException {
+		TipIngestion ingestion = new TipIngestion(objectMapper, validator, maxReportedFailures);
+		Batch batch = new Batch(ingestion);
+		try (JsonParser parser = objectMapper.createParser(input)) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_ARRAY) {
+				token = parser.nextToken();
+			}
+			while (token != null && token != JsonToken.END_ARRAY) {
+				batch.add(parser.readValueAsTree());
+				token = parser.nextToken();
+			}
+		} catch (JsonProcessingException e) {
+			ingestion.malformed(e.getOriginalMessage());
+		}
+		batch.flush();
+		return ingestion.result();
+	}
+	
+	/**
+	 * Batch of valid tips of a single ingestion request, inserted once it's full.
+	 */
+	private class Batch {
+		
+		private final TipIngestion ingestion;
+		
+		private final List<Tip> tips = new ArrayList<>(batchSize);
+		
+		private long batchStart;
+		
+		/**
+		 * Constructor for Batch.
+		 * @param ingestion the state of the ingestion
+		 */
+		Batch(TipIngestion ingestion) {
+			this.ingestion = ingestion;
+		}
+		
+		/**
+		 * Validates a parsed tip and adds it to the batch, inserting the batch when it's full.
+		 * @param node the parsed tip
+		 */
+		void add(JsonNode node) {
+			TipRequest request = ingestion.validate(node);
+			if (request == null) {
+				return;
+			}
+			if (tips.isEmpty()) {
+				batchStart = ingestion.lastIndex();
+			}
+			tips.add(new Tip(null, request.message(), request.uuid()));
+			if (tips.size() >= batchSize) {
+				flush();
+			}
+		}
+		
+		/**
+		 * Inserts the batch.
+		 */
+		void flush() {
+			if (tips.isEmpty()) {
+				return;
+			}
+			try {
+				ingestion.inserted(tipService.insertAll(tips).size());
+			} catch (DataAccessException e) {
+				ingestion.rejected(batchStart, tips.size(), e);
+			}
+			tips.clear();
+		}
+		
+	}
+
+}
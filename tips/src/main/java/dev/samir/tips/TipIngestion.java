@@ -0,0 +1,149 @@
+package dev.samir.tips;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataAccessException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * State of a single bulk insert: the validation of its tips, its counts and the failures reported in its result.
+ * The TipIngestService and the ReactiveTipService both use it, so a body gets the same result on either stack.
+ * The tips of a body are handled one after the other, so it isn't shared between threads.
+ */
+class TipIngestion {
+
+	/**
+	 * Object mapper reading the tips.
+	 */
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Validator of the tips.
+	 */
+	private final Validator validator;
+
+	/**
+	 * Maximum number of failures described in the result. All failures are still counted.
+	 */
+	private final int maxReportedFailures;
+
+	/**
+	 * Failures described in the result.
+	 */
+	private final List<TipIngestResult.Failure> failures = new ArrayList<>();
+
+	/**
+	 * Number of tips read from the body.
+	 */
+	private long received;
+
+	/**
+	 * Number of tips inserted.
+	 */
+	private long inserted;
+
+	/**
+	 * Number of tips rejected.
+	 */
+	private long failed;
+
+	/**
+	 * Constructor for TipIngestion.
+	 * @param objectMapper the ObjectMapper instance
+	 * @param validator the Validator instance
+	 * @param maxReportedFailures the maximum number of failures described in the result
+	 */
+	TipIngestion(ObjectMapper objectMapper, Validator validator, int maxReportedFailures) {
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.maxReportedFailures = maxReportedFailures;
+	}
+
+	/**
+	 * Reads and validates the next tip of the body. An invalid tip is counted and reported.
+	 * @param node the parsed tip
+	 * @return the tip, or null if it is invalid
+	 */
+	TipRequest validate(JsonNode node) {
+		long index = received++;
+		TipRequest request;
+		try {
+			request = objectMapper.treeToValue(node, TipRequest.class);
+		} catch (JsonProcessingException e) {
+			failed++;
+			fail(index, e.getOriginalMessage());
+			return null;
+		}
+		Set<ConstraintViolation<TipRequest>> violations = validator.validate(request);
+		if (!violations.isEmpty()) {
+			failed++;
+			fail(index, violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" ")));
+			return null;
+		}
+		return request;
+	}
+
+	/**
+	 * Position of the last tip read, the one just validated.
+	 * @return the position in the body, starting at 0
+	 */
+	long lastIndex() {
+		return received - 1;
+	}
+
+	/**
+	 * Reports malformed JSON, which stops the ingestion.
+	 * @param reason the parser's message
+	 */
+	void malformed(String reason) {
+		fail(received, "Malformed JSON, ingestion stopped: " + reason);
+	}
+
+	/**
+	 * Counts the tips of an inserted batch.
+	 * @param count the number of tips inserted
+	 */
+	void inserted(long count) {
+		inserted += count;
+	}
+
+	/**
+	 * Counts and reports a batch the database rejected.
+	 * @param index the position of the first tip of the batch
+	 * @param size the number of tips of the batch
+	 * @param e the failure of the database
+	 */
+	void rejected(long index, int size, DataAccessException e) {
+		failed += size;
+		fail(index, "Batch of " + size + " tips rejected by the database: " + e.getMostSpecificCause().getMessage());
+	}
+
+	/**
+	 * Describes a failure, unless too many have been described already.
+	 * @param index the position of the failed tip
+	 * @param reason why it failed
+	 */
+	private void fail(long index, String reason) {
+		if (failures.size() < maxReportedFailures) {
+			failures.add(new TipIngestResult.Failure(index, reason));
+		}
+	}
+
+	/**
+	 * Summary of the ingestion.
+	 * @return the result
+	 */
+	TipIngestResult result() {
+		return new TipIngestResult(received, inserted, failed, failures);
+	}
+
+}
@@ -0,0 +1,67 @@
+package dev.samir.tips;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges of the tips table, and counters of the coalesced reads of the TipService.
+ * The row count comes from the RandomTipIndex, which tracks every live tip identifier,
+ * so scraping the metrics never runs a "count(*)" over the table.
+ */
+@Component
+public class TipMetrics implements MeterBinder {
+
+	/**
+	 * In-memory index of the tip identifiers.
+	 */
+	private RandomTipIndex randomTipIndex;
+
+	/**
+	 * Service whose database reads are coalesced.
+	 */
+	private TipService tipService;
+
+	/**
+	 * Constructor for TipMetrics.
+	 * @param randomTipIndex the RandomTipIndex instance
+	 * @param tipService the TipService instance
+	 */
+	public TipMetrics(RandomTipIndex randomTipIndex, TipService tipService) {
+		this.randomTipIndex = randomTipIndex;
+		this.tipService = tipService;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tips.rows", randomTipIndex, index -> index.isReady() ? index.size() : Double.NaN)
+			.description("Number of rows in the tips table, NaN until the random tip index is built")
+			.baseUnit("rows")
+			.register(registry);
+		bindLoads(registry, "session", tipService.getSessionLoads());
+		bindLoads(registry, "tip", tipService.getTipLoads());
+	}
+
+	/**
+	 * Count the database reads run and the calls that shared the read of another caller.
+	 * @param registry the registry of the counters
+	 * @param query the tag of the read
+	 * @param loads the single-flight of the read
+	 */
+	private static void bindLoads(MeterRegistry registry, String query, SingleFlight<?, ?> loads) {
+		FunctionCounter.builder("tips.loads", loads, SingleFlight::getExecuted)
+			.description("Database reads of the tip service, run or coalesced with a concurrent identical read")
+			.tag("query", query)
+			.tag("result", "executed")
+			.register(registry);
+		FunctionCounter.builder("tips.loads", loads, SingleFlight::getCoalesced)
+			.description("Database reads of the tip service, run or coalesced with a concurrent identical read")
+			.tag("query", query)
+			.tag("result", "coalesced")
+			.register(registry);
+	}
+
+}
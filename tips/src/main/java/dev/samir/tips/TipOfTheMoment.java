@@ -0,0 +1,269 @@
+package dev.samir.tips;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holder of the "tip of the moment".
+ * The scheduled job in TipService draws one random tip per tick and publishes it here,
+ * so requests for the current tip read a field instead of querying the database.
+ * Every published tip is also pushed to the subscribers over Server-Sent Events.
+ * The sends run on virtual threads, one drain per subscriber at a time, so the tick never waits for a client:
+ * a subscriber still busy keeps only the latest tip, and one stuck on a send longer than
+ * tips.moment.send-timeout is dropped.
+ * Other transports, like the Server-Sent Events of the reactive profile, register a listener.
+ */
+@Component
+public class TipOfTheMoment {
+
+	/**
+	 * Name of the Server-Sent Events carrying the tips.
+	 */
+	static final String EVENT_NAME = "tip";
+
+	/**
+	 * The tip of the moment, or null until the first tip is published.
+	 */
+	private volatile TipResponse current;
+
+	/**
+	 * Open Server-Sent Events connections.
+	 */
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Executor running the sends, off the thread publishing the tips.
+	 */
+	private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Listeners called with every published tip.
+	 */
+	private final List<Consumer<TipResponse>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * How long a Server-Sent Events connection stays open before the client has to reconnect.
+	 */
+	private final Duration subscriptionTimeout;
+
+	/**
+	 * How long a send can take before the subscriber is dropped.
+	 */
+	private final Duration sendTimeout;
+
+	/**
+	 * Constructor for TipOfTheMoment.
+	 * @param subscriptionTimeout how long a Server-Sent Events connection stays open
+	 * @param sendTimeout how long a send can take before the subscriber is dropped
+	 */
+	public TipOfTheMoment(@Value("${tips.moment.subscription-timeout:PT30M}") Duration subscriptionTimeout,
+			@Value("${tips.moment.send-timeout:PT5S}") Duration sendTimeout) {
+		this.subscriptionTimeout = subscriptionTimeout;
+		this.sendTimeout = sendTimeout;
+	}
+
+	/**
+	 * Get the tip of the moment.
+	 * @return the tip of the moment, or empty if no tip has been published yet
+	 */
+	public Optional<TipResponse> current() {
+		return Optional.ofNullable(current);
+	}
+
+	/**
+	 * Publish a new tip of the moment and push it to every subscriber.
+	 * The sends are handed to the executor, and subscribers whose connection is broken or too slow are dropped.
+	 * @param tip the new tip of the moment
+	 */
+	public void publish(TipResponse tip) {
+		current = tip;
+		for (Subscriber subscriber : subscribers) {
+			dispatch(subscriber, tip);
+		}
+		for (Consumer<TipResponse> listener : listeners) {
+			listener.accept(tip);
+		}
+	}
+
+	/**
+	 * Register a listener called with every published tip, on the thread publishing it.
+	 * The listener must not block, or the tick waits for it.
+	 * @param listener the listener
+	 */
+	public void addListener(Consumer<TipResponse> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Unregister a listener.
+	 * @param listener the listener
+	 */
+	public void removeListener(Consumer<TipResponse> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Open a Server-Sent Events connection receiving every published tip.
+	 * The current tip, if any, is sent right away.
+	 * @return the emitter of the connection
+	 */
+	public SseEmitter subscribe() {
+		return subscribe(new SseEmitter(subscriptionTimeout.toMillis()));
+	}
+
+	/**
+	 * Register an emitter receiving every published tip.
+	 * @param emitter the emitter of the connection
+	 * @return the emitter
+	 */
+	SseEmitter subscribe(SseEmitter emitter) {
+		Subscriber subscriber = new Subscriber(emitter);
+		emitter.onCompletion(() -> subscribers.remove(subscriber));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(error -> subscribers.remove(subscriber));
+		subscribers.add(subscriber);
+		TipResponse tip = current;
+		if (tip != null) {
+			dispatch(subscriber, tip);
+		}
+		return emitter;
+	}
+
+	/**
+	 * Number of open Server-Sent Events connections.
+	 * @return the number of subscribers
+	 */
+	public int subscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Close every Server-Sent Events connection when the application stops.
+	 */
+	@PreDestroy
+	public void completeAll() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.emitter.complete();
+		}
+		subscribers.clear();
+		sender.shutdown();
+	}
+
+	/**
+	 * Hand a tip to a subscriber. If no send is running for it, one is started on the executor.
+	 * Otherwise the tip replaces the one waiting, and the subscriber is dropped if the running send
+	 * takes longer than the send timeout.
+	 * @param subscriber the subscriber
+	 * @param tip the tip to send
+	 */
+	private void dispatch(Subscriber subscriber, TipResponse tip) {
+		subscriber.next.set(tip);
+		if (subscriber.sending.compareAndSet(false, true)) {
+			subscriber.sendingSince = System.nanoTime();
+			try {
+				sender.execute(() -> drain(subscriber));
+			} catch (RejectedExecutionException e) {
+				subscribers.remove(subscriber);
+			}
+		} else if (System.nanoTime() - subscriber.sendingSince > sendTimeout.toNanos()) {
+			// The emitter is locked by the stuck send, so it is completed on the executor as well
+			subscribers.remove(subscriber);
+			try {
+				sender.execute(() -> subscriber.emitter.completeWithError(new TimeoutException("Send timed out after " + sendTimeout)));
+			} catch (RejectedExecutionException e) {
+				// The application is stopping and completes the emitters itself
+			}
+		}
+	}
+
+	/**
+	 * Send the waiting tips to a subscriber until there are none left.
+	 * @param subscriber the subscriber
+	 */
+	private void drain(Subscriber subscriber) {
+		do {
+			TipResponse tip;
+			while ((tip = subscriber.next.getAndSet(null)) != null) {
+				subscriber.sendingSince = System.nanoTime();
+				if (!send(subscriber, tip)) {
+					return;
+				}
+			}
+			subscriber.sending.set(false);
+			// A tip handed over after the last check but before the flag was cleared is sent by this drain
+		} while (subscriber.next.get() != null && subscriber.sending.compareAndSet(false, true));
+	}
+
+	/**
+	 * Send a tip to one subscriber, dropping it if the connection is broken.
+	 * @param subscriber the subscriber
+	 * @param tip the tip to send
+	 * @return true if the tip was sent
+	 */
+	private boolean send(Subscriber subscriber, TipResponse tip) {
+		try {
+			subscriber.emitter.send(SseEmitter.event()
+				.name(EVENT_NAME)
+				.id(String.valueOf(tip.id()))
+				.data(tip, MediaType.APPLICATION_JSON));
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			subscribers.remove(subscriber);
+			subscriber.emitter.completeWithError(e);
+			return false;
+		}
+	}
+
+	/**
+	 * A Server-Sent Events connection and the state of its sends.
+	 */
+	private static final class Subscriber {
+
+		/**
+		 * Emitter of the connection.
+		 */
+		private final SseEmitter emitter;
+
+		/**
+		 * The latest tip not sent yet, or null.
+		 */
+		private final AtomicReference<TipResponse> next = new AtomicReference<>();
+
+		/**
+		 * Whether a drain is running or scheduled for the subscriber.
+		 */
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		/**
+		 * When the running send started, from System.nanoTime().
+		 */
+		private volatile long sendingSince;
+
+		/**
+		 * Constructor for Subscriber.
+		 * @param emitter the emitter of the connection
+		 */
+		private Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+	}
+
+}
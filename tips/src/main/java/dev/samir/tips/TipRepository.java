@@ -1,31 +1,161 @@
 package dev.samir.tips;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository interface for managing Tip entities.
  * This interface extends CrudRepository to provide CRUD operations
  * for the Tip entity.
+ * The queries are read-only transactions, so they run on the read replica when one is configured.
  */
-public interface TipRepository extends CrudRepository<Tip, Long> {
+public interface TipRepository extends CrudRepository<Tip, Long>, TipRepositoryCustom {
 	
 	/**
 	 * Method to find a random tip from the database.
 	 * This method uses a native SQL query with "random()" funcion to select a random tip.
 	 * @return a random Tip object from the database.
 	 */
+	@Transactional(readOnly = true)
 	@Query(value = "select * from tb01_tips order by random() limit 1", nativeQuery = true)
 	public Tip findRandomTip();
 	
 	/**
-	 * Find all tips associated with a given UUID.
+	 * Find a tip by its ID, selecting only the columns of the response.
+	 * @param id the tip identifier
+	 * @return the tip, or empty if not found
+	 */
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.id = ?1")
+	public Optional<TipResponse> findResponseById(Long id);
+	
+	/**
+	 * Find the tips with the given IDs, selecting only the columns of the response.
+	 * @param ids the tip identifiers, must not be empty
+	 * @return the tips found, in no particular order
+	 */
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.id in ?1")
+	public List<TipResponse> findAllResponsesById(Collection<Long> ids);
+	
+	/**
+	 * Find all tips associated with a given UUID, ordered by ID.
+	 * Uses the index on "tip_uuid, tip_id", which already holds the rows in this order,
+	 * and selects only the columns of the response, so no Tip entity is hydrated.
 	 * @param uuid the session identifier
 	 * @return a list of tips associated with the given UUID
 	 */
-	@Query(value = "select * from tb01_tips where uuid = ?1", nativeQuery = true)
-	public List<Tip> findAllByUuid(String uuid); 
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.uuid = ?1 order by t.id")
+	public List<TipResponse> findAllByUuid(String uuid);
+	
+	/**
+	 * Find the bounds and the number of the tip IDs of a session.
+	 * It only reads the "tip_uuid, tip_id" index, not the rows.
+	 * @param uuid the session identifier
+	 * @return the range of the tip IDs of the session
+	 */
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipIdRange(min(t.id), max(t.id), count(t.id)) from Tip t where t.uuid = ?1")
+	public TipIdRange findIdRangeByUuid(String uuid);
+	
+	/**
+	 * Find the tips of a session within a range of IDs, ordered by ID.
+	 * Used to read one partition of a large session.
+	 * @param uuid the session identifier
+	 * @param fromId the smallest ID of the range
+	 * @param toId the largest ID of the range
+	 * @return the tips of the session within the range
+	 */
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.uuid = ?1 and t.id between ?2 and ?3 order by t.id")
+	public List<TipResponse> findRangeByUuid(String uuid, long fromId, long toId);
+	
+	/**
+	 * Find a page of the tips associated with a given UUID, ordered by ID.
+	 * The page starts right after the given ID (keyset pagination), so every page
+	 * is a range read on the "tip_uuid, tip_id" index no matter how deep it is.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips in the page
+	 * @return the page of tips
+	 */
+	@Transactional(readOnly = true)
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.uuid = ?1 and t.id > ?2 order by t.id")
+	public List<TipResponse> findPageByUuid(String uuid, long afterId, Limit limit);
+	
+	/**
+	 * Stream all tips associated with a given UUID, ordered by ID.
+	 * The rows are read from a JDBC cursor, so they are never all in memory at once.
+	 * Must be called inside a transaction.
+	 * @param uuid the session identifier
+	 * @return a stream of tips associated with the given UUID
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t where t.uuid = ?1 order by t.id")
+	public Stream<TipResponse> streamAllByUuid(String uuid);
+	
+	/**
+	 * Update the message of a tip with a single statement, without loading it first.
+	 * @param id the tip identifier
+	 * @param message the new message
+	 * @return the number of updated rows, 0 if the tip doesn't exist
+	 */
+	@Transactional
+	@Modifying
+	@Query("update Tip t set t.message = ?2 where t.id = ?1")
+	public int updateMessage(Long id, String message);
+	
+	/**
+	 * Delete a tip with a single statement, without loading it first.
+	 * @param id the tip identifier
+	 * @return the number of deleted rows, 0 if the tip doesn't exist
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from Tip t where t.id = ?1")
+	public int deleteTipById(Long id);
+	
+	/**
+	 * Delete many tips with a single set-based statement, without loading them first.
+	 * @param ids the tip identifiers, must not be empty
+	 * @return the number of deleted rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from Tip t where t.id in ?1")
+	public int deleteTipsById(Collection<Long> ids);
+	
+	/**
+	 * Stream every tip in the database, ordered by ID, selecting only the columns of the response.
+	 * Used to build the in-memory search index without loading the entities.
+	 * Must be called inside a transaction.
+	 * @return a stream of all tips
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("select new dev.samir.tips.TipResponse(t.id, t.message) from Tip t order by t.id")
+	public Stream<TipResponse> streamAllResponses();
+	
+	/**
+	 * Stream the identifiers of every tip in the database.
+	 * Used to build the in-memory random tip index without loading the entities.
+	 * Must be called inside a transaction.
+	 * @return a stream of tip identifiers
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query(value = "select tip_id from tb01_tips", nativeQuery = true)
+	public Stream<Long> streamAllIds();
 	
 }
@@ -0,0 +1,25 @@
+package dev.samir.tips;
+
+import java.util.List;
+
+/**
+ * Custom queries of the TipRepository that Spring Data can't run efficiently.
+ */
+public interface TipRepositoryCustom {
+
+	/**
+	 * Update the message of many tips with a batched statement, in a single transaction.
+	 * @param updates the new messages
+	 * @return the number of rows updated by each update, in the same order
+	 */
+	int[] updateMessages(List<TipUpdate> updates);
+
+	/**
+	 * Delete all tips of a session with a single set-based statement on their UUID, in a single transaction.
+	 * The IDs of the tips are read with "select ... for update" first, in the same transaction.
+	 * @param uuid the session identifier
+	 * @return the IDs of the tips of the session and the number of rows deleted
+	 */
+	SessionDelete deleteAllByUuid(String uuid);
+
+}
@@ -0,0 +1,87 @@
+package dev.samir.tips;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Implementation of the custom TipRepository queries.
+ * Hibernate doesn't batch JPQL updates, so the bulk update runs a single JDBC prepared
+ * statement with one batch entry per tip, sent in batches of "tips.bulk.batch-size".
+ * Pending entity changes are flushed first, like Hibernate does before its own queries.
+ * The delete of a session locks and reads the IDs of its tips, so the callers can evict them, then deletes
+ * the rows of the session by UUID: no IN list, so the number of tips isn't limited by the bind parameters.
+ */
+class TipRepositoryCustomImpl implements TipRepositoryCustom {
+
+	/**
+	 * Statement updating the message of a tip.
+	 */
+	private static final String UPDATE_MESSAGE = "update tb01_tips set tip_message = ? where tip_id = ?";
+
+	/**
+	 * Template used to run the batched statements.
+	 */
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Entity manager flushed before the statements run.
+	 */
+	private EntityManager entityManager;
+
+	/**
+	 * Number of updates sent in each JDBC batch.
+	 */
+	private int batchSize;
+
+	/**
+	 * Constructor for TipRepositoryCustomImpl.
+	 * @param jdbcTemplate the JdbcTemplate instance
+	 * @param entityManager the shared EntityManager
+	 * @param batchSize the number of updates sent in each JDBC batch
+	 */
+	TipRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager, @Value("${tips.bulk.batch-size:1000}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.entityManager = entityManager;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	@Transactional
+	public int[] updateMessages(List<TipUpdate> updates) {
+		entityManager.flush();
+		int[][] batches = jdbcTemplate.batchUpdate(UPDATE_MESSAGE, updates, batchSize, (statement, update) -> {
+			statement.setString(1, update.message());
+			statement.setLong(2, update.id());
+		});
+		int[] counts = new int[updates.size()];
+		int position = 0;
+		for (int[] batch : batches) {
+			System.arraycopy(batch, 0, counts, position, batch.length);
+			position += batch.length;
+		}
+		return counts;
+	}
+
+	@Override
+	@Transactional
+	public SessionDelete deleteAllByUuid(String uuid) {
+		List<Long> ids = entityManager.createQuery("select t.id from Tip t where t.uuid = ?1", Long.class)
+			.setParameter(1, uuid)
+			.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+			.getResultList();
+		if (ids.isEmpty()) {
+			return new SessionDelete(ids, 0);
+		}
+		int deleted = entityManager.createQuery("delete from Tip t where t.uuid = ?1")
+			.setParameter(1, uuid)
+			.executeUpdate();
+		return new SessionDelete(ids, deleted);
+	}
+
+}
@@ -1,3 +1,8 @@
 package dev.samir.tips;
 
-public record TipRequest(String message) {}
\ No newline at end of file
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record TipRequest(
+	@NotBlank(message = "The message can't be blank.") @Size(max = 254, message = "The message can't be longer than 254 characters.") String message,
+	@NotBlank(message = "The UUID can't be blank.") @Size(max = 36, message = "The UUID can't be longer than 36 characters.") String uuid) {}
\ No newline at end of file
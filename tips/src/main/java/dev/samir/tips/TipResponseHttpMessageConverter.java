@@ -0,0 +1,329 @@
+package dev.samir.tips;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP message converter writing TipResponse and collections of TipResponse as JSON.
+ * The JSON is written by hand into a pooled buffer that is flushed to the response stream,
+ * so no generator, serializer lookup or intermediate string is created per tip. It writes exactly
+ * what Jackson writes for the record: {"id":1,"message":"..."}, with non-ASCII characters
+ * as UTF-8 and control characters escaped.
+ * <p>
+ * It only writes; reading TipResponse bodies is left to the Jackson converter.
+ * As a bean it is registered before the default converters by Spring Boot.
+ */
+@Component
+public class TipResponseHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	/**
+	 * Size of the buffer flushed to the response stream.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Size of the buffer used to encode a single tip. It only needs room for the longest single write.
+	 */
+	private static final int ENCODE_BUFFER_SIZE = 256;
+
+	/**
+	 * Most buffers kept for reuse. More concurrent writes allocate their own buffer.
+	 */
+	private static final int POOLED_BUFFERS = 32;
+
+	/**
+	 * Hexadecimal digits used to escape control characters.
+	 */
+	private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] ID_PREFIX = "{\"id\":".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] MESSAGE_PREFIX = ",\"message\":".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Buffers reused across writes, so a write doesn't allocate its buffer.
+	 * The queue is backed by an array, so taking and returning a buffer doesn't allocate either.
+	 */
+	private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+
+	/**
+	 * Constructor for TipResponseHttpMessageConverter.
+	 */
+	public TipResponseHttpMessageConverter() {
+		super(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return clazz == TipResponse.class;
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+		return (isTipResponse(type) || isTipResponseCollection(type)) && canWrite(mediaType);
+	}
+
+	/**
+	 * Whether the type is TipResponse.
+	 * @param type the declared type
+	 * @return true if the type is TipResponse
+	 */
+	private static boolean isTipResponse(Type type) {
+		return type == TipResponse.class;
+	}
+
+	/**
+	 * Whether the type is a collection of TipResponse, like List&lt;TipResponse&gt;.
+	 * @param type the declared type
+	 * @return true if the type is a collection of TipResponse
+	 */
+	private static boolean isTipResponseCollection(Type type) {
+		return type instanceof ParameterizedType parameterized
+			&& parameterized.getRawType() instanceof Class<?> raw
+			&& Collection.class.isAssignableFrom(raw)
+			&& parameterized.getActualTypeArguments()[0] == TipResponse.class;
+	}
+
+	@Override
+	protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+		byte[] buffer = buffers.poll();
+		JsonOutput output = new JsonOutput(outputMessage.getBody(), buffer == null ? new byte[BUFFER_SIZE] : buffer);
+		try {
+			if (value instanceof Collection<?> tips) {
+				output.write('[');
+				boolean first = true;
+				for (Object tip : tips) {
+					if (!first) {
+						output.write(',');
+					}
+					output.writeTip((TipResponse) tip);
+					first = false;
+				}
+				output.write(']');
+			} else {
+				output.writeTip((TipResponse) value);
+			}
+			output.flush();
+		} finally {
+			buffers.offer(output.buffer);
+		}
+	}
+
+	/**
+	 * Encode a single tip as the JSON body written by this converter.
+	 * @param tip the tip to encode
+	 * @return the UTF-8 JSON bytes
+	 */
+	static byte[] encode(TipResponse tip) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream(64 + (tip.message() == null ? 0 : tip.message().length()));
+		JsonOutput output = new JsonOutput(stream, new byte[ENCODE_BUFFER_SIZE]);
+		try {
+			output.writeTip(tip);
+			output.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return stream.toByteArray();
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("TipResponse bodies are only written", inputMessage);
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("TipResponse bodies are only written", inputMessage);
+	}
+
+	/**
+	 * Buffered JSON output over the response stream.
+	 * Every write first makes sure the buffer has room for it, flushing it if needed,
+	 * and then copies the bytes without further checks.
+	 */
+	private static final class JsonOutput {
+
+		/**
+		 * Most bytes written for a single character, when a control character is escaped as a backslash, "u00" and two hexadecimal digits.
+		 */
+		private static final int MAX_CHAR_BYTES = 6;
+
+		/**
+		 * Most bytes written for a long: 19 digits and the sign.
+		 */
+		private static final int MAX_LONG_BYTES = 20;
+
+		private final OutputStream stream;
+
+		private final byte[] buffer;
+
+		private int size;
+
+		JsonOutput(OutputStream stream, byte[] buffer) {
+			this.stream = stream;
+			this.buffer = buffer;
+		}
+
+		void writeTip(TipResponse tip) throws IOException {
+			if (tip == null) {
+				write(NULL);
+				return;
+			}
+			write(ID_PREFIX);
+			if (tip.id() == null) {
+				write(NULL);
+			} else {
+				writeLong(tip.id());
+			}
+			write(MESSAGE_PREFIX);
+			if (tip.message() == null) {
+				write(NULL);
+			} else {
+				writeString(tip.message());
+			}
+			write('}');
+		}
+
+		void write(int b) throws IOException {
+			ensure(1);
+			buffer[size++] = (byte) b;
+		}
+
+		private void write(byte[] bytes) throws IOException {
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		/**
+		 * Writes the digits of a long from the last one backwards, after counting them.
+		 */
+		private void writeLong(long value) throws IOException {
+			ensure(MAX_LONG_BYTES);
+			if (value == Long.MIN_VALUE) {
+				write(MIN_LONG);
+				return;
+			}
+			if (value < 0) {
+				buffer[size++] = '-';
+				value = -value;
+			}
+			int digits = 1;
+			for (long rest = value / 10; rest > 0; rest /= 10) {
+				digits++;
+			}
+			for (int position = size + digits - 1; position >= size; position--) {
+				buffer[position] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			size += digits;
+		}
+
+		/**
+		 * Writes a JSON string as UTF-8, escaping quotes, backslashes and control characters.
+		 * Unpaired surrogates are written as '?', like String.getBytes does.
+		 */
+		private void writeString(String value) throws IOException {
+			write('"');
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				if (size + MAX_CHAR_BYTES > buffer.length) {
+					flushBuffer();
+				}
+				char c = value.charAt(i);
+				if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+					buffer[size++] = (byte) c;
+				} else if (c == '"' || c == '\\') {
+					buffer[size++] = '\\';
+					buffer[size++] = (byte) c;
+				} else if (c < 0x20) {
+					writeControl(c);
+				} else if (c < 0x800) {
+					buffer[size++] = (byte) (0xC0 | (c >> 6));
+					buffer[size++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+					buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else if (Character.isSurrogate(c)) {
+					buffer[size++] = '?';
+				} else {
+					buffer[size++] = (byte) (0xE0 | (c >> 12));
+					buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					buffer[size++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+			write('"');
+		}
+
+		private void writeControl(char c) {
+			byte escape = switch (c) {
+				case '\b' -> 'b';
+				case '\f' -> 'f';
+				case '\n' -> 'n';
+				case '\r' -> 'r';
+				case '\t' -> 't';
+				default -> 0;
+			};
+			buffer[size++] = '\\';
+			if (escape != 0) {
+				buffer[size++] = escape;
+			} else {
+				buffer[size++] = 'u';
+				buffer[size++] = '0';
+				buffer[size++] = '0';
+				buffer[size++] = HEX[c >> 4];
+				buffer[size++] = HEX[c & 0xF];
+			}
+		}
+
+		private void ensure(int length) throws IOException {
+			if (size + length > buffer.length) {
+				flushBuffer();
+			}
+		}
+
+		private void flushBuffer() throws IOException {
+			stream.write(buffer, 0, size);
+			size = 0;
+		}
+
+		void flush() throws IOException {
+			flushBuffer();
+			stream.flush();
+		}
+
+	}
+
+}
@@ -1,21 +1,77 @@
 package dev.samir.tips;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Logger;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueRetrievalException;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import dev.samir.cache.TieredCache;
+import dev.samir.datasource.ReadRouting;
+import dev.samir.search.TipSearchIndex;
+import dev.samir.search.Tokenizer;
 
 /**
  * Service class for managing tips.
  * This class is responsible for business logic related to tips.
  * It interacts with the TipRepository to perform database operations.
+ * The reads of the sessions and tips it has just written go through the ReadRouting,
+ * so they run on the primary database when a read replica is configured.
  */
 @Service
 public class TipService {
 
+	/**
+	 * Logger of the TipService.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TipService.class);
+
+	/**
+	 * Name of the cache holding the tips by ID.
+	 * Its size and expiration are set by "spring.cache.caffeine.spec" locally
+	 * and by "tips.cache.redis.time-to-live" in Redis.
+	 */
+	public static final String TIPS_CACHE = "tips";
+
+	/**
+	 * Name of the cache holding the encoded response bodies of the tips by ID.
+	 * It is local only, since the bodies are encoded from the "tips" cache.
+	 */
+	public static final String TIP_BODIES_CACHE = "tip-bodies";
+
+	/**
+	 * Name of the cache holding the tip IDs of the sessions by UUID.
+	 */
+	public static final String TIP_SESSIONS_CACHE = "tip-sessions";
+
+	/**
+	 * How many times a random draw is retried when the drawn tip no longer exists.
+	 */
+	private static final int MAX_RANDOM_DRAWS = 3;
+
 	/**
 	 * Repository for accessing tip data.
 	 * This class is used to interact with the database and perform
@@ -23,75 +79,545 @@ public class TipService {
 	 */
 	private TipRepository tipRepository;
 	
+	/**
+	 * In-memory index of the tip identifiers used to draw random tips.
+	 */
+	private RandomTipIndex randomTipIndex;
+	
+	/**
+	 * Holder of the tip of the moment, refreshed by the scheduled job.
+	 */
+	private TipOfTheMoment tipOfTheMoment;
+	
+	/**
+	 * Cache manager used to read the cached sessions and to evict the tips changed by bulk operations.
+	 */
+	private CacheManager cacheManager;
+	
+	/**
+	 * Reader of the sessions too large to be cached, in partitions read concurrently.
+	 */
+	private TipSessionFetcher sessionFetcher;
+	
+	/**
+	 * In-memory inverted index of the tip messages used to search tips.
+	 */
+	private TipSearchIndex searchIndex;
+	
+	/**
+	 * Routing of the reads, kept on the primary database for the sessions and tips written recently.
+	 */
+	private ReadRouting readRouting;
+	
+	/**
+	 * Indexes and caches updated when tips change, shared with the ReactiveTipService.
+	 */
+	private TipChanges tipChanges;
+	
+	/**
+	 * Maximum number of tips of a session kept in the "tip-sessions" cache.
+	 */
+	private int maxSessionSize;
+	
+	/**
+	 * Coalescing of the concurrent database reads of the same session.
+	 */
+	private final SingleFlight<String, List<TipResponse>> sessionLoads = new SingleFlight<>();
+	
+	/**
+	 * Coalescing of the concurrent database reads of the same tip.
+	 */
+	private final SingleFlight<Long, Optional<TipResponse>> tipLoads = new SingleFlight<>();
+	
 	/**
 	 * Constructor for TipService.
 	 * This constructor is used to inject the TipRepository dependency.
 	 * @param tipRepository the TipRepository instance
+	 * @param randomTipIndex the RandomTipIndex instance
+	 * @param tipOfTheMoment the TipOfTheMoment instance
+	 * @param cacheManager the CacheManager instance
+	 * @param sessionFetcher the TipSessionFetcher instance
+	 * @param searchIndex the TipSearchIndex instance
+	 * @param readRouting the ReadRouting instance
+	 * @param tipChanges the TipChanges instance
+	 * @param maxSessionSize the maximum number of tips of a cached session
 	 */
-	public TipService(TipRepository tipRepository) {
+	public TipService(TipRepository tipRepository, RandomTipIndex randomTipIndex, TipOfTheMoment tipOfTheMoment, CacheManager cacheManager,
+			TipSessionFetcher sessionFetcher, TipSearchIndex searchIndex, ReadRouting readRouting, TipChanges tipChanges,
+			@Value("${tips.cache.max-session-size:1000}") int maxSessionSize) {
 		this.tipRepository = tipRepository;
+		this.randomTipIndex = randomTipIndex;
+		this.tipOfTheMoment = tipOfTheMoment;
+		this.cacheManager = cacheManager;
+		this.sessionFetcher = sessionFetcher;
+		this.searchIndex = searchIndex;
+		this.readRouting = readRouting;
+		this.tipChanges = tipChanges;
+		this.maxSessionSize = maxSessionSize;
 	}
 	
 	/**
 	 * Method to find a random tip.
-	 * This method uses the TipRepository to retrieve a random tip from the database.
-	 * It is scheduled to run every 3 seconds.
+	 * This method draws a random identifier from the RandomTipIndex and loads it by primary key.
+	 * Until the index is built it falls back to the "order by random()" query.
 	 * @return a random Tip object
 	 */
-	@Scheduled(fixedRate = 3, timeUnit = TimeUnit.SECONDS)
 	public Tip findRandomTip() {
-		Tip tip = tipRepository.findRandomTip();
+		return randomTipIndex.isReady() ? drawRandomTip() : tipRepository.findRandomTip();
+	}
+	
+	/**
+	 * Draw a new tip of the moment and publish it to the TipOfTheMoment holder.
+	 * It is scheduled to run every "tips.moment.interval", 3 seconds by default.
+	 * This is the only place drawing random tips for the "current" mode, so each
+	 * instance loads a single tip per tick however many clients are reading it.
+	 */
+	@Scheduled(fixedRateString = "${tips.moment.interval:PT3S}")
+	public void refreshTipOfTheMoment() {
+		Tip tip = findRandomTip();
 		if (tip != null) { 
-			Logger.getGlobal().info("Tip #" + tip.getId() + " [" + tip.getMessage() + "]");
+			tipOfTheMoment.publish(new TipResponse(tip.getId(), tip.getMessage()));
+			LOGGER.debug("Tip #{} [{}]", tip.getId(), tip.getMessage());
+		}
+	}
+	
+	/**
+	 * Draw a random tip ID from the index, without touching the database.
+	 * The tip may have been deleted by someone else since it was indexed.
+	 * @return a random tip ID, or empty if the index isn't ready or has no tips
+	 */
+	public OptionalLong drawRandomTipId() {
+		return randomTipIndex.isReady() ? randomTipIndex.draw() : OptionalLong.empty();
+	}
+	
+	/**
+	 * Draw a random tip from the index.
+	 * Identifiers of tips deleted by someone else are dropped from the index and the draw is retried.
+	 * @return a random Tip object, or null if there are no tips
+	 */
+	private Tip drawRandomTip() {
+		for (int attempt = 0; attempt < MAX_RANDOM_DRAWS; attempt++) {
+			OptionalLong id = randomTipIndex.draw();
+			if (id.isEmpty()) {
+				return null;
+			}
+			Optional<Tip> tip = readRouting.read(id.getAsLong(), () -> tipRepository.findById(id.getAsLong()));
+			if (tip.isPresent()) {
+				return tip.get();
+			}
+			randomTipIndex.remove(id.getAsLong());
+		}
+		return tipRepository.findRandomTip();
+	}
+	
+	/**
+	 * Get all tips for a given UUID, ordered by ID.
+	 * The IDs of the session come from the "tip-sessions" cache and the tips from the "tips" cache,
+	 * so a cached session doesn't touch the database. Sessions with more than "tips.cache.max-session-size" tips
+	 * are always read from the database, in partitions read concurrently once they are large enough. Either way, concurrent callers missing the same session
+	 * share a single query, through the single-flight of the sessions.
+	 * @param uuid the session identifier
+	 * @return a list of TipResponse objects
+	 */
+	public List<TipResponse> getAllTips(String uuid) {
+		SessionTipIds session = cacheManager.getCache(TIP_SESSIONS_CACHE).get(uuid, SessionTipIds.class);
+		if (session == null || session.ids() == null) {
+			return sessionLoads.execute(uuid, () -> loadSession(uuid));
+		}
+		return resolveSession(uuid, session.ids());
+	}
+	
+	/**
+	 * Read the tips of a session that isn't cached, and cache it.
+	 * The session is loaded through the cache, so an eviction running at the same time waits for the load
+	 * instead of being overwritten by it, and a session cached by another node is read from Redis.
+	 * @param uuid the session identifier
+	 * @return the tips of the session, ordered by ID
+	 */
+	private List<TipResponse> loadSession(String uuid) {
+		AtomicReference<List<TipResponse>> loaded = new AtomicReference<>();
+		SessionTipIds session = cacheManager.getCache(TIP_SESSIONS_CACHE).get(uuid, () -> {
+			List<TipResponse> tips = readRouting.read(uuid, () -> tipRepository.findAllByUuid(uuid));
+			loaded.set(tips);
+			return cacheSession(tips);
+		});
+		if (loaded.get() != null) {
+			return loaded.get();
+		}
+		if (session.ids() == null) {
+			return readRouting.read(uuid, () -> sessionFetcher.fetch(uuid));
+		}
+		return resolveSession(uuid, session.ids());
+	}
+	
+	/**
+	 * Coalescing of the database reads of the sessions, for the metrics.
+	 * @return the single-flight of the sessions
+	 */
+	SingleFlight<String, List<TipResponse>> getSessionLoads() {
+		return sessionLoads;
+	}
+	
+	/**
+	 * Coalescing of the database reads of the tips, for the metrics.
+	 * @return the single-flight of the tips
+	 */
+	SingleFlight<Long, Optional<TipResponse>> getTipLoads() {
+		return tipLoads;
+	}
+	
+	/**
+	 * Put the tips of a session in the "tips" cache and build the cached session.
+	 * @param tips the tips of the session, ordered by ID
+	 * @return the IDs of the session, without IDs if the session is too large to be cached
+	 */
+	private SessionTipIds cacheSession(List<TipResponse> tips) {
+		if (tips.size() > maxSessionSize) {
+			return new SessionTipIds(null);
+		}
+		long[] ids = new long[tips.size()];
+		Map<Long, TipResponse> byId = new HashMap<>(tips.size() * 2);
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = tips.get(i).id();
+			byId.put(ids[i], tips.get(i));
+		}
+		putAll(cacheManager.getCache(TIPS_CACHE), byId);
+		return new SessionTipIds(ids);
+	}
+	
+	/**
+	 * Read the tips of a cached session from the "tips" cache, and the missing ones from the database.
+	 * Tips deleted by ID since the session was cached are skipped and the session is evicted,
+	 * so it is read again from the database next time.
+	 * @param uuid the session identifier
+	 * @param ids the cached IDs of the session
+	 * @return the tips of the session, ordered by ID
+	 */
+	private List<TipResponse> resolveSession(String uuid, long[] ids) {
+		List<TipResponse> session = resolve(ids);
+		if (session.size() < ids.length) {
+			cacheManager.getCache(TIP_SESSIONS_CACHE).evict(uuid);
+		}
+		return session;
+	}
+	
+	/**
+	 * Read tips by ID from the "tips" cache, and the missing ones from the database with a single query.
+	 * The tips read from the database are cached.
+	 * @param ids the IDs of the tips
+	 * @return the tips that exist, in the order of the IDs
+	 */
+	private List<TipResponse> resolve(long[] ids) {
+		Cache tips = cacheManager.getCache(TIPS_CACHE);
+		List<Long> keys = Arrays.stream(ids).boxed().toList();
+		Map<Object, Object> found = getAll(tips, keys);
+		if (found.size() < ids.length) {
+			List<Long> missing = keys.stream().filter(id -> !found.containsKey(id)).toList();
+			Map<Long, TipResponse> loaded = new HashMap<>(missing.size() * 2);
+			for (TipResponse tip : readRouting.readAll(missing, () -> tipRepository.findAllResponsesById(missing))) {
+				loaded.put(tip.id(), tip);
+			}
+			putAll(tips, loaded);
+			found.putAll(loaded);
+		}
+		List<TipResponse> resolved = new ArrayList<>(ids.length);
+		for (Long id : keys) {
+			if (found.get(id) instanceof TipResponse tip) {
+				resolved.add(tip);
+			}
+		}
+		return resolved;
+	}
+	
+	/**
+	 * Search the tips whose message holds every term of a query, ordered by ID.
+	 * The candidates come from the TipSearchIndex and are read through the "tips" cache;
+	 * only the ones whose current message still holds every term are returned,
+	 * which drops the stale entries of the tips updated or deleted since the index was built.
+	 * @param query the search query, split into terms by the Tokenizer
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips to return
+	 * @return a list of TipResponse objects
+	 */
+	public List<TipResponse> search(String query, long afterId, int limit) {
+		List<String> terms = Tokenizer.terms(query);
+		List<TipResponse> found = new ArrayList<>(Math.min(limit, 64));
+		if (terms.isEmpty()) {
+			return found;
+		}
+		long after = afterId;
+		while (found.size() < limit) {
+			long[] candidates = searchIndex.search(terms, after, limit - found.size());
+			if (candidates.length == 0) {
+				break;
+			}
+			for (TipResponse tip : resolve(candidates)) {
+				if (Tokenizer.containsAll(tip.message(), terms)) {
+					found.add(tip);
+				}
+			}
+			after = candidates[candidates.length - 1];
 		}
-		return tip;
+		return found;
+	}
+	
+	/**
+	 * Whether the search index has been built and can serve searches.
+	 * @return true if tips can be searched
+	 */
+	public boolean isSearchReady() {
+		return searchIndex.isReady();
+	}
+	
+	/**
+	 * Get a page of the tips for a given UUID, ordered by ID.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips to return
+	 * @return a list of TipResponse objects
+	 */
+	public List<TipResponse> getTipsPage(String uuid, long afterId, int limit) {
+		return readRouting.read(uuid, () -> tipRepository.findPageByUuid(uuid, afterId, Limit.of(limit)));
 	}
 	
 	/**
-	 * Get all tips from the database for a given UUID.
-	 * @return a list of Tip objects
+	 * Stream all tips for a given UUID, ordered by ID, to the given action.
+	 * The tips are handed over one by one as they are read from the database cursor,
+	 * so the memory used doesn't depend on how many tips the UUID owns.
+	 * @param uuid the session identifier
+	 * @param action the action to perform on each tip
 	 */
-	public List<Tip> getAllTips(String uuid) {
-		return StreamSupport.stream(tipRepository.findAllByUuid(uuid).spliterator(), true).toList();
+	@Transactional(readOnly = true)
+	public void streamAllTips(String uuid, Consumer<TipResponse> action) {
+		readRouting.run(uuid, () -> {
+			try (Stream<TipResponse> tips = tipRepository.streamAllByUuid(uuid)) {
+				tips.forEach(action);
+			}
+		});
 	}
 	
 	/**
 	 * Get a tip by its ID.
-	 * This method retrieves a tip from the database using its ID.
+	 * This method retrieves a tip from the "tips" cache, or from the database using its ID
+	 * on a cache miss. Concurrent misses of the same tip share a single query, through the
+	 * single-flight of the tips. Tips that are not found are not cached.
 	 * @param id the ID of the tip to retrieve
-	 * @return the Tip object with the specified ID, or null if not found
+	 * @return the tip with the specified ID
 	 * @throws TipNotFoundException if the tip is not found
 	 */
-	public Tip findById(Long id) throws TipNotFoundException {
-		return tipRepository.findById(id).orElseThrow(TipNotFoundException::new);
+	public TipResponse findById(Long id) throws TipNotFoundException {
+		TipResponse tip = cacheManager.getCache(TIPS_CACHE).get(id, TipResponse.class);
+		if (tip != null) {
+			return tip;
+		}
+		return tipLoads.execute(id, () -> loadTip(id)).orElseThrow(TipNotFoundException::new);
+	}
+	
+	/**
+	 * Read a tip that isn't cached, and cache it.
+	 * Like sessions, the tip is loaded through the cache so a concurrent eviction isn't overwritten.
+	 * @param id the ID of the tip
+	 * @return the tip, or empty if it doesn't exist
+	 */
+	private Optional<TipResponse> loadTip(Long id) {
+		try {
+			return Optional.of(cacheManager.getCache(TIPS_CACHE).get(id, () -> readRouting.read(id, () -> tipRepository.findResponseById(id)).orElseThrow(TipNotFoundException::new)));
+		} catch (ValueRetrievalException e) {
+			if (e.getCause() instanceof TipNotFoundException) {
+				return Optional.empty();
+			}
+			throw e;
+		}
 	}
 	
 	/**
-	 * This method updates a tip in the database.
-	 * @param tip the Tip object to save or update
-	 * @return the saved or updated Tip object
+	 * Get the encoded response body of a tip by its ID.
+	 * The body is encoded once and kept in the "tip-bodies" cache until the tip changes,
+	 * so serving it again is a copy of the cached bytes. The tip itself is read through the "tips" cache.
+	 * @param id the ID of the tip to retrieve
+	 * @return the encoded tip
 	 * @throws TipNotFoundException if the tip is not found
 	 */
-	public Tip update(Tip tip) throws TipNotFoundException {
-		return tipRepository.save(findById(tip.getId()));
+	@Cacheable(cacheNames = TIP_BODIES_CACHE, key = "#id", sync = true)
+	public EncodedTip findEncodedById(Long id) throws TipNotFoundException {
+		return EncodedTip.of(findById(id));
 	}
 	
 	/**
-	 * This method deletes a tip from the database.
+	 * This method updates the message of a tip in the database and evicts it from the caches.
+	 * The tip is updated with a single statement, and the number of updated rows tells whether it exists.
+	 * @param tip the new message of the tip
+	 * @return the updated tip
+	 * @throws TipNotFoundException if the tip is not found
+	 */
+	@CacheEvict(cacheNames = { TIPS_CACHE, TIP_BODIES_CACHE }, key = "#tip.id()")
+	public TipResponse update(TipUpdate tip) throws TipNotFoundException {
+		if (tipRepository.updateMessage(tip.id(), tip.message()) == 0) {
+			throw new TipNotFoundException();
+		}
+		readRouting.written(tip.id());
+		tipLoads.forget(tip.id());
+		tipChanges.updated(tip.id(), tip.message());
+		return new TipResponse(tip.id(), tip.message());
+	}
+	
+	/**
+	 * This method updates the message of many tips with a batched statement and evicts them from the caches.
+	 * @param tips the new messages of the tips
+	 * @return the summary of the update, with the IDs of the tips that don't exist
+	 */
+	public TipUpdateResult updateAll(List<TipUpdate> tips) {
+		int[] counts = tipRepository.updateMessages(tips);
+		List<Long> ids = new ArrayList<>(counts.length);
+		List<Long> notFound = new ArrayList<>();
+		for (int i = 0; i < counts.length; i++) {
+			Long id = tips.get(i).id();
+			if (counts[i] == 0) {
+				notFound.add(id);
+			} else {
+				tipChanges.updated(id, tips.get(i).message());
+			}
+			ids.add(id);
+			tipLoads.forget(id);
+		}
+		readRouting.writtenAll(ids);
+		tipChanges.evict(ids, List.of());
+		return new TipUpdateResult(tips.size(), tips.size() - notFound.size(), notFound);
+	}
+	
+	/**
+	 * This method deletes a tip from the database and evicts it from the caches.
+	 * The tip is deleted with a single statement, and the number of deleted rows tells whether it existed.
 	 * @param id the ID of the tip to delete
 	 * @throws TipNotFoundException if the tip is not found
 	 */
+	@CacheEvict(cacheNames = { TIPS_CACHE, TIP_BODIES_CACHE }, key = "#id")
 	public void delete(Long id) throws TipNotFoundException {
-		tipRepository.deleteById(findById(id).getId());
+		if (tipRepository.deleteTipById(id) == 0) {
+			throw new TipNotFoundException();
+		}
+		readRouting.written(id);
+		tipLoads.forget(id);
+		tipChanges.deleted(List.of(id));
+	}
+	
+	/**
+	 * This method deletes many tips with a single statement and evicts them from the caches.
+	 * IDs of tips that don't exist are ignored.
+	 * @param ids the IDs of the tips to delete
+	 * @return the summary of the delete
+	 */
+	public TipDeleteResult deleteAll(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return new TipDeleteResult(0, 0);
+		}
+		int deleted = tipRepository.deleteTipsById(ids);
+		forget(ids, List.of());
+		return new TipDeleteResult(ids.size(), deleted);
+	}
+	
+	/**
+	 * This method deletes all tips of a session by UUID and evicts them and the session from the caches.
+	 * @param uuid the session identifier
+	 * @return the summary of the delete
+	 */
+	public TipDeleteResult deleteAllByUuid(String uuid) {
+		SessionDelete delete = tipRepository.deleteAllByUuid(uuid);
+		readRouting.written(uuid);
+		sessionLoads.forget(uuid);
+		forget(delete.ids(), List.of(uuid));
+		return new TipDeleteResult(delete.ids().size(), delete.deleted());
+	}
+	
+	/**
+	 * Evict deleted tips from the caches and remove them from the random tip and search indexes.
+	 * The sessions still holding their IDs drop them the next time they are read.
+	 * @param ids the IDs of the deleted tips
+	 * @param sessions the sessions to evict
+	 */
+	private void forget(List<Long> ids, List<String> sessions) {
+		readRouting.writtenAll(ids);
+		ids.forEach(tipLoads::forget);
+		tipChanges.deleted(ids);
+		tipChanges.evict(ids, sessions);
+	}
+	
+	/**
+	 * Get many values from a cache, with a single Redis round trip for a TieredCache.
+	 * @param cache the cache
+	 * @param keys the keys to look up
+	 * @return the values found, by key
+	 */
+	private static Map<Object, Object> getAll(Cache cache, Collection<?> keys) {
+		if (cache instanceof TieredCache tiered) {
+			return tiered.getAll(keys);
+		}
+		Map<Object, Object> values = new HashMap<>(keys.size() * 2);
+		for (Object key : keys) {
+			ValueWrapper value = cache.get(key);
+			if (value != null) {
+				values.put(key, value.get());
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Put many values in a cache, with a single Redis pipeline for a TieredCache.
+	 * @param cache the cache
+	 * @param values the values to put, by key
+	 */
+	private static void putAll(Cache cache, Map<?, ?> values) {
+		if (cache instanceof TieredCache tiered) {
+			tiered.putAll(values);
+		} else {
+			values.forEach(cache::put);
+		}
 	}
 	
 	/**
 	 * This method inserts a new tip into the database.
+	 * Any stale cache entry for the new ID is evicted, and so is the cached session of the tip.
 	 * @param tip the Tip object to insert
 	 * @return the inserted Tip object
 	 */
+	@Caching(evict = {
+		@CacheEvict(cacheNames = { TIPS_CACHE, TIP_BODIES_CACHE }, key = "#result.id"),
+		@CacheEvict(cacheNames = TIP_SESSIONS_CACHE, key = "#tip.uuid", condition = "#tip.uuid != null")
+	})
 	public Tip insert(Tip tip) {
-		return tipRepository.save(tip);
+		Tip inserted = tipRepository.save(tip);
+		readRouting.written(inserted.getId());
+		if (inserted.getUuid() != null) {
+			readRouting.written(inserted.getUuid());
+			sessionLoads.forget(inserted.getUuid());
+		}
+		tipChanges.inserted(inserted.getId(), inserted.getMessage());
+		return inserted;
+	}
+	
+	/**
+	 * This method inserts a batch of new tips into the database in a single transaction.
+	 * The IDs come from the sequence in blocks, so Hibernate sends the inserts as JDBC batches.
+	 * The cached sessions of the tips are evicted.
+	 * @param tips the Tip objects to insert
+	 * @return the inserted Tip objects
+	 */
+	public List<Tip> insertAll(List<Tip> tips) {
+		List<Tip> inserted = new ArrayList<>(tips.size());
+		Set<String> sessions = new HashSet<>();
+		for (Tip tip : tipRepository.saveAll(tips)) {
+			readRouting.written(tip.getId());
+			tipChanges.inserted(tip.getId(), tip.getMessage());
+			inserted.add(tip);
+			if (tip.getUuid() != null) {
+				sessions.add(tip.getUuid());
+			}
+		}
+		readRouting.writtenAll(sessions);
+		sessions.forEach(sessionLoads::forget);
+		tipChanges.evict(List.of(), sessions);
+		return inserted;
 	}
 
 }
@@ -0,0 +1,144 @@
+package dev.samir.tips;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import dev.samir.datasource.ReadRouting;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reader of the sessions too large to be cached.
+ * Unless "tips.parallel-fetch.enabled" is set, every session is read with a single query.
+ * Otherwise sessions with fewer than "tips.parallel-fetch.min-size" tips are read with a single query.
+ * Larger ones are split into ranges of tip IDs of about "tips.parallel-fetch.partition-size" tips,
+ * read concurrently and merged in ID order. The ranges are read on a dedicated executor of
+ * "tips.parallel-fetch.threads" threads, so a burst of large sessions can't take every
+ * database connection; when its queue is full the caller reads the range itself.
+ * <p>
+ * Each range is read with its own connection, so the ranges don't share a snapshot:
+ * like the cached sessions, a session changed while it is read may be returned partially updated.
+ * <p>
+ * Partitions only pay off when the database can serve them in parallel, typically a remote database
+ * over the network. Against the embedded H2 database TipSessionFetchBenchmark measured the partitioned
+ * read slower than the single query at every size, up to 200,000 tips, which is why it is disabled by default.
+ */
+@Component
+public class TipSessionFetcher {
+
+	/**
+	 * Repository for accessing tip data.
+	 */
+	private TipRepository tipRepository;
+
+	/**
+	 * Whether large sessions are read in partitions.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Smallest session read in partitions.
+	 */
+	private int minSize;
+
+	/**
+	 * Target number of tips per partition.
+	 */
+	private int partitionSize;
+
+	/**
+	 * Most partitions per session, the number of threads of the executor.
+	 */
+	private int maxPartitions;
+
+	/**
+	 * Executor reading the partitions.
+	 */
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Constructor for TipSessionFetcher.
+	 * @param tipRepository the TipRepository instance
+	 * @param enabled whether large sessions are read in partitions
+	 * @param minSize the smallest session read in partitions
+	 * @param partitionSize the target number of tips per partition
+	 * @param threads the number of threads reading the partitions, and the most partitions per session
+	 * @param queueCapacity the number of partitions waiting for a thread before the callers read them
+	 */
+	public TipSessionFetcher(TipRepository tipRepository,
+			@Value("${tips.parallel-fetch.enabled:false}") boolean enabled,
+			@Value("${tips.parallel-fetch.min-size:20000}") int minSize,
+			@Value("${tips.parallel-fetch.partition-size:10000}") int partitionSize,
+			@Value("${tips.parallel-fetch.threads:4}") int threads,
+			@Value("${tips.parallel-fetch.queue-capacity:64}") int queueCapacity) {
+		this.tipRepository = tipRepository;
+		this.enabled = enabled;
+		this.minSize = minSize;
+		this.partitionSize = partitionSize;
+		this.maxPartitions = threads;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+			new CustomizableThreadFactory("tip-fetch-"), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Read all tips of a large session, ordered by ID.
+	 * The bounds of its IDs are read first, from the index, to split it into partitions.
+	 * @param uuid the session identifier
+	 * @return the tips of the session
+	 */
+	public List<TipResponse> fetch(String uuid) {
+		if (!enabled) {
+			return tipRepository.findAllByUuid(uuid);
+		}
+		TipIdRange range = tipRepository.findIdRangeByUuid(uuid);
+		if (range == null || range.count() == null || range.count() < minSize) {
+			return tipRepository.findAllByUuid(uuid);
+		}
+		int partitions = (int) Math.min(maxPartitions, (range.count() + partitionSize - 1) / partitionSize);
+		if (partitions < 2) {
+			return tipRepository.findAllByUuid(uuid);
+		}
+		long span = (range.maxId() - range.minId()) / partitions + 1;
+		List<Future<List<TipResponse>>> parts = new ArrayList<>(partitions);
+		for (int i = 0; i < partitions; i++) {
+			long fromId = range.minId() + i * span;
+			long toId = i == partitions - 1 ? range.maxId() : fromId + span - 1;
+			parts.add(executor.submit(ReadRouting.inherit(() -> tipRepository.findRangeByUuid(uuid, fromId, toId))));
+		}
+		List<TipResponse> tips = new ArrayList<>(range.count().intValue());
+		try {
+			for (Future<List<TipResponse>> part : parts) {
+				tips.addAll(part.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading session " + uuid, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException("Failed to read session " + uuid, e.getCause());
+		} finally {
+			parts.forEach(part -> part.cancel(true));
+		}
+		return tips;
+	}
+
+	/**
+	 * Stop the executor when the application shuts down.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
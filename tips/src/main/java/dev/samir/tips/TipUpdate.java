@@ -0,0 +1,14 @@
+package dev.samir.tips;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * New message of an existing tip.
+ * @param id the tip ID
+ * @param message the new message
+ */
+public record TipUpdate(
+	@NotNull(message = "The ID can't be null.") Long id,
+	@NotBlank(message = "The message can't be blank.") @Size(max = 254, message = "The message can't be longer than 254 characters.") String message) {}
@@ -0,0 +1,11 @@
+package dev.samir.tips;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk tip update.
+ * @param received the number of updates in the request
+ * @param updated the number of updates applied
+ * @param notFound the IDs of the tips that don't exist
+ */
+public record TipUpdateResult(int received, int updated, List<Long> notFound) {}
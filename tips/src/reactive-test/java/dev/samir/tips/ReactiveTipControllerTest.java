@@ -0,0 +1,142 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import dev.samir.draft.Draft;
+import dev.samir.draft.DraftRepository;
+import dev.samir.draft.EmbeddedRedis;
+
+/**
+ * Test for the reactive profile, on Netty with R2DBC over the H2 test database and an embedded Redis server.
+ * It tests that the reactive endpoints keep the contract of the TipController.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-test;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-test;DB_CLOSE_DELAY=-1" })
+@ActiveProfiles({ "test", "reactive" })
+class ReactiveTipControllerTest {
+
+    private static final String UUID = "123e4567-e89b-12d3-a456-426614174000";
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        EmbeddedRedis.register(registry);
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DraftRepository draftRepository;
+
+    /**
+     * The tips of a session are read whole, by page with a Link to the next one, and as NDJSON.
+     */
+    @Test
+    void testGetAllTips() {
+        webTestClient.get().uri("/api/tip?uuid={uuid}", UUID).exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(3)
+            .jsonPath("$[0].message").isEqualTo("First Message");
+
+        webTestClient.get().uri("/api/tip?uuid={uuid}&limit=2", UUID).exchange()
+            .expectStatus().isOk()
+            .expectHeader().value(HttpHeaders.LINK, link -> assertTrue(link.contains("afterId=2")))
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2);
+
+        List<TipResponse> streamed = webTestClient.get().uri("/api/tip/stream?uuid={uuid}", UUID)
+            .accept(MediaType.APPLICATION_NDJSON).exchange()
+            .expectStatus().isOk()
+            .returnResult(TipResponse.class).getResponseBody()
+            .collectList().block();
+        assertEquals(List.of(new TipResponse(1L, "First Message"), new TipResponse(2L, "Second Message"), new TipResponse(3L, "Third Message")), streamed);
+    }
+
+    /**
+     * A tip is inserted, read with its ETag, updated and deleted.
+     */
+    @Test
+    void testTipLifecycle() {
+        TipResponse inserted = webTestClient.post().uri("/api/tip")
+            .bodyValue(new TipRequest("Reactive Message", "lifecycle")).exchange()
+            .expectStatus().isOk()
+            .expectBody(TipResponse.class).returnResult().getResponseBody();
+        assertEquals("Reactive Message", inserted.message());
+
+        String etag = webTestClient.get().uri("/api/tip/{id}", inserted.id()).exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.message").isEqualTo("Reactive Message")
+            .returnResult().getResponseHeaders().getETag();
+        webTestClient.get().uri("/api/tip/{id}", inserted.id()).header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+            .expectStatus().isNotModified();
+
+        webTestClient.patch().uri("/api/tip")
+            .bodyValue(new TipUpdate(inserted.id(), "Updated Message")).exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.message").isEqualTo("Updated Message");
+
+        webTestClient.delete().uri("/api/tip/{id}", inserted.id()).exchange()
+            .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/tip/{id}", inserted.id()).exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * A bulk insert streamed as NDJSON reports the invalid tips and inserts the rest.
+     */
+    @Test
+    void testBulkInsert() {
+        String body = """
+            {"message":"Bulk Message","uuid":"bulk"}
+            {"message":"","uuid":"bulk"}
+            {"message":"Other Bulk Message","uuid":"bulk"}
+            """;
+
+        webTestClient.post().uri("/api/tip/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON).bodyValue(body).exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.received").isEqualTo(3)
+            .jsonPath("$.inserted").isEqualTo(2)
+            .jsonPath("$.failures[0].index").isEqualTo(1);
+
+        webTestClient.delete().uri("/api/tip?uuid=bulk").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.deleted").isEqualTo(2);
+    }
+
+    /**
+     * Drafts saved through the reactive path can be read through the DraftRepository.
+     */
+    @Test
+    void testDraft() {
+        draftRepository.save(new Draft(100L, "Old Draft", "a"));
+
+        webTestClient.post().uri("/api/draft")
+            .bodyValue(List.of(new Draft(100L, "Moved Draft", "b"), new Draft(null, "Invalid Draft", "b"))).exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("SAVED")
+            .jsonPath("$[1].status").isEqualTo("FAILED");
+
+        assertTrue(draftRepository.findAllByUuid("a").isEmpty());
+        assertEquals(List.of(new Draft(100L, "Moved Draft", "b")), draftRepository.findAllByUuid("b"));
+    }
+
+}
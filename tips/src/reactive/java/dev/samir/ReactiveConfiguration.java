@@ -0,0 +1,26 @@
+package dev.samir;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the reactive profile, only compiled with the "reactive" Maven profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveConfiguration {
+
+	/**
+	 * Web server of the reactive profile.
+	 * Tomcat is on the classpath for Spring MVC and Spring Boot would prefer it, so Netty is chosen explicitly.
+	 * @return the Netty server factory
+	 */
+	@Bean
+	NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+}
@@ -0,0 +1,151 @@
+package dev.samir.draft;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the DraftService, used by the reactive profile.
+ * Every draft of a batch is written right away with a ReactiveRedisTemplate, in the layout of the
+ * DraftRepository: the value of the draft, the set of its session and the set of every draft ID.
+ * The current version of each draft is read first, to know which session it leaves, then the draft is
+ * written by a Lua script, atomically like the MULTI block of the DraftRepository. The commands of a batch
+ * are sent without waiting for each other over the shared Lettuce connection.
+ * There is no write-behind buffer: drafts saved many times are written every time.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveDraftService {
+
+	/**
+	 * Script writing one draft.
+	 * KEYS are the value of the draft, the set of its session, the set of every draft ID and, when the draft
+	 * moves from another session, the set of that session; ARGV are the draft ID and the serialized draft.
+	 */
+	private static final RedisScript<Long> UPSERT = RedisScript.of("""
+		redis.call('SET', KEYS[1], ARGV[2])
+		if KEYS[4] then redis.call('SREM', KEYS[4], ARGV[1]) end
+		redis.call('SADD', KEYS[2], ARGV[1])
+		redis.call('SADD', KEYS[3], ARGV[1])
+		return 1
+		""", Long.class);
+
+	/**
+	 * Most drafts of a batch in flight before their replies are received.
+	 */
+	private static final int MAX_IN_FLIGHT = 64;
+
+	/**
+	 * Template running the commands, with raw keys and values.
+	 */
+	private ReactiveRedisTemplate<byte[], byte[]> redisTemplate;
+
+	/**
+	 * Serializer of the drafts, the value serializer of the RedisTemplate used by the DraftRepository.
+	 */
+	private RedisSerializer<Object> redisValueSerializer;
+
+	/**
+	 * Constructor for ReactiveDraftService.
+	 * @param connectionFactory the reactive connection factory of Redis
+	 * @param redisValueSerializer the serializer of the values stored through the RedisTemplate
+	 */
+	public ReactiveDraftService(ReactiveRedisConnectionFactory connectionFactory, RedisSerializer<Object> redisValueSerializer) {
+		this.redisTemplate = new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.byteArray());
+		this.redisValueSerializer = redisValueSerializer;
+	}
+
+	/**
+	 * Create or update a batch of drafts.
+	 * Drafts without an ID or a UUID are rejected, and only the last copy of a draft repeated in the batch is written.
+	 * If Redis fails, every valid draft of the batch is reported as not saved.
+	 * @param drafts the drafts to save
+	 * @return the result of each draft, in the order of the batch
+	 */
+	public Mono<List<DraftResult>> upsertAll(List<Draft> drafts) {
+		DraftResult[] results = new DraftResult[drafts.size()];
+		Map<Long, Draft> latest = new LinkedHashMap<>();
+		for (int i = 0; i < drafts.size(); i++) {
+			Draft draft = drafts.get(i);
+			if (draft == null || draft.id() == null) {
+				results[i] = DraftResult.failed(draft, "The draft ID can't be null.");
+			} else if (draft.uuid() == null || draft.uuid().isBlank()) {
+				results[i] = DraftResult.failed(draft, "The draft UUID can't be null or empty.");
+			} else {
+				latest.put(draft.id(), draft);
+			}
+		}
+		return Flux.fromIterable(latest.values())
+			.flatMap(this::write, MAX_IN_FLIGHT)
+			.then(Mono.fromSupplier(() -> fill(results, drafts, null)))
+			.onErrorResume(DataAccessException.class,
+				e -> Mono.just(fill(results, drafts, "The draft couldn't be saved: " + e.getMostSpecificCause().getMessage())));
+	}
+
+	/**
+	 * Complete the results of the valid drafts.
+	 * @param results the results, null for the valid drafts
+	 * @param drafts the drafts of the batch
+	 * @param error why the drafts weren't saved, or null if they were
+	 * @return the results of the batch
+	 */
+	private static List<DraftResult> fill(DraftResult[] results, List<Draft> drafts, String error) {
+		List<DraftResult> filled = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				filled.add(results[i]);
+			} else {
+				filled.add(error == null ? DraftResult.saved(drafts.get(i)) : DraftResult.failed(drafts.get(i), error));
+			}
+		}
+		return filled;
+	}
+
+	/**
+	 * Read the current version of a draft, then write the draft with the upsert script.
+	 * @param draft the draft
+	 * @return completes when the draft is written
+	 */
+	private Mono<Long> write(Draft draft) {
+		byte[] key = bytes(DraftRepository.key(draft.id()));
+		return redisTemplate.opsForValue().get(key)
+			.map(value -> redisValueSerializer.deserialize(value) instanceof Draft previous && previous.uuid() != null ? previous.uuid() : "")
+			.defaultIfEmpty("")
+			.flatMap(previousUuid -> {
+				List<byte[]> keys = new ArrayList<>();
+				keys.add(key);
+				keys.add(bytes(DraftRepository.sessionKey(draft.uuid())));
+				keys.add(bytes(DraftRepository.IDS));
+				if (!previousUuid.isEmpty() && !previousUuid.equals(draft.uuid())) {
+					keys.add(bytes(DraftRepository.sessionKey(previousUuid)));
+				}
+				List<byte[]> args = List.of(bytes(draft.id().toString()), redisValueSerializer.serialize(draft));
+				return redisTemplate.execute(UPSERT, keys, args).next();
+			});
+	}
+
+	/**
+	 * Encode a key or a set member.
+	 * @param value the key or member
+	 * @return its UTF-8 bytes
+	 */
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
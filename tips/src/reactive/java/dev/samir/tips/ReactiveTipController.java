@@ -0,0 +1,298 @@
+package dev.samir.tips;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.samir.draft.Draft;
+import dev.samir.draft.DraftResult;
+import dev.samir.draft.ReactiveDraftService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller of the reactive profile, serving the same "/api/tip" and "/api/draft" endpoints as the TipController
+ * with Spring WebFlux. No request holds a thread while it waits for the database or Redis:
+ * the handlers return a Mono or a Flux that Netty writes to the connection as the values are emitted.
+ * The tips of a session are streamed from the database cursor to the socket, and the cursor is only
+ * read as fast as the client reads the response.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping("/api")
+public class ReactiveTipController {
+
+	/**
+	 * Service class for managing tips without blocking.
+	 */
+	private ReactiveTipService tipService;
+
+	/**
+	 * Service class for managing drafts without blocking.
+	 */
+	private ReactiveDraftService draftService;
+
+	/**
+	 * Holder of the tip of the moment.
+	 */
+	private TipOfTheMoment tipOfTheMoment;
+
+	/**
+	 * Reactive stream of the tips of the moment.
+	 */
+	private ReactiveTipOfTheMoment tipOfTheMomentUpdates;
+
+	/**
+	 * Constructor for ReactiveTipController.
+	 * @param tipService the ReactiveTipService instance
+	 * @param draftService the ReactiveDraftService instance
+	 * @param tipOfTheMoment the TipOfTheMoment instance
+	 * @param tipOfTheMomentUpdates the ReactiveTipOfTheMoment instance
+	 */
+	public ReactiveTipController(ReactiveTipService tipService, ReactiveDraftService draftService, TipOfTheMoment tipOfTheMoment,
+			ReactiveTipOfTheMoment tipOfTheMomentUpdates) {
+		this.tipService = tipService;
+		this.draftService = draftService;
+		this.tipOfTheMoment = tipOfTheMoment;
+		this.tipOfTheMomentUpdates = tipOfTheMomentUpdates;
+	}
+
+	/**
+	 * Endpoint to get a random tip, or the tip of the moment in mode "current".
+	 * @param mode "random" or "current"
+	 * @return a random tip, or 404 if there are no tips
+	 */
+	@GetMapping("/tip/random")
+	public Mono<ResponseEntity<byte[]>> getRandomTip(@RequestParam(defaultValue = "random") @Pattern(regexp = "random|current", message = "The mode must be random or current.") String mode) {
+		Mono<TipResponse> tip = "current".equals(mode)
+			? Mono.justOrEmpty(tipOfTheMoment.current()).switchIfEmpty(Mono.defer(tipService::findRandomTip))
+			: tipService.findRandomTip();
+		return tip.map(found -> encoded(EncodedTip.of(found)))
+			.defaultIfEmpty(ResponseEntity.notFound().build());
+	}
+
+	/**
+	 * Endpoint to receive the tip of the moment over Server-Sent Events.
+	 * @return the "tip" events
+	 */
+	@GetMapping(value = "/tip/random/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<TipResponse>> streamTipOfTheMoment() {
+		return tipOfTheMomentUpdates.updates()
+			.map(tip -> ServerSentEvent.builder(tip)
+				.event(TipOfTheMoment.EVENT_NAME)
+				.id(String.valueOf(tip.id()))
+				.build());
+	}
+
+	/**
+	 * Endpoint to get all tips of a session, or one page of them when a limit is given.
+	 * If the page is full, the "Link" header points to the next page.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page
+	 * @param limit the maximum number of tips in the page
+	 * @param request the request, to build the link to the next page
+	 * @return the tips of the session, or a page of them
+	 */
+	@GetMapping("/tip")
+	public Mono<ResponseEntity<Flux<TipResponse>>> getAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid,
+			@RequestParam(required = false) @PositiveOrZero(message = "The afterId can't be negative.") Long afterId,
+			@RequestParam(required = false) @Min(value = 1, message = "The limit must be at least 1.") @Max(value = TipController.MAX_PAGE_SIZE, message = "The limit can't be greater than " + TipController.MAX_PAGE_SIZE + ".") Integer limit,
+			ServerHttpRequest request) {
+		if (limit == null) {
+			return Mono.just(ResponseEntity.ok(tipService.getAllTips(uuid)));
+		}
+		return tipService.getTipsPage(uuid, afterId == null ? 0L : afterId, limit)
+			.collectList()
+			.map(tips -> page(tips, limit, request));
+	}
+
+	/**
+	 * Endpoint to stream all tips of a session as they are read from the database,
+	 * as newline delimited JSON, or as a JSON array when only "application/json" is accepted.
+	 * @param uuid the session identifier
+	 * @return the tips of the session
+	 */
+	@GetMapping(value = "/tip/stream", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+	public Flux<TipResponse> streamAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid) {
+		return tipService.getAllTips(uuid);
+	}
+
+	/**
+	 * Endpoint to search tips, like the TipController does.
+	 * @param q the words to look for
+	 * @param afterId the ID of the last tip of the previous page
+	 * @param limit the maximum number of tips in the page
+	 * @param request the request, to build the link to the next page
+	 * @return a page of the matching tips, or 503 until the search index is built
+	 */
+	@GetMapping("/tip/search")
+	public Mono<ResponseEntity<Flux<TipResponse>>> searchTips(@RequestParam(required = true) @NotBlank(message = "The search query can't be blank.") String q,
+			@RequestParam(defaultValue = "0") @PositiveOrZero(message = "The afterId can't be negative.") long afterId,
+			@RequestParam(defaultValue = "20") @Min(value = 1, message = "The limit must be at least 1.") @Max(value = TipController.MAX_SEARCH_SIZE, message = "The limit can't be greater than " + TipController.MAX_SEARCH_SIZE + ".") int limit,
+			ServerHttpRequest request) {
+		if (!tipService.isSearchReady()) {
+			return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+		}
+		return tipService.search(q, afterId, limit)
+			.map(tips -> page(tips, limit, request));
+	}
+
+	/**
+	 * Endpoint to get a tip by its ID, with a strong ETag.
+	 * WebFlux answers 304 on its own when the ETag matches the "If-None-Match" header of a GET.
+	 * @param id the ID of the tip to retrieve
+	 * @return the tip, or 404 if it doesn't exist
+	 */
+	@GetMapping("/tip/{id}")
+	public Mono<ResponseEntity<byte[]>> getTipById(@PathVariable long id) {
+		return tipService.findById(id)
+			.map(tip -> encoded(EncodedTip.of(tip)))
+			.defaultIfEmpty(ResponseEntity.notFound().build());
+	}
+
+	/**
+	 * Endpoint to insert a new tip.
+	 * @param tip the tip to insert
+	 * @return the inserted tip
+	 */
+	@PostMapping("/tip")
+	public Mono<TipResponse> insert(@RequestBody @Valid TipRequest tip) {
+		return tipService.insert(tip);
+	}
+
+	/**
+	 * Endpoint to insert many tips at once, from a JSON array or newline delimited JSON body.
+	 * The body is decoded as it arrives and inserted in batches, so it can be arbitrarily large.
+	 * @param tips the tips of the body
+	 * @return the summary of the ingestion
+	 */
+	@PostMapping(value = "/tip/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public Mono<TipIngestResult> bulkInsert(@RequestBody Flux<JsonNode> tips) {
+		return tipService.ingest(tips);
+	}
+
+	/**
+	 * Endpoint to update an existing tip.
+	 * @param tip the ID and new message of the tip
+	 * @return the updated tip, or 404 if it doesn't exist
+	 */
+	@PatchMapping("/tip")
+	public Mono<ResponseEntity<TipResponse>> updateTip(@RequestBody @Valid TipUpdate tip) {
+		return tipService.update(tip)
+			.map(ResponseEntity::ok)
+			.defaultIfEmpty(ResponseEntity.notFound().build());
+	}
+
+	/**
+	 * Endpoint to update many tips at once, with one batched statement in a single transaction.
+	 * @param tips the IDs and new messages of the tips
+	 * @return the summary of the update, with the IDs of the tips that don't exist
+	 */
+	@PatchMapping("/tip/bulk")
+	public Mono<TipUpdateResult> bulkUpdate(@RequestBody @Size(max = TipController.MAX_BULK_UPDATE, message = "At most " + TipController.MAX_BULK_UPDATE + " tips can be updated at once.") List<@Valid TipUpdate> tips) {
+		return tipService.updateAll(tips);
+	}
+
+	/**
+	 * Endpoint to delete a tip by its ID.
+	 * @param id the ID of the tip to delete
+	 * @return 204, or 404 if the tip doesn't exist
+	 */
+	@DeleteMapping("/tip/{id}")
+	public Mono<ResponseEntity<Void>> deleteTip(@PathVariable long id) {
+		return tipService.delete(id)
+			.map(deleted -> deleted ? ResponseEntity.noContent().<Void>build() : ResponseEntity.notFound().<Void>build());
+	}
+
+	/**
+	 * Endpoint to delete many tips by their IDs, with one statement.
+	 * @param ids the IDs of the tips to delete
+	 * @return the summary of the delete
+	 */
+	@DeleteMapping("/tip/bulk")
+	public Mono<TipDeleteResult> bulkDelete(@RequestBody @Size(max = TipController.MAX_BULK_DELETE, message = "At most " + TipController.MAX_BULK_DELETE + " tips can be deleted at once.") List<@NotNull(message = "The tip ID can't be null.") Long> ids) {
+		return tipService.deleteAll(ids);
+	}
+
+	/**
+	 * Endpoint to delete all tips of a session.
+	 * @param uuid the session identifier
+	 * @return the summary of the delete
+	 */
+	@DeleteMapping("/tip")
+	public Mono<TipDeleteResult> deleteAllTips(@RequestParam(required = true) @NotEmpty(message = "Tips UUID can't be null or empty.") String uuid) {
+		return tipService.deleteAllByUuid(uuid);
+	}
+
+	/**
+	 * Create drafts of tips.
+	 * @param messages the drafts
+	 * @return the result of the upsert of each draft
+	 */
+	@PostMapping("/draft")
+	public Mono<List<DraftResult>> draft(@RequestBody List<Draft> messages) {
+		return draftService.upsertAll(messages);
+	}
+
+	/**
+	 * Build the response of a page of tips, with a "Link" header to the next page when the page is full.
+	 * @param tips the tips of the page
+	 * @param limit the maximum number of tips in the page
+	 * @param request the request of the page
+	 * @return the response
+	 */
+	private static ResponseEntity<Flux<TipResponse>> page(List<TipResponse> tips, int limit, ServerHttpRequest request) {
+		if (tips.size() < limit) {
+			return ResponseEntity.ok(Flux.fromIterable(tips));
+		}
+		URI next = UriComponentsBuilder.fromUri(request.getURI())
+			.replaceQueryParam("afterId", tips.getLast().id())
+			.build(true)
+			.toUri();
+		return ResponseEntity.ok()
+			.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+			.body(Flux.fromIterable(tips));
+	}
+
+	/**
+	 * Build the response serving an encoded tip.
+	 * @param tip the encoded tip
+	 * @return the response with the JSON body and its ETag
+	 */
+	private static ResponseEntity<byte[]> encoded(EncodedTip tip) {
+		return ResponseEntity.ok()
+			.contentType(MediaType.APPLICATION_JSON)
+			.eTag(tip.etag())
+			.body(tip.body());
+	}
+
+}
@@ -0,0 +1,76 @@
+package dev.samir.tips;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Reactive stream of the tips of the moment, used by the reactive profile.
+ * It listens to the TipOfTheMoment and emits every published tip to its subscribers.
+ * A subscriber too slow to take a tip misses it, so the tick never waits for a client.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveTipOfTheMoment {
+
+	/**
+	 * Sink of the published tips. A subscriber too slow to take a tip misses it.
+	 */
+	private final Sinks.Many<TipResponse> updates = Sinks.many().multicast().directBestEffort();
+
+	/**
+	 * Listener registered on the TipOfTheMoment.
+	 */
+	private final Consumer<TipResponse> listener = updates::tryEmitNext;
+
+	/**
+	 * Holder of the tip of the moment.
+	 */
+	private TipOfTheMoment tipOfTheMoment;
+
+	/**
+	 * How long a subscription lasts before the client has to reconnect.
+	 */
+	private Duration subscriptionTimeout;
+
+	/**
+	 * Constructor for ReactiveTipOfTheMoment.
+	 * @param tipOfTheMoment the TipOfTheMoment instance
+	 * @param subscriptionTimeout how long a subscription lasts
+	 */
+	public ReactiveTipOfTheMoment(TipOfTheMoment tipOfTheMoment,
+			@Value("${tips.moment.subscription-timeout:PT30M}") Duration subscriptionTimeout) {
+		this.tipOfTheMoment = tipOfTheMoment;
+		this.subscriptionTimeout = subscriptionTimeout;
+		tipOfTheMoment.addListener(listener);
+	}
+
+	/**
+	 * Stream of the tips of the moment, starting with the current one if there is one.
+	 * It completes after tips.moment.subscription-timeout, and the client reconnects.
+	 * @return the tips of the moment
+	 */
+	public Flux<TipResponse> updates() {
+		return Flux.defer(() -> Mono.justOrEmpty(tipOfTheMoment.current()).concatWith(updates.asFlux()))
+			.take(subscriptionTimeout);
+	}
+
+	/**
+	 * Stop listening and complete the subscribers on shutdown.
+	 */
+	@PreDestroy
+	void completeAll() {
+		tipOfTheMoment.removeListener(listener);
+		updates.tryEmitComplete();
+	}
+
+}
@@ -0,0 +1,293 @@
+package dev.samir.tips;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Statement;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking repository of the tips of the reactive profile, over the same "tb01_tips" table as the TipRepository.
+ * The queries run on an R2DBC connection pool of "spring.r2dbc.pool.max-size" connections to "spring.r2dbc.url",
+ * which must point to the database of "spring.datasource.url". Rows are emitted as the driver reads them and
+ * only as fast as they are requested, so a slow client slows the read down instead of buffering the rows.
+ * <p>
+ * The pool isn't exposed as a ConnectionFactory bean, since Spring Boot would then skip the JDBC DataSource
+ * that JPA, Liquibase and the in-memory indexes still use. The batched statements use the "$1" bind markers
+ * of H2 and PostgreSQL.
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveTipRepository {
+
+	/**
+	 * Columns of a TipResponse.
+	 */
+	private static final String COLUMNS = "tip_id, tip_message";
+
+	/**
+	 * Pool of the R2DBC connections.
+	 */
+	private ConnectionPool connectionPool;
+
+	/**
+	 * Client running the statements on the pool.
+	 */
+	private DatabaseClient databaseClient;
+
+	/**
+	 * Operator running the statements of a multi-statement operation in one transaction.
+	 */
+	private TransactionalOperator transactionalOperator;
+
+	/**
+	 * Constructor for ReactiveTipRepository.
+	 * @param url the R2DBC URL of the database
+	 * @param username the database user
+	 * @param password the database password
+	 * @param maxSize the most connections of the pool
+	 * @param maxAcquireTime how long a query waits for a free connection before it fails
+	 */
+	public ReactiveTipRepository(@Value("${spring.r2dbc.url}") String url,
+			@Value("${spring.r2dbc.username:sa}") String username,
+			@Value("${spring.r2dbc.password:}") String password,
+			@Value("${spring.r2dbc.pool.max-size:10}") int maxSize,
+			@Value("${spring.r2dbc.pool.max-acquire-time:PT30S}") Duration maxAcquireTime) {
+		ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+			.option(ConnectionFactoryOptions.USER, username)
+			.option(ConnectionFactoryOptions.PASSWORD, password)
+			.build();
+		this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+			.maxSize(maxSize)
+			.initialSize(Math.min(maxSize, 2))
+			.maxAcquireTime(maxAcquireTime)
+			.build());
+		this.databaseClient = DatabaseClient.create(connectionPool);
+		this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+	}
+
+	/**
+	 * Find a random tip with "order by random()", used until the random tip index is built.
+	 * @return the tip, or empty if there are no tips
+	 */
+	public Mono<TipResponse> findRandom() {
+		return databaseClient.sql("select " + COLUMNS + " from tb01_tips order by random() limit 1")
+			.map(ReactiveTipRepository::toResponse)
+			.one();
+	}
+
+	/**
+	 * Find a tip by its ID.
+	 * @param id the ID of the tip
+	 * @return the tip, or empty if it doesn't exist
+	 */
+	public Mono<TipResponse> findById(long id) {
+		return databaseClient.sql("select " + COLUMNS + " from tb01_tips where tip_id = :id")
+			.bind("id", id)
+			.map(ReactiveTipRepository::toResponse)
+			.one();
+	}
+
+	/**
+	 * Find many tips by ID, with a single query.
+	 * @param ids the IDs of the tips
+	 * @return the tips that exist, in no particular order
+	 */
+	public Flux<TipResponse> findAllById(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return Flux.empty();
+		}
+		return databaseClient.sql("select " + COLUMNS + " from tb01_tips where tip_id in (:ids)")
+			.bind("ids", ids)
+			.map(ReactiveTipRepository::toResponse)
+			.all();
+	}
+
+	/**
+	 * Stream all tips of a session, ordered by ID.
+	 * @param uuid the session identifier
+	 * @return the tips of the session
+	 */
+	public Flux<TipResponse> findAllByUuid(String uuid) {
+		return databaseClient.sql("select " + COLUMNS + " from tb01_tips where tip_uuid = :uuid order by tip_id")
+			.bind("uuid", uuid)
+			.map(ReactiveTipRepository::toResponse)
+			.all();
+	}
+
+	/**
+	 * Find a page of the tips of a session, ordered by ID, starting after the given ID.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips to return
+	 * @return the tips of the page
+	 */
+	public Flux<TipResponse> findPageByUuid(String uuid, long afterId, int limit) {
+		return databaseClient.sql("select " + COLUMNS + " from tb01_tips where tip_uuid = :uuid and tip_id > :afterId order by tip_id limit :limit")
+			.bind("uuid", uuid)
+			.bind("afterId", afterId)
+			.bind("limit", limit)
+			.map(ReactiveTipRepository::toResponse)
+			.all();
+	}
+
+	/**
+	 * Insert a tip. Its ID comes from the default value of the column, the next value of "tb01_tips_seq".
+	 * @param message the message of the tip
+	 * @param uuid the session identifier
+	 * @return the inserted tip
+	 */
+	public Mono<TipResponse> insert(String message, String uuid) {
+		return databaseClient.sql("insert into tb01_tips (tip_message, tip_uuid) values (:message, :uuid)")
+			.filter(statement -> statement.returnGeneratedValues("tip_id"))
+			.bind("message", message)
+			.bind("uuid", uuid)
+			.map(row -> new TipResponse(row.get("tip_id", Long.class), message))
+			.one();
+	}
+
+	/**
+	 * Insert many tips with one batched statement, in a single transaction.
+	 * @param tips the tips to insert
+	 * @return the inserted tips, in the order of the requests
+	 */
+	public Flux<TipResponse> insertAll(List<TipRequest> tips) {
+		if (tips.isEmpty()) {
+			return Flux.empty();
+		}
+		Flux<Long> ids = databaseClient.inConnectionMany(connection -> {
+			Statement statement = connection.createStatement("insert into tb01_tips (tip_message, tip_uuid) values ($1, $2)")
+				.returnGeneratedValues("tip_id");
+			for (int i = 0; i < tips.size(); i++) {
+				if (i > 0) {
+					statement.add();
+				}
+				statement.bind(0, tips.get(i).message()).bind(1, tips.get(i).uuid());
+			}
+			return Flux.from(statement.execute())
+				.concatMap(result -> result.map(row -> row.get("tip_id", Long.class)));
+		});
+		return ids.index()
+			.map(id -> new TipResponse(id.getT2(), tips.get(id.getT1().intValue()).message()))
+			.as(transactionalOperator::transactional);
+	}
+
+	/**
+	 * Update the message of a tip.
+	 * @param id the ID of the tip
+	 * @param message the new message
+	 * @return the number of updated rows, 0 if the tip doesn't exist
+	 */
+	public Mono<Long> updateMessage(long id, String message) {
+		return databaseClient.sql("update tb01_tips set tip_message = :message where tip_id = :id")
+			.bind("message", message)
+			.bind("id", id)
+			.fetch()
+			.rowsUpdated();
+	}
+
+	/**
+	 * Update the message of many tips with one batched statement, in a single transaction.
+	 * @param updates the IDs and new messages of the tips
+	 * @return the number of updated rows of each update, in order
+	 */
+	public Mono<List<Long>> updateMessages(List<TipUpdate> updates) {
+		if (updates.isEmpty()) {
+			return Mono.just(List.of());
+		}
+		return databaseClient.inConnectionMany(connection -> {
+			Statement statement = connection.createStatement("update tb01_tips set tip_message = $1 where tip_id = $2");
+			for (int i = 0; i < updates.size(); i++) {
+				if (i > 0) {
+					statement.add();
+				}
+				statement.bind(0, updates.get(i).message()).bind(1, updates.get(i).id());
+			}
+			return Flux.from(statement.execute())
+				.concatMap(result -> result.getRowsUpdated());
+		})
+			.collectList()
+			.as(transactionalOperator::transactional);
+	}
+
+	/**
+	 * Delete a tip.
+	 * @param id the ID of the tip
+	 * @return the number of deleted rows, 0 if the tip doesn't exist
+	 */
+	public Mono<Long> deleteById(long id) {
+		return databaseClient.sql("delete from tb01_tips where tip_id = :id")
+			.bind("id", id)
+			.fetch()
+			.rowsUpdated();
+	}
+
+	/**
+	 * Delete many tips with a single statement.
+	 * @param ids the IDs of the tips
+	 * @return the number of deleted rows
+	 */
+	public Mono<Long> deleteAllById(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return Mono.just(0L);
+		}
+		return databaseClient.sql("delete from tb01_tips where tip_id in (:ids)")
+			.bind("ids", ids)
+			.fetch()
+			.rowsUpdated();
+	}
+
+	/**
+	 * Delete all tips of a session with a single set-based statement on their UUID, in a single transaction.
+	 * Like the TipRepository, the IDs are read with "select ... for update" first, so the callers can evict them.
+	 * @param uuid the session identifier
+	 * @return the IDs of the tips of the session and the number of rows deleted
+	 */
+	public Mono<SessionDelete> deleteAllByUuid(String uuid) {
+		return databaseClient.sql("select tip_id from tb01_tips where tip_uuid = :uuid for update")
+			.bind("uuid", uuid)
+			.map(row -> row.get("tip_id", Long.class))
+			.all()
+			.collectList()
+			.flatMap(ids -> ids.isEmpty() ? Mono.just(new SessionDelete(ids, 0)) : databaseClient.sql("delete from tb01_tips where tip_uuid = :uuid")
+				.bind("uuid", uuid)
+				.fetch()
+				.rowsUpdated()
+				.map(deleted -> new SessionDelete(ids, deleted.intValue())))
+			.as(transactionalOperator::transactional);
+	}
+
+	/**
+	 * Close the pool when the application shuts down.
+	 */
+	@PreDestroy
+	public void close() {
+		connectionPool.dispose();
+	}
+
+	/**
+	 * Map a row to a TipResponse.
+	 * @param row the row, with the ID and message columns
+	 * @return the tip
+	 */
+	private static TipResponse toResponse(Readable row) {
+		return new TipResponse(row.get("tip_id", Long.class), row.get("tip_message", String.class));
+	}
+
+}
@@ -0,0 +1,384 @@
+package dev.samir.tips;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.samir.search.TipSearchIndex;
+import dev.samir.search.Tokenizer;
+import jakarta.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of the TipService and TipIngestService, used by the reactive profile.
+ * Tips are read and written with the ReactiveTipRepository, and the changes go through the same TipChanges
+ * and TipIngestion as the TipService and TipIngestService.
+ * <p>
+ * Reads don't go through the caches, whose Redis level is blocking. Writes still evict the changed tips and
+ * sessions, so the nodes serving the Spring MVC API don't serve stale tips; the evictions run in the background
+ * on the bounded elastic scheduler instead of on the event loop.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveTipService {
+
+	/**
+	 * Repository for accessing tip data without blocking.
+	 */
+	private ReactiveTipRepository tipRepository;
+
+	/**
+	 * In-memory index of the tip identifiers used to draw random tips.
+	 */
+	private RandomTipIndex randomTipIndex;
+
+	/**
+	 * In-memory inverted index of the tip messages used to search tips.
+	 */
+	private TipSearchIndex searchIndex;
+
+	/**
+	 * Applies the changes of the tips to the indexes and caches.
+	 */
+	private TipChanges tipChanges;
+
+	/**
+	 * Mapper reading the tips of a bulk insert.
+	 */
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Validator of the tips of a bulk insert.
+	 */
+	private Validator validator;
+
+	/**
+	 * Number of tips inserted per batched statement.
+	 */
+	private int batchSize;
+
+	/**
+	 * Most failures listed in the result of a bulk insert.
+	 */
+	private int maxReportedFailures;
+
+	/**
+	 * Constructor for ReactiveTipService.
+	 * @param tipRepository the ReactiveTipRepository instance
+	 * @param randomTipIndex the RandomTipIndex instance
+	 * @param searchIndex the TipSearchIndex instance
+	 * @param tipChanges the TipChanges instance
+	 * @param objectMapper the ObjectMapper instance
+	 * @param validator the Validator instance
+	 * @param batchSize the number of tips inserted per batched statement
+	 * @param maxReportedFailures the most failures listed in the result of a bulk insert
+	 */
+	public ReactiveTipService(ReactiveTipRepository tipRepository, RandomTipIndex randomTipIndex, TipSearchIndex searchIndex,
+			TipChanges tipChanges, ObjectMapper objectMapper, Validator validator,
+			@Value("${tips.bulk.batch-size:1000}") int batchSize,
+			@Value("${tips.bulk.max-reported-failures:100}") int maxReportedFailures) {
+		this.tipRepository = tipRepository;
+		this.randomTipIndex = randomTipIndex;
+		this.searchIndex = searchIndex;
+		this.tipChanges = tipChanges;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.batchSize = batchSize;
+		this.maxReportedFailures = maxReportedFailures;
+	}
+
+	/**
+	 * Find a random tip, drawn from the RandomTipIndex.
+	 * Until the index is built, or when the drawn tip was deleted, it falls back to the "order by random()" query.
+	 * @return a random tip, or empty if there are no tips
+	 */
+	public Mono<TipResponse> findRandomTip() {
+		OptionalLong id = randomTipIndex.isReady() ? randomTipIndex.draw() : OptionalLong.empty();
+		if (id.isEmpty()) {
+			return tipRepository.findRandom();
+		}
+		return tipRepository.findById(id.getAsLong())
+			.switchIfEmpty(Mono.defer(() -> {
+				randomTipIndex.remove(id.getAsLong());
+				return tipRepository.findRandom();
+			}));
+	}
+
+	/**
+	 * Stream all tips for a given UUID, ordered by ID, as they are read from the database.
+	 * @param uuid the session identifier
+	 * @return the tips of the session
+	 */
+	public Flux<TipResponse> getAllTips(String uuid) {
+		return tipRepository.findAllByUuid(uuid);
+	}
+
+	/**
+	 * Get a page of the tips for a given UUID, ordered by ID.
+	 * @param uuid the session identifier
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips to return
+	 * @return the tips of the page
+	 */
+	public Flux<TipResponse> getTipsPage(String uuid, long afterId, int limit) {
+		return tipRepository.findPageByUuid(uuid, afterId, limit);
+	}
+
+	/**
+	 * Get a tip by its ID.
+	 * @param id the ID of the tip
+	 * @return the tip, or empty if it doesn't exist
+	 */
+	public Mono<TipResponse> findById(long id) {
+		return tipRepository.findById(id);
+	}
+
+	/**
+	 * Search the tips whose message holds every term of a query, ordered by ID.
+	 * Like TipService.search, the candidates of the TipSearchIndex are read and checked against their current message.
+	 * @param query the search query
+	 * @param afterId the ID of the last tip of the previous page, or 0 for the first page
+	 * @param limit the maximum number of tips to return
+	 * @return the matching tips
+	 */
+	public Mono<List<TipResponse>> search(String query, long afterId, int limit) {
+		List<String> terms = Tokenizer.terms(query);
+		if (terms.isEmpty()) {
+			return Mono.just(List.of());
+		}
+		return search(terms, afterId, limit, new ArrayList<>());
+	}
+
+	/**
+	 * Read the next candidates of a search until the page is full or there are no more.
+	 * @param terms the terms of the query
+	 * @param afterId the ID of the last candidate already checked
+	 * @param limit the maximum number of tips to return
+	 * @param found the matching tips found so far
+	 * @return the matching tips
+	 */
+	private Mono<List<TipResponse>> search(List<String> terms, long afterId, int limit, List<TipResponse> found) {
+		long[] candidates = searchIndex.search(terms, afterId, limit - found.size());
+		if (candidates.length == 0) {
+			return Mono.just(found);
+		}
+		return tipRepository.findAllById(Arrays.stream(candidates).boxed().toList())
+			.filter(tip -> Tokenizer.containsAll(tip.message(), terms))
+			.sort(Comparator.comparing(TipResponse::id))
+			.collectList()
+			.flatMap(matches -> {
+				found.addAll(matches);
+				return found.size() < limit ? search(terms, candidates[candidates.length - 1], limit, found) : Mono.just(found);
+			});
+	}
+
+	/**
+	 * Whether the search index has been built and can serve searches.
+	 * @return true if tips can be searched
+	 */
+	public boolean isSearchReady() {
+		return searchIndex.isReady();
+	}
+
+	/**
+	 * Insert a new tip and evict the cached session of the tip.
+	 * @param tip the tip to insert
+	 * @return the inserted tip
+	 */
+	public Mono<TipResponse> insert(TipRequest tip) {
+		return tipRepository.insert(tip.message(), tip.uuid())
+			.doOnNext(inserted -> {
+				index(inserted);
+				evict(List.of(inserted.id()), tip.uuid() == null ? Set.of() : Set.of(tip.uuid()));
+			});
+	}
+
+	/**
+	 * Insert the tips of a JSON array or newline delimited JSON body, in batches of "tips.bulk.batch-size".
+	 * The tips are decoded as they arrive, and the next ones are only read once the current batch is inserted,
+	 * so a large body is never held in memory. Invalid tips and rejected batches are reported like TipIngestService does.
+	 * @param nodes the tips of the body, as JSON trees
+	 * @return the summary of the ingestion
+	 */
+	public Mono<TipIngestResult> ingest(Flux<JsonNode> nodes) {
+		TipIngestion ingestion = new TipIngestion(objectMapper, validator, maxReportedFailures);
+		return nodes
+			.mapNotNull(node -> {
+				TipRequest request = ingestion.validate(node);
+				return request == null ? null : new Indexed(ingestion.lastIndex(), request);
+			})
+			.onErrorResume(DecodingException.class, e -> {
+				ingestion.malformed(reason(e));
+				return Flux.empty();
+			})
+			.buffer(batchSize)
+			.concatMap(batch -> insert(ingestion, batch))
+			.then(Mono.fromSupplier(ingestion::result));
+	}
+
+	/**
+	 * Update the message of a tip and evict it from the caches.
+	 * @param tip the new message of the tip
+	 * @return the updated tip, or empty if it doesn't exist
+	 */
+	public Mono<TipResponse> update(TipUpdate tip) {
+		return tipRepository.updateMessage(tip.id(), tip.message())
+			.filter(count -> count > 0)
+			.map(count -> {
+				TipResponse updated = new TipResponse(tip.id(), tip.message());
+				tipChanges.updated(tip.id(), tip.message());
+				evict(List.of(tip.id()), Set.of());
+				return updated;
+			});
+	}
+
+	/**
+	 * Update the message of many tips with a batched statement and evict them from the caches.
+	 * @param tips the new messages of the tips
+	 * @return the summary of the update, with the IDs of the tips that don't exist
+	 */
+	public Mono<TipUpdateResult> updateAll(List<TipUpdate> tips) {
+		return tipRepository.updateMessages(tips)
+			.map(counts -> {
+				List<Long> notFound = new ArrayList<>();
+				for (int i = 0; i < counts.size(); i++) {
+					if (counts.get(i) == 0) {
+						notFound.add(tips.get(i).id());
+					} else {
+						tipChanges.updated(tips.get(i).id(), tips.get(i).message());
+					}
+				}
+				evict(tips.stream().map(TipUpdate::id).toList(), Set.of());
+				return new TipUpdateResult(tips.size(), tips.size() - notFound.size(), notFound);
+			});
+	}
+
+	/**
+	 * Delete a tip and evict it from the caches.
+	 * @param id the ID of the tip
+	 * @return true if the tip was deleted, false if it doesn't exist
+	 */
+	public Mono<Boolean> delete(long id) {
+		return tipRepository.deleteById(id)
+			.map(count -> {
+				if (count > 0) {
+					forget(List.of(id), Set.of());
+				}
+				return count > 0;
+			});
+	}
+
+	/**
+	 * Delete many tips with a single statement and evict them from the caches.
+	 * @param ids the IDs of the tips
+	 * @return the summary of the delete
+	 */
+	public Mono<TipDeleteResult> deleteAll(List<Long> ids) {
+		return tipRepository.deleteAllById(ids)
+			.map(deleted -> {
+				forget(ids, Set.of());
+				return new TipDeleteResult(ids.size(), deleted.intValue());
+			});
+	}
+
+	/**
+	 * Delete all tips of a session and evict them and the session from the caches.
+	 * @param uuid the session identifier
+	 * @return the summary of the delete
+	 */
+	public Mono<TipDeleteResult> deleteAllByUuid(String uuid) {
+		return tipRepository.deleteAllByUuid(uuid)
+			.map(delete -> {
+				forget(delete.ids(), Set.of(uuid));
+				return new TipDeleteResult(delete.ids().size(), delete.deleted());
+			});
+	}
+
+	/**
+	 * Add an inserted tip to the random tip and search indexes.
+	 * @param tip the inserted tip
+	 */
+	private void index(TipResponse tip) {
+		tipChanges.inserted(tip.id(), tip.message());
+	}
+
+	/**
+	 * Remove deleted tips from the indexes and evict them from the caches.
+	 * @param ids the IDs of the deleted tips
+	 * @param sessions the sessions to evict
+	 */
+	private void forget(Collection<Long> ids, Collection<String> sessions) {
+		tipChanges.deleted(ids);
+		evict(ids, sessions);
+	}
+
+	/**
+	 * Evict tips and sessions from the caches, on the bounded elastic scheduler since the Redis level is blocking.
+	 * A failed eviction is left to the expiration of the entries, like when Redis is down for the TipService.
+	 * @param ids the IDs of the tips
+	 * @param sessions the session identifiers
+	 */
+	private void evict(Collection<Long> ids, Collection<String> sessions) {
+		Mono.fromRunnable(() -> tipChanges.evict(ids, sessions))
+			.subscribeOn(Schedulers.boundedElastic())
+			.onErrorComplete()
+			.subscribe();
+	}
+
+	/**
+	 * Reason of a decoding failure, without the location details added by the decoder.
+	 * @param e the decoding failure
+	 * @return the reason
+	 */
+	private static String reason(DecodingException e) {
+		return e.getCause() instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+	}
+
+	/**
+	 * Insert a batch of valid tips of a bulk insert.
+	 * @param ingestion the state of the bulk insert
+	 * @param batch the tips, with their position in the body
+	 * @return completes when the batch is inserted or rejected
+	 */
+	private Mono<Void> insert(TipIngestion ingestion, List<Indexed> batch) {
+		List<TipRequest> tips = batch.stream().map(Indexed::request).toList();
+		return tipRepository.insertAll(tips)
+			.doOnNext(this::index)
+			.count()
+			.doOnNext(count -> {
+				ingestion.inserted(count);
+				evict(List.of(), tips.stream().map(TipRequest::uuid).collect(Collectors.toSet()));
+			})
+			.onErrorResume(DataAccessException.class, e -> {
+				ingestion.rejected(batch.getFirst().index(), batch.size(), e);
+				return Mono.empty();
+			})
+			.then();
+	}
+
+	/**
+	 * A valid tip of a bulk insert.
+	 * @param index the position of the tip in the body
+	 * @param request the tip
+	 */
+	private record Indexed(long index, TipRequest request) {}
+
+}
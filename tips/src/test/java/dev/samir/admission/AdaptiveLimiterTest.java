@@ -0,0 +1,148 @@
+package dev.samir.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Test for the adaptive limits and the admission control filter.
+ * The limit grows while the latency is steady and shrinks when it rises, and the requests
+ * over the limit are rejected with 503 once the queue is full.
+ */
+class AdaptiveLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Requests over the limit are rejected, until a slot is released.
+     */
+    @Test
+    void testRejectsOverLimit() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 2, 1, 10, 0, Duration.ZERO, 1.5);
+
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+        limiter.release(MILLIS);
+        assertTrue(limiter.acquire());
+
+        assertEquals(3, limiter.getAccepted());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getInflight());
+    }
+
+    /**
+     * A fully used limit grows while the latency is steady, and shrinks when the requests get slower.
+     */
+    @Test
+    void testLimitFollowsLatency() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 20, 4, 100, 0, Duration.ZERO, 1.5);
+
+        runRounds(limiter, 50, MILLIS);
+        assertEquals(100, limiter.getLimit());
+
+        runRounds(limiter, 20, 20 * MILLIS);
+        assertTrue(limiter.getLimit() < 50, "limit " + limiter.getLimit());
+    }
+
+    /**
+     * The filter answers 503 with a "Retry-After" header when the limit of the endpoints is reached.
+     */
+    @Test
+    void testFilterSheds() throws Exception {
+        AdaptiveLimiter reads = limiter("reads");
+        AdaptiveLimiter other = limiter("other");
+        AdmissionControlFilter filter = new AdmissionControlFilter(reads, other, other, other, other,
+            () -> 0, 10, Duration.ofSeconds(2), Duration.ofSeconds(10));
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tip/random"), admitted, new MockFilterChain());
+        assertEquals(200, admitted.getStatus());
+        assertEquals(0, reads.getInflight());
+
+        assertTrue(reads.acquire());
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tip/random"), shed, new MockFilterChain());
+        assertEquals(503, shed.getStatus());
+        assertEquals("2", shed.getHeader("Retry-After"));
+    }
+
+    /**
+     * The "Retry-After" grows with the requests waiting for a thread, up to the longest one.
+     */
+    @Test
+    void testRetryAfterGrowsWithBacklog() {
+        AdaptiveLimiter limiter = limiter("reads");
+        AdmissionControlFilter filter = new AdmissionControlFilter(limiter, limiter, limiter, limiter, limiter, () -> 0, 50,
+            Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+        assertEquals(1, filter.retryAfter(0));
+        assertEquals(1, filter.retryAfter(60));
+        assertEquals(4, filter.retryAfter(200));
+        assertEquals(10, filter.retryAfter(2000));
+    }
+
+    /**
+     * Each request is limited with the limiter of its endpoints, and the streams and the other paths aren't limited.
+     */
+    @Test
+    void testLimiterOf() {
+        AdaptiveLimiter reads = limiter("reads");
+        AdaptiveLimiter search = limiter("search");
+        AdaptiveLimiter writes = limiter("writes");
+        AdaptiveLimiter bulk = limiter("bulk");
+        AdaptiveLimiter drafts = limiter("drafts");
+        AdmissionControlFilter filter = new AdmissionControlFilter(reads, search, writes, bulk, drafts, () -> 0, 10,
+            Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+        assertSame(reads, filter.limiterOf(new MockHttpServletRequest("GET", "/api/tip")));
+        assertSame(reads, filter.limiterOf(new MockHttpServletRequest("GET", "/api/tip/1")));
+        assertSame(search, filter.limiterOf(new MockHttpServletRequest("GET", "/api/tip/search")));
+        assertSame(writes, filter.limiterOf(new MockHttpServletRequest("POST", "/api/tip")));
+        assertSame(writes, filter.limiterOf(new MockHttpServletRequest("DELETE", "/api/tip/1")));
+        assertSame(bulk, filter.limiterOf(new MockHttpServletRequest("POST", "/api/tip/bulk")));
+        assertSame(bulk, filter.limiterOf(new MockHttpServletRequest("DELETE", "/api/tip")));
+        assertSame(drafts, filter.limiterOf(new MockHttpServletRequest("POST", "/api/draft")));
+        assertNull(filter.limiterOf(new MockHttpServletRequest("GET", "/api/tip/stream")));
+        assertNull(filter.limiterOf(new MockHttpServletRequest("GET", "/api/tip/random/stream")));
+        assertNull(filter.limiterOf(new MockHttpServletRequest("GET", "/actuator/health")));
+    }
+
+    /**
+     * A limiter of a single request, without queue.
+     * @param name the name of the endpoints
+     * @return the limiter
+     */
+    private static AdaptiveLimiter limiter(String name) {
+        return new AdaptiveLimiter(name, 1, 1, 1, 0, Duration.ZERO, 1.5);
+    }
+
+    /**
+     * Take every slot, then release them all with the same latency.
+     * @param limiter the limiter
+     * @param rounds the number of rounds
+     * @param rttNanos the latency of every request
+     */
+    private static void runRounds(AdaptiveLimiter limiter, int rounds, long rttNanos) throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            int taken = 0;
+            while (limiter.acquire()) {
+                taken++;
+            }
+            for (int i = 0; i < taken; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+
+}
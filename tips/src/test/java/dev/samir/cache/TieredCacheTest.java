@@ -0,0 +1,189 @@
+package dev.samir.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import dev.samir.draft.EmbeddedRedis;
+
+/**
+ * Test for the TieredCache against an embedded Redis server.
+ * Two cache managers play two application nodes sharing the same Redis.
+ */
+class TieredCacheTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private static final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    private TieredCache first;
+
+    private TieredCache second;
+
+    @BeforeAll
+    static void startRedis() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", EmbeddedRedis.port()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        Set<String> keys = redisTemplate.keys("cache:*");
+        if (!keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+        first = node();
+        second = node();
+    }
+
+    /**
+     * A cache of a new node subscribed to the evictions of the others.
+     * @return the "tips" cache of the node
+     */
+    private static TieredCache node() {
+        TieredCacheManager manager = new TieredCacheManager(List.of("tips"), List.of("tips"), "maximumSize=100",
+            redisTemplate, Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofSeconds(5));
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(manager, ChannelTopic.of(TieredCacheManager.CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return (TieredCache) manager.getCache("tips");
+    }
+
+    /**
+     * A value loaded by one node is read from Redis by the other one, without loading it again.
+     */
+    @Test
+    void testSecondNodeReadsFromRedis() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("Tip", first.get(1L, () -> {
+            loads.incrementAndGet();
+            return "Tip";
+        }));
+        assertEquals("Tip", second.get(1L, () -> {
+            loads.incrementAndGet();
+            return "Loaded again";
+        }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, second.getRedisHits());
+    }
+
+    /**
+     * An eviction on one node removes the value from Redis and from the local level of the other node.
+     * @throws InterruptedException if the wait is interrupted
+     */
+    @Test
+    void testEvictionIsPublished() throws InterruptedException {
+        first.put(1L, "Tip");
+        assertEquals("Tip", second.get(1L, String.class));
+
+        first.evict(1L);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (second.getLocalCache().getIfPresent(1L) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(second.getLocalCache().getIfPresent(1L));
+        assertNull(second.get(1L));
+    }
+
+    /**
+     * A load that read the old value before another node updated and evicted the key doesn't
+     * put the old value back in Redis, and the eviction drops it from the local level once the load ends.
+     * @throws InterruptedException if the wait is interrupted
+     */
+    @Test
+    void testLoadRacingRemoteEviction() throws InterruptedException {
+        assertEquals("Old Tip", first.get(3L, () -> {
+            second.evict(3L);
+            return "Old Tip";
+        }));
+
+        assertEquals(TieredCache.TOMBSTONE, redisTemplate.opsForValue().get("cache:tips:3"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (first.getLocalCache().getIfPresent(3L) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(first.getLocalCache().getIfPresent(3L));
+        assertEquals("New Tip", first.get(3L, () -> "New Tip"));
+        assertEquals("New Tip", second.get(3L, () -> "New Tip"));
+    }
+
+    /**
+     * Concurrent callers missing the same cold key share a single load.
+     * @throws Exception if a caller fails
+     */
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return first.get(2L, () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(200);
+                        return "Slow Tip";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("Slow Tip", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertTrue(redisTemplate.hasKey("cache:tips:2"));
+    }
+
+}
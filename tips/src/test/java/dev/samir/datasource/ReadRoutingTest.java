@@ -0,0 +1,166 @@
+package dev.samir.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import dev.samir.draft.EmbeddedRedis;
+import jakarta.servlet.http.Cookie;
+import dev.samir.tips.TipNotFoundException;
+import dev.samir.tips.TipRepository;
+import dev.samir.tips.TipResponse;
+import dev.samir.tips.TipService;
+import dev.samir.tips.TipUpdate;
+
+/**
+ * Test for the read replica routing, with two H2 databases.
+ * The primary is the usual test database and the replica holds another version of tip 1,
+ * so each read tells which database served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "tips.datasource.replica.enabled=true",
+        "tips.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:db/replica-test.sql'",
+        "tips.datasource.replica.max-lag=PT1M",
+        "tips.datasource.replica.heartbeat-interval=PT1H",
+        "tips.cache.redis.enabled=false" })
+@ActiveProfiles("test")
+class ReadRoutingTest {
+
+    private static final String UUID = "123e4567-e89b-12d3-a456-426614174000";
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        EmbeddedRedis.register(registry);
+    }
+
+    @Autowired
+    private TipRepository tipRepository;
+
+    @Autowired
+    private TipService tipService;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(replicaDataSource).update("update tb02_heartbeat set heartbeat_at = current_timestamp");
+        replicaLagMonitor.check();
+    }
+
+    /**
+     * Read-only queries run on the replica, while the primary keeps its own data.
+     */
+    @Test
+    void testReadsGoToReplica() {
+        assertTrue(readRouting.isReplicaAvailable());
+        assertEquals("Replica Message", tipRepository.findResponseById(1L).orElseThrow().message());
+        assertEquals("Replica Message", tipRepository.findById(1L).orElseThrow().getMessage());
+        assertEquals("First Message", new JdbcTemplate(primaryDataSource).queryForObject("select tip_message from tb01_tips where tip_id = 1", String.class));
+    }
+
+    /**
+     * The sessions and tips written by this node are read from the primary, the others from the replica.
+     * Tip 2 only exists on the primary.
+     */
+    @Test
+    void testReadYourWrites() throws TipNotFoundException {
+        new JdbcTemplate(primaryDataSource).update("insert into tb01_tips (tip_id, tip_message, tip_uuid) values (100, 'Sticky Message', 'sticky')");
+        readRouting.written("sticky");
+
+        assertEquals(List.of(new TipResponse(100L, "Sticky Message")), tipService.getTipsPage("sticky", 0L, 10));
+        assertEquals(List.of(new TipResponse(1L, "Replica Message")), tipService.getTipsPage(UUID, 0L, 10));
+
+        tipService.update(new TipUpdate(2L, "Updated Message"));
+
+        assertEquals("Updated Message", tipService.findById(2L).message());
+    }
+
+    /**
+     * The written keys are only known to the node that wrote them, so a client that wrote on another node
+     * is kept on the primary by the cookie set with its write, until the sticky window is over.
+     * @throws Exception if the filter fails
+     */
+    @Test
+    void testReadYourWritesAcrossNodes() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(readRouting, Duration.ofSeconds(5));
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PATCH", "/api/tip"), write, (request, response) -> readRouting.written("other-node"));
+        Cookie cookie = write.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(cookie);
+
+        assertEquals("First Message", readThrough(filter, cookie));
+        assertEquals("Replica Message", readThrough(filter, null));
+        assertEquals("Replica Message", readThrough(filter,
+            new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 10_000))));
+    }
+
+    /**
+     * Read tip 1 through the filter, like a request served by another node.
+     * @param filter the filter
+     * @param cookie the cookie of the client, or null
+     * @return the message read
+     * @throws Exception if the filter fails
+     */
+    private String readThrough(ReadYourWritesFilter filter, Cookie cookie) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tip/1");
+        if (cookie != null) {
+            request.setCookies(cookie);
+        }
+        AtomicReference<String> message = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(),
+            (req, res) -> message.set(tipRepository.findResponseById(1L).orElseThrow().message()));
+        return message.get();
+    }
+
+    /**
+     * A replica lagging more than the tolerance stops serving reads until it catches up.
+     */
+    @Test
+    void testLaggingReplica() {
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.update("update tb02_heartbeat set heartbeat_at = timestamp '2000-01-01 00:00:00'");
+        replicaLagMonitor.check();
+
+        assertFalse(readRouting.isReplicaAvailable());
+        assertEquals("First Message", tipRepository.findResponseById(1L).orElseThrow().message());
+
+        replica.update("update tb02_heartbeat set heartbeat_at = current_timestamp");
+        replicaLagMonitor.check();
+
+        assertTrue(readRouting.isReplicaAvailable());
+        assertEquals("Replica Message", tipRepository.findResponseById(1L).orElseThrow().message());
+    }
+
+}
@@ -0,0 +1,85 @@
+package dev.samir.draft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.redis.DataRedisTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Test for the DraftRepository against an embedded Redis server.
+ * It tests the lookup of the drafts of a session through the set of the session.
+ */
+@DataRedisTest
+@Import(DraftRepository.class)
+class DraftRepositoryTest {
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        EmbeddedRedis.register(registry);
+    }
+
+    @Autowired
+    private DraftRepository draftRepository;
+
+    @BeforeEach
+    void setUp() {
+        draftRepository.deleteAll();
+    }
+
+    /**
+     * Only the drafts of the given session are returned, ordered by ID.
+     */
+    @Test
+    void testFindAllByUuid() {
+        draftRepository.save(new Draft(2L, "Second Draft", "a"));
+        draftRepository.save(new Draft(1L, "First Draft", "a"));
+        draftRepository.save(new Draft(3L, "Other Session", "b"));
+
+        List<Draft> drafts = draftRepository.findAllByUuid("a");
+
+        assertEquals(List.of(new Draft(1L, "First Draft", "a"), new Draft(2L, "Second Draft", "a")), drafts);
+    }
+
+    /**
+     * A draft moved to another session and a deleted draft are no longer found.
+     */
+    @Test
+    void testFindAllByUuidAfterChanges() {
+        draftRepository.save(new Draft(1L, "First Draft", "a"));
+        draftRepository.save(new Draft(2L, "Second Draft", "a"));
+
+        draftRepository.save(new Draft(1L, "Moved Draft", "b"));
+        draftRepository.deleteById(2L);
+
+        assertTrue(draftRepository.findAllByUuid("a").isEmpty());
+        assertEquals(List.of(new Draft(1L, "Moved Draft", "b")), draftRepository.findAllByUuid("b"));
+    }
+
+    /**
+     * A draft saved without an ID gets one, and is read back by it.
+     */
+    @Test
+    void testSaveWithoutId() {
+        Draft saved = draftRepository.save(new Draft(null, "New Draft", "a"));
+
+        assertEquals(saved, draftRepository.findById(saved.id()).orElseThrow());
+        assertEquals(1, draftRepository.count());
+    }
+
+    /**
+     * A session without drafts has an empty result.
+     */
+    @Test
+    void testFindAllByUnknownUuid() {
+        assertTrue(draftRepository.findAllByUuid("unknown").isEmpty());
+    }
+
+}
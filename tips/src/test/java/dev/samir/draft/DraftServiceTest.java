@@ -0,0 +1,111 @@
+package dev.samir.draft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.redis.DataRedisTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test for the DraftService against an embedded Redis server.
+ * It tests that the batched upsert stores the drafts through the repository,
+ * and that the write-behind buffer writes only the latest version of each draft.
+ */
+@DataRedisTest
+@Import({ DraftService.class, DraftRepository.class, SimpleMeterRegistry.class })
+class DraftServiceTest {
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        EmbeddedRedis.register(registry);
+    }
+
+    @Autowired
+    private DraftService draftService;
+
+    @Autowired
+    private DraftRepository draftRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        draftService.flush();
+        draftRepository.deleteAll();
+    }
+
+    /**
+     * Batched drafts can be read through the repository and the session set.
+     */
+    @Test
+    void testUpsertAll() {
+        List<DraftResult> results = draftService.upsertAll(List.of(new Draft(1L, "First Draft", "a"), new Draft(2L, "Second Draft", "a")));
+
+        assertTrue(results.stream().allMatch(result -> result.status() == DraftResult.Status.PENDING));
+        draftService.flush();
+        assertEquals(new Draft(1L, "First Draft", "a"), draftRepository.findById(1L).orElseThrow());
+        assertEquals(2, draftService.getAll("a").size());
+        assertEquals(2, draftRepository.count());
+    }
+
+    /**
+     * A draft moved to another session by a batch leaves the old session's set.
+     */
+    @Test
+    void testUpsertAllMovesBetweenSessions() {
+        draftRepository.save(new Draft(1L, "First Draft", "a"));
+
+        draftService.upsertAll(List.of(new Draft(1L, "Moved Draft", "b")));
+
+        assertTrue(draftService.getAll("a").isEmpty());
+        assertEquals(List.of(new Draft(1L, "Moved Draft", "b")), draftService.getAll("b"));
+    }
+
+    /**
+     * Invalid drafts are reported and skipped, and the last copy of a repeated draft wins.
+     */
+    @Test
+    void testUpsertAllResults() {
+        List<DraftResult> results = draftService.upsertAll(Arrays.asList(
+            new Draft(null, "No ID", "a"),
+            new Draft(1L, "Old Text", "a"),
+            new Draft(2L, "No Session", null),
+            new Draft(1L, "New Text", "a")));
+
+        assertEquals(DraftResult.Status.FAILED, results.get(0).status());
+        assertEquals(DraftResult.Status.PENDING, results.get(1).status());
+        assertEquals(DraftResult.Status.FAILED, results.get(2).status());
+        assertEquals(DraftResult.Status.PENDING, results.get(3).status());
+        assertEquals(List.of(new Draft(1L, "New Text", "a")), draftService.getAll("a"));
+    }
+
+    /**
+     * Autosaves of the same draft are coalesced in the buffer and written once, with the last version.
+     */
+    @Test
+    void testWriteBehindCoalesces() {
+        double flushed = meterRegistry.counter("tips.drafts.writes", "stage", "flushed").count();
+
+        for (int i = 1; i <= 10; i++) {
+            draftService.upsertAll(List.of(new Draft(1L, "Version " + i, "a")));
+        }
+
+        assertEquals(0, draftRepository.count());
+        draftService.flush();
+        assertEquals(new Draft(1L, "Version 10", "a"), draftRepository.findById(1L).orElseThrow());
+        assertEquals(flushed + 1, meterRegistry.counter("tips.drafts.writes", "stage", "flushed").count());
+    }
+
+}
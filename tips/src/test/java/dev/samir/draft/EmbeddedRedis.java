@@ -0,0 +1,64 @@
+package dev.samir.draft;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import redis.embedded.RedisServer;
+
+/**
+ * Embedded Redis server for the tests.
+ * It runs the redis-server binary bundled with the embedded-redis library on a free port,
+ * so the Redis tests don't need a Redis installation or network access.
+ * The server is started once per JVM and stopped when the JVM exits.
+ */
+public final class EmbeddedRedis {
+
+	private static RedisServer server;
+
+	private static int port;
+
+	private EmbeddedRedis() {}
+
+	/**
+	 * Starts the server if it isn't running yet.
+	 * @return the port the server listens on
+	 */
+	public static synchronized int port() {
+		if (server == null) {
+			try (ServerSocket socket = new ServerSocket(0)) {
+				port = socket.getLocalPort();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			try {
+				server = new RedisServer(port);
+				server.start();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			RedisServer started = server;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					started.stop();
+				} catch (IOException e) {
+					// The JVM is exiting anyway
+				}
+			}));
+		}
+		return port;
+	}
+
+	/**
+	 * Points the Spring Redis properties to the embedded server.
+	 * Call it from a {@code @DynamicPropertySource} method.
+	 * @param registry the dynamic property registry
+	 */
+	public static void register(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.redis.host", () -> "localhost");
+		registry.add("spring.data.redis.port", EmbeddedRedis::port);
+	}
+
+}
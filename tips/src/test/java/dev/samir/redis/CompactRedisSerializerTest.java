@@ -0,0 +1,97 @@
+package dev.samir.redis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import dev.samir.draft.Draft;
+
+/**
+ * Unit test for the CompactRedisSerializer class.
+ * It tests the round trip of registered records, the reading of legacy JSON
+ * and the fallback for unregistered types.
+ */
+class CompactRedisSerializerTest {
+
+    record Everything(String text, long primitive, Long boxed, int number, Integer boxedNumber, boolean flag, Boolean boxedFlag) {}
+
+    record Numbers(long[] values, long[] missing) {}
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(json)
+        .register(1, Draft.class)
+        .register(2, Everything.class)
+        .register(3, Numbers.class);
+
+    /**
+     * A draft survives the round trip and is smaller than its JSON.
+     */
+    @Test
+    void testDraftRoundTrip() {
+        Draft draft = new Draft(42L, "Use records for DTOs", "123e4567-e89b-12d3-a456-426614174000");
+
+        byte[] bytes = serializer.serialize(draft);
+
+        assertEquals(draft, serializer.deserialize(bytes));
+        assertTrue(bytes.length < json.serialize(draft).length);
+    }
+
+    /**
+     * Every supported component type, including negative numbers, Unicode and nulls, survives the round trip.
+     */
+    @Test
+    void testSupportedTypesRoundTrip() {
+        Everything everything = new Everything("Ação ✓", Long.MIN_VALUE, -1L, Integer.MAX_VALUE, null, true, null);
+        Draft empty = new Draft(null, null, null);
+
+        assertEquals(everything, serializer.deserialize(serializer.serialize(everything)));
+        assertEquals(empty, serializer.deserialize(serializer.serialize(empty)));
+
+        Numbers numbers = (Numbers) serializer.deserialize(serializer.serialize(new Numbers(new long[] { 1L, Long.MAX_VALUE, -3L }, null)));
+        assertArrayEquals(new long[] { 1L, Long.MAX_VALUE, -3L }, numbers.values());
+        assertNull(numbers.missing());
+    }
+
+    /**
+     * Values written by the legacy JSON serializer are still read.
+     */
+    @Test
+    void testReadsLegacyJson() {
+        Draft draft = new Draft(1L, "Legacy Draft", "a");
+
+        assertEquals(draft, serializer.deserialize(json.serialize(draft)));
+    }
+
+    /**
+     * Types that aren't registered are written with the legacy serializer.
+     */
+    @Test
+    void testUnregisteredTypeFallsBack() {
+        String value = "Not a record";
+
+        assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+
+    /**
+     * Truncated values and unknown type IDs are rejected.
+     */
+    @Test
+    void testInvalidValues() {
+        byte[] bytes = serializer.serialize(new Draft(1L, "Truncated", "a"));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[] { CompactRedisSerializer.MARKER, 9 }));
+        assertThrows(IllegalArgumentException.class, () -> serializer.register(1, Everything.class));
+    }
+
+}
@@ -0,0 +1,120 @@
+package dev.samir.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import dev.samir.tips.TipRepository;
+import dev.samir.tips.TipResponse;
+
+/**
+ * Unit test for the TipSearchIndex class and its posting lists.
+ * It tests the rebuild from the repository, the intersection of the terms with paging,
+ * the tips added and deleted after the rebuild, and the skips and compaction of the posting lists.
+ */
+class TipSearchIndexTest {
+
+    /**
+     * Build an index from the given tips.
+     * @param tips the tips returned by the repository
+     * @return the built index
+     */
+    private TipSearchIndex indexOf(TipResponse... tips) {
+        TipRepository tipRepository = mock(TipRepository.class);
+        when(tipRepository.streamAllResponses()).thenReturn(Stream.of(tips));
+        TipSearchIndex index = new TipSearchIndex(tipRepository, TransactionOperations.withoutTransaction());
+        index.rebuild();
+        return index;
+    }
+
+    /**
+     * Terms are lower-cased runs of letters and digits, without duplicates.
+     */
+    @Test
+    void testTokenizer() {
+        assertEquals(List.of("use", "java", "21", "records"), Tokenizer.terms("Use Java-21 records, Java records!"));
+        assertTrue(Tokenizer.containsAll("Prefer records in Java", List.of("java", "records")));
+        assertFalse(Tokenizer.containsAll("Prefer records", List.of("java")));
+        assertEquals(List.of(), Tokenizer.terms(" -- "));
+    }
+
+    /**
+     * A search returns the tips holding every term, after the given ID and up to the limit.
+     */
+    @Test
+    void testSearch() {
+        TipSearchIndex index = indexOf(
+            new TipResponse(1L, "Java streams are lazy"),
+            new TipResponse(2L, "Python generators are lazy"),
+            new TipResponse(3L, "Lazy Java initialization"),
+            new TipResponse(4L, "Java records"));
+
+        assertTrue(index.isReady());
+        assertArrayEquals(new long[] { 1L, 3L }, index.search(List.of("lazy", "java"), 0L, 10));
+        assertArrayEquals(new long[] { 3L }, index.search(List.of("lazy", "java"), 1L, 10));
+        assertArrayEquals(new long[] { 1L, 2L }, index.search(List.of("lazy"), 0L, 2));
+        assertArrayEquals(new long[0], index.search(List.of("java", "kotlin"), 0L, 10));
+    }
+
+    /**
+     * Tips added after the rebuild are found, even with IDs smaller than the indexed ones,
+     * and deleted tips are skipped until they are added again.
+     */
+    @Test
+    void testAddAndRemove() {
+        TipSearchIndex index = indexOf(new TipResponse(5L, "Java records"));
+
+        index.add(9L, "Sealed Java interfaces");
+        index.add(2L, "Java text blocks");
+        index.remove(5L);
+
+        assertArrayEquals(new long[] { 2L, 9L }, index.search(List.of("java"), 0L, 10));
+
+        index.add(5L, "Java records again");
+
+        assertArrayEquals(new long[] { 2L, 5L, 9L }, index.search(List.of("java"), 0L, 10));
+    }
+
+    /**
+     * Intersections skip through long posting lists, including IDs merged by a compaction.
+     */
+    @Test
+    void testLongPostingLists() {
+        TipSearchIndex index = indexOf(LongStream.rangeClosed(1, 100_000)
+            .mapToObj(id -> new TipResponse(id, (id % 3 == 0 ? "fizz " : "") + (id % 1000 == 0 ? "thousand" : "")))
+            .toArray(TipResponse[]::new));
+        for (long id = 1; id <= 100_000; id += 1000) {
+            index.add(id, "thousand");
+        }
+
+        long[] found = index.search(List.of("thousand", "fizz"), 0L, 1000);
+
+        assertArrayEquals(LongStream.rangeClosed(1, 100_000).filter(id -> id % 3000 == 0 || (id % 1000 == 1 && id % 3 == 0)).toArray(), found);
+    }
+
+    /**
+     * Dense IDs are compressed to about a byte each.
+     */
+    @Test
+    void testPostingListCompression() {
+        PostingList list = new PostingList();
+        for (long id = 1_000_000; id < 1_100_000; id += 2) {
+            list.add(id);
+        }
+
+        assertEquals(50_000, list.size());
+        assertTrue(list.compressedSize() < 50_010);
+        assertEquals(1_000_256, list.cursor().advance(1_000_255));
+    }
+
+}
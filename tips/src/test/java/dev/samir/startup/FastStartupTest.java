@@ -0,0 +1,135 @@
+package dev.samir.startup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import dev.samir.draft.DraftService;
+import dev.samir.draft.EmbeddedRedis;
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Test for the startup shortcuts of the "fast-startup" profile.
+ * The Redis beans are only created by their first use, and the checksum of the changelog
+ * is stored by the update so the next startup can skip Liquibase while it is unchanged.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fast-startup;DB_CLOSE_DELAY=-1",
+        "tips.startup.lazy-redis=true",
+        "tips.startup.liquibase-precheck=true" })
+@ActiveProfiles("test")
+class FastStartupTest {
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        EmbeddedRedis.register(registry);
+    }
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private SpringLiquibase liquibase;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * The drafts and the Redis template aren't created until they are used.
+     */
+    @Test
+    void testRedisIsLazy() {
+        assertTrue(beanFactory.getBeanDefinition("draftService").isLazyInit());
+        assertTrue(beanFactory.getBeanDefinition("redisTemplate").isLazyInit());
+        assertFalse(beanFactory.containsSingleton("draftService"));
+
+        assertTrue(beanFactory.getBean(DraftService.class).getAll("lazy").isEmpty());
+        assertTrue(beanFactory.containsSingleton("draftService"));
+    }
+
+    /**
+     * The update stores the checksum of the changelog, which depends on the contexts.
+     */
+    @Test
+    void testChecksumStored() {
+        String checksum = LiquibasePrecheck.checksum(liquibase);
+        assertEquals(checksum, new JdbcTemplate(dataSource).queryForObject("select checksum_value from tb03_schema_checksum", String.class));
+
+        SpringLiquibase other = new SpringLiquibase();
+        other.setChangeLog(liquibase.getChangeLog());
+        other.setResourceLoader(liquibase.getResourceLoader());
+        other.setContexts("other");
+        assertNotEquals(checksum, LiquibasePrecheck.checksum(other));
+    }
+
+    /**
+     * Liquibase is skipped while the stored checksum matches, otherwise it runs and the checksum is stored again.
+     */
+    @Test
+    void testPrecheck() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SpringLiquibase next = new SpringLiquibase();
+        next.setChangeLog(liquibase.getChangeLog());
+        next.setResourceLoader(liquibase.getResourceLoader());
+        next.setDataSource(dataSource);
+
+        LiquibasePrecheck unchanged = new LiquibasePrecheck();
+        unchanged.postProcessBeforeInitialization(next, "liquibase");
+        jdbcTemplate.update("update tb03_schema_checksum set checksum_value = 'changed'");
+        unchanged.postProcessAfterInitialization(next, "liquibase");
+        assertEquals("changed", jdbcTemplate.queryForObject("select checksum_value from tb03_schema_checksum", String.class));
+
+        LiquibasePrecheck changed = new LiquibasePrecheck();
+        changed.postProcessBeforeInitialization(next, "liquibase");
+        changed.postProcessAfterInitialization(next, "liquibase");
+        assertEquals(LiquibasePrecheck.checksum(next), jdbcTemplate.queryForObject("select checksum_value from tb03_schema_checksum", String.class));
+    }
+
+    /**
+     * Only the changelog and the files it includes are hashed, not the other files of its directory.
+     */
+    @Test
+    void testChecksumOfIncludedFiles(@TempDir Path directory) throws IOException {
+        Files.createDirectories(directory.resolve("changes"));
+        Files.writeString(directory.resolve("master.xml"), changeLog("<include file=\"changes/one.xml\" relativeToChangelogFile=\"true\"/>"));
+        Files.writeString(directory.resolve("changes/one.xml"), changeLog(""));
+        Files.writeString(directory.resolve("test.xml"), changeLog("<include file=\"master.xml\" relativeToChangelogFile=\"true\"/>"));
+        SpringLiquibase master = new SpringLiquibase();
+        master.setChangeLog(directory.toUri() + "master.xml");
+        String checksum = LiquibasePrecheck.checksum(master);
+
+        Files.writeString(directory.resolve("test.xml"), changeLog("<!-- changed -->"));
+        Files.writeString(directory.resolve("changes/other.xml"), changeLog(""));
+        assertEquals(checksum, LiquibasePrecheck.checksum(master));
+
+        Files.writeString(directory.resolve("changes/one.xml"), changeLog("<!-- changed -->"));
+        assertNotEquals(checksum, LiquibasePrecheck.checksum(master));
+    }
+
+    /**
+     * An empty changelog around the given elements.
+     * @param elements the elements of the changelog
+     * @return the changelog
+     */
+    private static String changeLog(String elements) {
+        return "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\">" + elements + "</databaseChangeLog>";
+    }
+
+}
@@ -0,0 +1,136 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Unit test for the RandomTipIndex class.
+ * It tests the rebuild from the repository, the constant time insert and
+ * swap-remove, and that draws only return live identifiers.
+ */
+class RandomTipIndexTest {
+
+    /**
+     * Build an index from the given identifiers.
+     * @param ids the identifiers returned by the repository
+     * @return the built index
+     */
+    private RandomTipIndex indexOf(long... ids) {
+        TipRepository tipRepository = mock(TipRepository.class);
+        when(tipRepository.streamAllIds()).thenReturn(LongStream.of(ids).boxed());
+        RandomTipIndex index = new RandomTipIndex(tipRepository, TransactionOperations.withoutTransaction());
+        index.rebuild();
+        return index;
+    }
+
+    /**
+     * Draw enough times to see every identifier in the index.
+     * @param index the index to draw from
+     * @return the drawn identifiers
+     */
+    private Set<Long> drawAll(RandomTipIndex index) {
+        Set<Long> drawn = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            index.draw().ifPresent(drawn::add);
+        }
+        return drawn;
+    }
+
+    /**
+     * An index that was never built isn't ready and draws nothing.
+     */
+    @Test
+    void testNotReadyBeforeRebuild() {
+        RandomTipIndex index = new RandomTipIndex(mock(TipRepository.class), TransactionOperations.withoutTransaction());
+
+        assertFalse(index.isReady());
+        assertTrue(index.draw().isEmpty());
+    }
+
+    /**
+     * Rebuild loads every identifier from the repository.
+     */
+    @Test
+    void testRebuild() {
+        RandomTipIndex index = indexOf(1L, 2L, 3L);
+
+        assertTrue(index.isReady());
+        assertEquals(3, index.size());
+        assertEquals(Set.of(1L, 2L, 3L), drawAll(index));
+    }
+
+    /**
+     * Added identifiers can be drawn and adding twice is a no-op.
+     */
+    @Test
+    void testAdd() {
+        RandomTipIndex index = indexOf(1L);
+
+        index.add(2L);
+        index.add(2L);
+
+        assertEquals(2, index.size());
+        assertEquals(Set.of(1L, 2L), drawAll(index));
+    }
+
+    /**
+     * Removing moves the last identifier into the freed slot and unknown identifiers are ignored.
+     */
+    @Test
+    void testRemove() {
+        RandomTipIndex index = indexOf(1L, 2L, 3L, 4L);
+
+        index.remove(1L);
+        index.remove(3L);
+        index.remove(99L);
+
+        assertEquals(2, index.size());
+        assertEquals(Set.of(2L, 4L), drawAll(index));
+    }
+
+    /**
+     * The position table keeps working when it grows and after many removals.
+     */
+    @Test
+    void testManyChanges() {
+        RandomTipIndex index = indexOf(LongStream.rangeClosed(1, 5_000).toArray());
+
+        LongStream.rangeClosed(5_001, 10_000).forEach(index::add);
+        LongStream.rangeClosed(1, 10_000).filter(id -> id % 2 == 0).forEach(index::remove);
+
+        assertEquals(5_000, index.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(1L, index.draw().getAsLong() % 2);
+        }
+    }
+
+    /**
+     * Changes applied while a rebuild is loading are replayed on the new snapshot.
+     */
+    @Test
+    void testChangesDuringRebuildAreKept() {
+        TipRepository tipRepository = mock(TipRepository.class);
+        RandomTipIndex index = new RandomTipIndex(tipRepository, TransactionOperations.withoutTransaction());
+        when(tipRepository.streamAllIds()).thenAnswer(invocation -> {
+            index.add(4L);
+            index.remove(1L);
+            return Stream.of(1L, 2L, 3L);
+        });
+
+        index.rebuild();
+
+        assertEquals(Set.of(2L, 3L, 4L), drawAll(index));
+    }
+
+}
@@ -1,28 +1,42 @@
 package dev.samir.tips;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import dev.samir.draft.Draft;
+import dev.samir.draft.DraftResult;
+import dev.samir.draft.DraftService;
+
 /**
  * Unit test for the TipController class.
  * This test class uses MockMvc to perform HTTP requests and verify responses.
@@ -38,6 +52,15 @@ class TipControllerTest {
     @MockitoBean
     private TipService tipService;
 
+    @MockitoBean
+    private TipIngestService tipIngestService;
+
+    @MockitoBean
+    private DraftService draftService;
+
+    @MockitoBean
+    private TipOfTheMoment tipOfTheMoment;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -57,35 +80,162 @@ class TipControllerTest {
 	        .andExpect(jsonPath("$.message").value(tip.getMessage()));
     }
 
+    /**
+     * Retrieves the tip of the moment without drawing a new one.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetCurrentTip() throws Exception  {
+        when(tipOfTheMoment.current()).thenReturn(Optional.of(new TipResponse(5L, "Current Tip")));
+        when(tipService.findEncodedById(5L)).thenReturn(EncodedTip.of(new TipResponse(5L, "Current Tip")));
+
+        mockMvc.perform(get("/api/tip/random").param("mode", "current"))
+	        .andExpect(status().isOk())
+	        .andExpect(jsonPath("$.id").value(5L))
+	        .andExpect(jsonPath("$.message").value("Current Tip"));
+
+        Mockito.verify(tipService, Mockito.never()).findRandomTip();
+    }
+
+    /**
+     * Answers 404 when there is no tip to draw.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetRandomTipEmpty() throws Exception  {
+        when(tipService.findRandomTip()).thenReturn(null);
+
+        mockMvc.perform(get("/api/tip/random"))
+	        .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Rejects an unknown random tip mode.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetRandomTipInvalidMode() throws Exception  {
+        mockMvc.perform(get("/api/tip/random").param("mode", "other"))
+	        .andExpect(status().isBadRequest());
+    }
+
     /**
      * Get all tips from the service and verifies the response.
      * @throws Exception if an error occurs during the request
      */
     @Test
     void testGetAllTips() throws Exception {
-        List<Tip> tips = Arrays.asList(new Tip(1L, "Tip 1", "2"), new Tip(2L, "Tip 2", "2"));
+        List<TipResponse> tips = Arrays.asList(new TipResponse(1L, "Tip 1"), new TipResponse(2L, "Tip 2"));
 
         when(tipService.getAllTips("2")).thenReturn(tips);
 
-        mockMvc.perform(get("/api/tip"))
+        mockMvc.perform(get("/api/tip").param("uuid", "2"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.length()").value(tips.size()));
     }
 
+    /**
+     * Get a full page of tips and verifies the link to the next page.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetTipsPage() throws Exception {
+        List<TipResponse> tips = Arrays.asList(new TipResponse(3L, "Tip 3"), new TipResponse(4L, "Tip 4"));
+
+        when(tipService.getTipsPage("2", 2L, 2)).thenReturn(tips);
+
+        mockMvc.perform(get("/api/tip").param("uuid", "2").param("afterId", "2").param("limit", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(tips.size()))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterId=4")));
+    }
+
+    /**
+     * Attempt to get a page bigger than the maximum page size and verifies the response.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetTipsPageTooBig() throws Exception {
+        mockMvc.perform(get("/api/tip").param("uuid", "2").param("limit", String.valueOf(TipController.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Stream all tips as newline delimited JSON and verifies the response.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testStreamAllTips() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<TipResponse> action = invocation.getArgument(1);
+            action.accept(new TipResponse(1L, "Tip 1"));
+            action.accept(new TipResponse(2L, "Tip 2"));
+            return null;
+        }).when(tipService).streamAllTips(Mockito.eq("2"), Mockito.any());
+
+        MvcResult result = mockMvc.perform(get("/api/tip/stream").param("uuid", "2"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string("{\"id\":1,\"message\":\"Tip 1\"}\n{\"id\":2,\"message\":\"Tip 2\"}"));
+    }
+
+    /**
+     * Search tips, with a "Link" header to the next page when the page is full.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testSearchTips() throws Exception {
+        when(tipService.isSearchReady()).thenReturn(true);
+        when(tipService.search("java streams", 0L, 2)).thenReturn(List.of(new TipResponse(3L, "Java streams"), new TipResponse(7L, "Streams in Java")));
+
+        mockMvc.perform(get("/api/tip/search").param("q", "java streams").param("limit", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterId=7")))
+            .andExpect(jsonPath("$[1].id").value(7L));
+
+        when(tipService.isSearchReady()).thenReturn(false);
+
+        mockMvc.perform(get("/api/tip/search").param("q", "java"))
+            .andExpect(status().isServiceUnavailable());
+    }
+
     /**
      * Find a tip by ID and verifies the response.
      * @throws Exception if an error occurs during the request
      */
     @Test
     void testGetTipById() throws Exception {
-        Tip tip = new Tip(1L, "Find by ID", "2");
+        TipResponse tip = new TipResponse(1L, "Find by ID");
+        EncodedTip encoded = EncodedTip.of(tip);
 
-        when(tipService.findById(1L)).thenReturn(tip);
+        when(tipService.findEncodedById(1L)).thenReturn(encoded);
 
         mockMvc.perform(get("/api/tip/1"))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.id").value(tip.getId()))
-            .andExpect(jsonPath("$.message").value(tip.getMessage()));
+            .andExpect(header().string(HttpHeaders.ETAG, encoded.etag()))
+            .andExpect(jsonPath("$.id").value(tip.id()))
+            .andExpect(jsonPath("$.message").value(tip.message()));
+    }
+
+    /**
+     * A request for a tip with its current ETag gets a 304 without a body.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testGetTipByIdNotModified() throws Exception {
+        EncodedTip encoded = EncodedTip.of(new TipResponse(1L, "Find by ID"));
+
+        when(tipService.findEncodedById(1L)).thenReturn(encoded);
+
+        mockMvc.perform(get("/api/tip/1").header(HttpHeaders.IF_NONE_MATCH, encoded.etag()))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        mockMvc.perform(get("/api/tip/1").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+            .andExpect(status().isOk());
     }
     
     /**
@@ -94,7 +244,7 @@ class TipControllerTest {
      */
     @Test
     void testInsertTip() throws Exception {
-        Tip tip = new Tip(null, "New Tip", "2");
+        TipRequest tip = new TipRequest("New Tip", "2");
         Tip savedTip = new Tip(1L, "New Tip", "2");
 
         when(tipService.insert(Mockito.any())).thenReturn(savedTip);
@@ -107,22 +257,89 @@ class TipControllerTest {
 	        .andExpect(jsonPath("$.message").value(savedTip.getMessage()));
     }
 
+    /**
+     * Attempt to insert a tip with a blank message, and one with a message too long, and verifies the response.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testInsertTipInvalid() throws Exception {
+        mockMvc.perform(post("/api/tip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new TipRequest(" ", "2"))))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/tip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new TipRequest("a".repeat(255), "2"))))
+            .andExpect(status().isBadRequest());
+
+        Mockito.verify(tipService, Mockito.never()).insert(Mockito.any());
+    }
+
+    /**
+     * Insert many tips as newline delimited JSON and verifies the summary.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testBulkInsert() throws Exception {
+        TipIngestResult result = new TipIngestResult(2, 1, 1, List.of(new TipIngestResult.Failure(1, "The message can't be blank.")));
+
+        when(tipIngestService.ingest(Mockito.any())).thenReturn(result);
+
+        mockMvc.perform(post("/api/tip/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("{\"message\":\"Tip 1\",\"uuid\":\"2\"}\n{\"message\":\"\",\"uuid\":\"2\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.inserted").value(1))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.failures[0].index").value(1));
+    }
+
     /**
      * Update an existing tip and verifies the response.
      * @throws Exception if an error occurs during the request
      */
     @Test
     void testUpdateTipSuccess() throws Exception {
-        Tip tip = new Tip(1L, "Updated Tip", "2");
+        TipUpdate tip = new TipUpdate(1L, "Updated Tip");
 
-        when(tipService.update(Mockito.any())).thenReturn(tip);
+        when(tipService.update(tip)).thenReturn(new TipResponse(1L, "Updated Tip"));
 
         mockMvc.perform(patch("/api/tip")
             .contentType(MediaType.APPLICATION_JSON)
             .content(objectMapper.writeValueAsString(tip)))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.id").value(tip.getId()))
-            .andExpect(jsonPath("$.message").value(tip.getMessage()));
+            .andExpect(jsonPath("$.id").value(tip.id()))
+            .andExpect(jsonPath("$.message").value(tip.message()));
+    }
+
+    /**
+     * Attempt to update a tip with a blank message and verifies the response.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testUpdateTipInvalid() throws Exception {
+        mockMvc.perform(patch("/api/tip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new TipUpdate(1L, " "))))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Update many tips at once and verifies the summary.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testBulkUpdate() throws Exception {
+        List<TipUpdate> tips = List.of(new TipUpdate(1L, "First"), new TipUpdate(99L, "Missing"));
+
+        when(tipService.updateAll(tips)).thenReturn(new TipUpdateResult(2, 1, List.of(99L)));
+
+        mockMvc.perform(patch("/api/tip/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(tips)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updated").value(1))
+            .andExpect(jsonPath("$.notFound[0]").value(99));
     }
 
     /**
@@ -131,7 +348,7 @@ class TipControllerTest {
 	 */
     @Test
     void testUpdateTipNotFound() throws Exception {
-        Tip tip = new Tip(99L, "Non-existent Tip", "2");
+        TipUpdate tip = new TipUpdate(99L, "Non-existent Tip");
 
         when(tipService.update(Mockito.any())).thenThrow(TipNotFoundException.class);
 
@@ -166,5 +383,74 @@ class TipControllerTest {
 		mockMvc.perform(delete("/api/tip/1"))
 			.andExpect(status().isNotFound());
 	}
-    
+
+    /**
+     * Delete a batch of tips by ID and verifies the summary.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testBulkDelete() throws Exception {
+        when(tipService.deleteAll(List.of(1L, 99L))).thenReturn(new TipDeleteResult(2, 1));
+
+        mockMvc.perform(delete("/api/tip/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[1,99]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.received").value(2))
+            .andExpect(jsonPath("$.deleted").value(1));
+    }
+
+    /**
+     * Delete the tips of a session and verifies the summary.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testDeleteAllTips() throws Exception {
+        when(tipService.deleteAllByUuid("2")).thenReturn(new TipDeleteResult(3, 3));
+
+        mockMvc.perform(delete("/api/tip").param("uuid", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deleted").value(3));
+    }
+
+    /**
+     * Save a batch of drafts and verifies the result of each draft.
+     * Buffered drafts are reported as pending, with 202 Accepted.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testDraft() throws Exception {
+        List<Draft> drafts = List.of(new Draft(1L, "Draft 1", "2"), new Draft(null, "Draft 2", "2"));
+
+        when(draftService.upsertAll(drafts)).thenReturn(List.of(
+            new DraftResult(drafts.get(0), DraftResult.Status.PENDING, null),
+            new DraftResult(drafts.get(1), DraftResult.Status.FAILED, "The draft ID can't be null.")));
+
+        mockMvc.perform(post("/api/draft")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(drafts)))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$[0].status").value("PENDING"))
+            .andExpect(jsonPath("$[1].status").value("FAILED"))
+            .andExpect(jsonPath("$[1].error").value("The draft ID can't be null."));
+    }
+
+    /**
+     * A batch without any accepted draft is answered with 200.
+     * @throws Exception if an error occurs during the request
+     */
+    @Test
+    void testDraftAllFailed() throws Exception {
+        List<Draft> drafts = List.of(new Draft(null, "Draft", "2"));
+
+        when(draftService.upsertAll(drafts)).thenReturn(List.of(
+            new DraftResult(drafts.get(0), DraftResult.Status.FAILED, "The draft ID can't be null.")));
+
+        mockMvc.perform(post("/api/draft")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(drafts)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("FAILED"));
+    }
+
 }
@@ -0,0 +1,129 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+
+/**
+ * Unit test for the TipIngestService class.
+ * It tests the parsing of JSON arrays and newline delimited JSON,
+ * the batching of the inserts and the reporting of failures.
+ */
+class TipIngestServiceTest {
+
+    private TipService tipService;
+
+    private TipIngestService tipIngestService;
+
+    /**
+     * Batches received by the mocked TipService, copied because the service reuses the list.
+     */
+    private List<List<Tip>> batches;
+
+    @BeforeEach
+    void setUp() {
+        tipService = mock(TipService.class);
+        batches = new ArrayList<>();
+        when(tipService.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Tip> batch = new ArrayList<>(invocation.<List<Tip>>getArgument(0));
+            batches.add(batch);
+            return batch;
+        });
+        tipIngestService = new TipIngestService(tipService, new ObjectMapper(),
+            Validation.buildDefaultValidatorFactory().getValidator(), 2, 10);
+    }
+
+    private TipIngestResult ingest(String body) throws IOException {
+        return tipIngestService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A JSON array is inserted in batches of the configured size.
+     * @throws IOException if the input can't be read
+     */
+    @Test
+    void testIngestArray() throws IOException {
+        TipIngestResult result = ingest("""
+            [{"message": "Tip 1", "uuid": "a"}, {"message": "Tip 2", "uuid": "a"}, {"message": "Tip 3", "uuid": "b"}]
+            """);
+
+        assertEquals(3, result.received());
+        assertEquals(3, result.inserted());
+        assertEquals(0, result.failed());
+        assertEquals(2, batches.size());
+        assertEquals("Tip 3", batches.get(1).get(0).getMessage());
+    }
+
+    /**
+     * Newline delimited JSON is accepted and invalid tips are skipped and reported.
+     * @throws IOException if the input can't be read
+     */
+    @Test
+    void testIngestNdjsonWithInvalidTips() throws IOException {
+        TipIngestResult result = ingest("""
+            {"message": "Tip 1", "uuid": "a"}
+            {"message": "", "uuid": "a"}
+            {"message": "Tip 3"}
+            """);
+
+        assertEquals(3, result.received());
+        assertEquals(1, result.inserted());
+        assertEquals(2, result.failed());
+        assertEquals(1, result.failures().get(0).index());
+        assertEquals("The message can't be blank.", result.failures().get(0).reason());
+        assertEquals("The UUID can't be blank.", result.failures().get(1).reason());
+    }
+
+    /**
+     * A batch rejected by the database is reported as a whole and the next batches are still inserted.
+     * @throws IOException if the input can't be read
+     */
+    @Test
+    void testIngestRejectedBatch() throws IOException {
+        when(tipService.insertAll(anyList()))
+            .thenThrow(new DataIntegrityViolationException("rejected"))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        TipIngestResult result = ingest("""
+            [{"message": "Tip 1", "uuid": "a"}, {"message": "Tip 2", "uuid": "a"}, {"message": "Tip 3", "uuid": "a"}]
+            """);
+
+        assertEquals(1, result.inserted());
+        assertEquals(2, result.failed());
+        assertEquals(0, result.failures().get(0).index());
+        verify(tipService, times(2)).insertAll(anyList());
+    }
+
+    /**
+     * Malformed JSON stops the ingestion, keeping the tips read before it.
+     * @throws IOException if the input can't be read
+     */
+    @Test
+    void testIngestMalformedJson() throws IOException {
+        TipIngestResult result = ingest("""
+            [{"message": "Tip 1", "uuid": "a"}, {"message": "Tip 2", "uuid":
+            """);
+
+        assertEquals(1, result.inserted());
+        assertTrue(result.failures().get(0).reason().startsWith("Malformed JSON"));
+    }
+
+}
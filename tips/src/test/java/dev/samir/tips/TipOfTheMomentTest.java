@@ -0,0 +1,112 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Unit test for the TipOfTheMoment class.
+ * It tests the publication of the current tip, the bookkeeping of the subscribers and the dispatch of the sends.
+ */
+class TipOfTheMomentTest {
+
+    private final TipOfTheMoment tipOfTheMoment = new TipOfTheMoment(Duration.ofMinutes(1), Duration.ofMillis(100));
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        tipOfTheMoment.completeAll();
+    }
+
+    /**
+     * There is no current tip until one is published, then the latest one is returned.
+     */
+    @Test
+    void testPublish() {
+        assertTrue(tipOfTheMoment.current().isEmpty());
+
+        tipOfTheMoment.publish(new TipResponse(1L, "First"));
+        tipOfTheMoment.publish(new TipResponse(2L, "Second"));
+
+        assertEquals(new TipResponse(2L, "Second"), tipOfTheMoment.current().orElseThrow());
+    }
+
+    /**
+     * Subscribers receive the published tips until the application stops.
+     */
+    @Test
+    void testSubscribers() {
+        tipOfTheMoment.publish(new TipResponse(1L, "First"));
+        tipOfTheMoment.subscribe();
+        tipOfTheMoment.subscribe();
+        tipOfTheMoment.publish(new TipResponse(2L, "Second"));
+
+        assertEquals(2, tipOfTheMoment.subscriberCount());
+
+        tipOfTheMoment.completeAll();
+
+        assertEquals(0, tipOfTheMoment.subscriberCount());
+    }
+
+    /**
+     * The published tips are sent to the subscribers off the publishing thread.
+     */
+    @Test
+    void testSendsPublishedTips() throws InterruptedException {
+        BlockingQueue<Thread> senders = new LinkedBlockingQueue<>();
+        tipOfTheMoment.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                senders.add(Thread.currentThread());
+            }
+        });
+
+        tipOfTheMoment.publish(new TipResponse(1L, "First"));
+
+        Thread sender = senders.poll(5, TimeUnit.SECONDS);
+        assertTrue(sender != null && sender != Thread.currentThread());
+    }
+
+    /**
+     * A subscriber stuck on a send doesn't block the publication, and is dropped after the send timeout.
+     */
+    @Test
+    void testDropsSlowSubscriber() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        tipOfTheMoment.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        tipOfTheMoment.publish(new TipResponse(1L, "First"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        tipOfTheMoment.publish(new TipResponse(2L, "Second"));
+
+        assertEquals(1, tipOfTheMoment.subscriberCount());
+
+        Thread.sleep(150);
+        tipOfTheMoment.publish(new TipResponse(3L, "Third"));
+
+        assertEquals(0, tipOfTheMoment.subscriberCount());
+    }
+
+}
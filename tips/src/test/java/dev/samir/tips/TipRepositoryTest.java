@@ -0,0 +1,95 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+/**
+ * Test for the TipRepository update, delete and range statements against the Liquibase schema in H2.
+ */
+@DataJpaTest
+class TipRepositoryTest {
+
+    @Autowired
+    private TipRepository tipRepository;
+
+    /**
+     * The single statement update changes the message and reports whether the tip exists.
+     */
+    @Test
+    void testUpdateMessage() {
+        Tip tip = tipRepository.save(new Tip(null, "Original", "session"));
+
+        assertEquals(1, tipRepository.updateMessage(tip.getId(), "Updated"));
+        assertEquals(0, tipRepository.updateMessage(tip.getId() + 1000, "Missing"));
+        assertEquals("Updated", tipRepository.findResponseById(tip.getId()).orElseThrow().message());
+    }
+
+    /**
+     * The batched update changes every existing tip and reports the missing ones.
+     */
+    @Test
+    void testUpdateMessages() {
+        Tip first = tipRepository.save(new Tip(null, "First", "session"));
+        Tip second = tipRepository.save(new Tip(null, "Second", "session"));
+
+        int[] counts = tipRepository.updateMessages(List.of(
+            new TipUpdate(first.getId(), "First updated"),
+            new TipUpdate(second.getId() + 1000, "Missing"),
+            new TipUpdate(second.getId(), "Second updated")));
+
+        assertArrayEquals(new int[] { 1, 0, 1 }, counts);
+        assertEquals(List.of(new TipResponse(first.getId(), "First updated"), new TipResponse(second.getId(), "Second updated")),
+            tipRepository.findAllByUuid("session"));
+    }
+
+    /**
+     * The single statement delete removes the tip and reports whether it existed.
+     */
+    @Test
+    void testDeleteTipById() {
+        Tip tip = tipRepository.save(new Tip(null, "Deleted", "session"));
+
+        assertEquals(1, tipRepository.deleteTipById(tip.getId()));
+        assertEquals(0, tipRepository.deleteTipById(tip.getId()));
+        assertTrue(tipRepository.findResponseById(tip.getId()).isEmpty());
+    }
+
+    /**
+     * The bulk deletes remove only the given tips, or only the tips of the given session.
+     */
+    @Test
+    void testDeleteTipsByIdAndUuid() {
+        Tip first = tipRepository.save(new Tip(null, "First", "session"));
+        Tip second = tipRepository.save(new Tip(null, "Second", "session"));
+        Tip other = tipRepository.save(new Tip(null, "Other", "other"));
+
+        assertEquals(1, tipRepository.deleteTipsById(List.of(first.getId(), first.getId() + 1000)));
+        assertEquals(new SessionDelete(List.of(second.getId()), 1), tipRepository.deleteAllByUuid("session"));
+        assertEquals(new SessionDelete(List.of(), 0), tipRepository.deleteAllByUuid("session"));
+        assertEquals(List.of(new TipResponse(other.getId(), "Other")), tipRepository.findAllByUuid("other"));
+    }
+
+    /**
+     * The ID range of a session bounds its tips, and a range read returns only the session's tips within it.
+     */
+    @Test
+    void testIdRangeAndRangeByUuid() {
+        Tip first = tipRepository.save(new Tip(null, "First", "session"));
+        Tip other = tipRepository.save(new Tip(null, "Other", "other"));
+        Tip second = tipRepository.save(new Tip(null, "Second", "session"));
+        Tip third = tipRepository.save(new Tip(null, "Third", "session"));
+
+        assertEquals(new TipIdRange(first.getId(), third.getId(), 3L), tipRepository.findIdRangeByUuid("session"));
+        assertEquals(new TipIdRange(null, null, 0L), tipRepository.findIdRangeByUuid("missing"));
+        assertEquals(List.of(new TipResponse(first.getId(), "First"), new TipResponse(second.getId(), "Second")),
+            tipRepository.findRangeByUuid("session", first.getId(), other.getId() + 1));
+    }
+
+}
@@ -0,0 +1,80 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit test for the TipResponseHttpMessageConverter class.
+ * It tests that the written JSON is exactly the JSON written by Jackson.
+ */
+class TipResponseHttpMessageConverterTest {
+
+    private static final Type TIP_LIST = new ParameterizedTypeReference<List<TipResponse>>() {}.getType();
+
+    private final TipResponseHttpMessageConverter converter = new TipResponseHttpMessageConverter();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Only TipResponse and collections of TipResponse are written, and nothing is read.
+     */
+    @Test
+    void testSupportedTypes() {
+        assertTrue(converter.canWrite(TipResponse.class, TipResponse.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(TIP_LIST, ArrayList.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(TIP_LIST, ArrayList.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {}.getType(), ArrayList.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(TipResponse.class, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * A single tip with characters that need escaping or multi-byte UTF-8 is written like Jackson does.
+     * @throws Exception if the tip can't be written
+     */
+    @Test
+    void testWriteTip() throws Exception {
+        TipResponse tip = new TipResponse(-42L, "Quote \" backslash \\ tab\t nl\n bell\u0007 é € 😀");
+
+        assertEquals(objectMapper.writeValueAsString(tip), write(tip, TipResponse.class));
+    }
+
+    /**
+     * Lists larger than the buffer, nulls and the extreme IDs are written like Jackson does.
+     * @throws Exception if the tips can't be written
+     */
+    @Test
+    void testWriteList() throws Exception {
+        List<TipResponse> tips = new ArrayList<>(LongStream.rangeClosed(1, 1000)
+            .mapToObj(id -> new TipResponse(id * 1_000_003L, "Tip number " + id))
+            .toList());
+        tips.add(new TipResponse(null, null));
+        tips.add(new TipResponse(Long.MIN_VALUE, ""));
+        tips.add(new TipResponse(Long.MAX_VALUE, "Last"));
+        tips.add(null);
+
+        assertEquals(objectMapper.writeValueAsString(tips), write(tips, TIP_LIST));
+        assertEquals("[]", write(List.of(), TIP_LIST));
+    }
+
+    private String write(Object value, Type type) throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(value, type, MediaType.APPLICATION_JSON, output);
+        assertEquals(MediaType.APPLICATION_JSON, output.getHeaders().getContentType());
+        return output.getBodyAsString(StandardCharsets.UTF_8);
+    }
+
+}
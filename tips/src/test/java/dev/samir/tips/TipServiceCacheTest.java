@@ -0,0 +1,346 @@
+package dev.samir.tips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import dev.samir.datasource.ReadRouting;
+import dev.samir.search.TipSearchIndex;
+
+/**
+ * Test for the cache in front of TipService.findById.
+ * It checks that hits don't reach the repository, that misses for unknown tips
+ * aren't cached, that updates and deletes evict the cached tip, and that sessions
+ * are cached as IDs resolved through the tips cache, and that concurrent identical reads
+ * share a single query.
+ */
+@SpringJUnitConfig
+class TipServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    static class CacheConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager(TipService.TIPS_CACHE, TipService.TIP_BODIES_CACHE, TipService.TIP_SESSIONS_CACHE);
+            cacheManager.setCacheSpecification("maximumSize=100,recordStats");
+            return cacheManager;
+        }
+
+        @Bean
+        TipSessionFetcher tipSessionFetcher(TipRepository tipRepository) {
+            return new TipSessionFetcher(tipRepository, true, 4, 2, 2, 4);
+        }
+
+        @Bean
+        TipService tipService(TipRepository tipRepository, RandomTipIndex randomTipIndex, TipOfTheMoment tipOfTheMoment, CacheManager cacheManager,
+                TipSessionFetcher tipSessionFetcher, TipSearchIndex tipSearchIndex) {
+            return new TipService(tipRepository, randomTipIndex, tipOfTheMoment, cacheManager, tipSessionFetcher, tipSearchIndex,
+                    new ReadRouting(false, Duration.ofSeconds(5)), new TipChanges(randomTipIndex, tipSearchIndex, cacheManager), 2);
+        }
+
+    }
+
+    @Autowired
+    private TipService tipService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private TipRepository tipRepository;
+
+    @MockitoBean
+    private RandomTipIndex randomTipIndex;
+
+    @MockitoBean
+    private TipOfTheMoment tipOfTheMoment;
+
+    @MockitoBean
+    private TipSearchIndex tipSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(TipService.TIPS_CACHE).clear();
+        cacheManager.getCache(TipService.TIP_BODIES_CACHE).clear();
+        cacheManager.getCache(TipService.TIP_SESSIONS_CACHE).clear();
+        when(tipRepository.findResponseById(1L)).thenReturn(Optional.of(new TipResponse(1L, "Cached Tip")));
+        when(tipRepository.findById(1L)).thenReturn(Optional.of(new Tip(1L, "Cached Tip", "2")));
+        when(tipRepository.updateMessage(Mockito.eq(1L), Mockito.anyString())).thenReturn(1);
+        when(tipRepository.deleteTipById(1L)).thenReturn(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheStats stats() {
+        return ((Cache<Object, Object>) cacheManager.getCache(TipService.TIPS_CACHE).getNativeCache()).stats();
+    }
+
+    /**
+     * The second lookup of a tip is served from the cache.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testFindByIdIsCached() throws TipNotFoundException {
+        long hits = stats().hitCount();
+
+        assertEquals("Cached Tip", tipService.findById(1L).message());
+        assertEquals("Cached Tip", tipService.findById(1L).message());
+
+        verify(tipRepository, times(1)).findResponseById(1L);
+        assertEquals(hits + 1, stats().hitCount());
+    }
+
+    /**
+     * Tips that are not found are looked up again every time.
+     */
+    @Test
+    void testNotFoundIsNotCached() {
+        when(tipRepository.findResponseById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(TipNotFoundException.class, () -> tipService.findById(2L));
+        assertThrows(TipNotFoundException.class, () -> tipService.findById(2L));
+
+        verify(tipRepository, times(2)).findResponseById(2L);
+    }
+
+    /**
+     * Updating a tip evicts it from the cache.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testUpdateEvicts() throws TipNotFoundException {
+        tipService.findById(1L);
+        tipService.update(new TipUpdate(1L, "Updated Tip"));
+        tipService.findById(1L);
+
+        verify(tipRepository, times(2)).findResponseById(1L);
+    }
+
+    /**
+     * Deleting a tip evicts it from the cache.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testDeleteEvicts() throws TipNotFoundException {
+        tipService.findById(1L);
+        tipService.delete(1L);
+        tipService.findById(1L);
+
+        verify(tipRepository, times(2)).findResponseById(1L);
+    }
+
+    /**
+     * The encoded body of a tip is cached and evicted when the tip changes, changing its ETag.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testFindEncodedByIdIsCachedAndEvicted() throws TipNotFoundException {
+        EncodedTip first = tipService.findEncodedById(1L);
+
+        assertSame(first, tipService.findEncodedById(1L));
+        verify(tipRepository, times(1)).findResponseById(1L);
+
+        when(tipRepository.findResponseById(1L)).thenReturn(Optional.of(new TipResponse(1L, "Updated Tip")));
+        tipService.update(new TipUpdate(1L, "Updated Tip"));
+        EncodedTip updated = tipService.findEncodedById(1L);
+
+        assertEquals("{\"id\":1,\"message\":\"Updated Tip\"}", new String(updated.body(), StandardCharsets.UTF_8));
+        assertNotEquals(first.etag(), updated.etag());
+    }
+
+    /**
+     * Updating a tip that doesn't exist fails without loading it.
+     */
+    @Test
+    void testUpdateNotFound() {
+        assertThrows(TipNotFoundException.class, () -> tipService.update(new TipUpdate(2L, "Missing Tip")));
+
+        verify(tipRepository, Mockito.never()).findById(2L);
+    }
+
+    /**
+     * A bulk update reports the missing tips and evicts every updated tip.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testUpdateAllEvicts() throws TipNotFoundException {
+        List<TipUpdate> updates = List.of(new TipUpdate(1L, "Updated Tip"), new TipUpdate(2L, "Missing Tip"));
+        when(tipRepository.updateMessages(updates)).thenReturn(new int[] { 1, 0 });
+
+        tipService.findById(1L);
+        TipUpdateResult result = tipService.updateAll(updates);
+        tipService.findById(1L);
+
+        assertEquals(new TipUpdateResult(2, 1, List.of(2L)), result);
+        verify(tipRepository, times(2)).findResponseById(1L);
+    }
+
+    /**
+     * Deleting a tip that doesn't exist fails without loading it.
+     */
+    @Test
+    void testDeleteNotFound() {
+        assertThrows(TipNotFoundException.class, () -> tipService.delete(2L));
+
+        verify(tipRepository, Mockito.never()).findById(2L);
+        verify(randomTipIndex, Mockito.never()).remove(2L);
+    }
+
+    /**
+     * Deleting the tips of a session evicts every deleted tip and removes it from the random index.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testDeleteAllByUuidEvicts() throws TipNotFoundException {
+        when(tipRepository.deleteAllByUuid("2")).thenReturn(new SessionDelete(List.of(1L), 1));
+
+        tipService.findById(1L);
+        TipDeleteResult result = tipService.deleteAllByUuid("2");
+        tipService.findById(1L);
+
+        assertEquals(new TipDeleteResult(1, 1), result);
+        verify(tipRepository, times(2)).findResponseById(1L);
+        verify(randomTipIndex).remove(1L);
+    }
+
+    /**
+     * A cached session is served from the caches, and an updated tip is read again on its own.
+     * @throws TipNotFoundException if the tip is not found
+     */
+    @Test
+    void testGetAllTipsIsCached() throws TipNotFoundException {
+        when(tipRepository.findAllByUuid("2")).thenReturn(List.of(new TipResponse(1L, "Cached Tip"), new TipResponse(3L, "Other Tip")));
+        when(tipRepository.findAllResponsesById(List.of(1L))).thenReturn(List.of(new TipResponse(1L, "Updated Tip")));
+
+        List<TipResponse> first = tipService.getAllTips("2");
+        assertEquals(first, tipService.getAllTips("2"));
+        tipService.update(new TipUpdate(1L, "Updated Tip"));
+
+        assertEquals(List.of(new TipResponse(1L, "Updated Tip"), new TipResponse(3L, "Other Tip")), tipService.getAllTips("2"));
+        verify(tipRepository, times(1)).findAllByUuid("2");
+    }
+
+    /**
+     * Sessions larger than the maximum size are read from the database every time.
+     */
+    @Test
+    void testLargeSessionIsNotCached() {
+        when(tipRepository.findAllByUuid("3")).thenReturn(List.of(new TipResponse(1L, "A"), new TipResponse(2L, "B"), new TipResponse(3L, "C")));
+        when(tipRepository.findIdRangeByUuid("3")).thenReturn(new TipIdRange(1L, 3L, 3L));
+
+        tipService.getAllTips("3");
+        assertEquals(3, tipService.getAllTips("3").size());
+
+        verify(tipRepository, times(2)).findAllByUuid("3");
+    }
+
+    /**
+     * Sessions large enough are read again in ID ranges, merged in order.
+     */
+    @Test
+    void testLargeSessionIsReadInPartitions() {
+        when(tipRepository.findAllByUuid("4")).thenReturn(List.of(new TipResponse(1L, "A"), new TipResponse(2L, "B"),
+            new TipResponse(3L, "C"), new TipResponse(4L, "D")));
+        when(tipRepository.findIdRangeByUuid("4")).thenReturn(new TipIdRange(1L, 4L, 4L));
+        when(tipRepository.findRangeByUuid("4", 1L, 2L)).thenReturn(List.of(new TipResponse(1L, "A"), new TipResponse(2L, "B")));
+        when(tipRepository.findRangeByUuid("4", 3L, 4L)).thenReturn(List.of(new TipResponse(3L, "C"), new TipResponse(4L, "D")));
+
+        List<TipResponse> first = tipService.getAllTips("4");
+
+        assertEquals(first, tipService.getAllTips("4"));
+        verify(tipRepository, times(1)).findAllByUuid("4");
+        verify(tipRepository).findRangeByUuid("4", 1L, 2L);
+        verify(tipRepository).findRangeByUuid("4", 3L, 4L);
+    }
+
+    /**
+     * Inserting a tip evicts the cached session it belongs to.
+     */
+    @Test
+    void testInsertEvictsSession() {
+        when(tipRepository.findAllByUuid("2")).thenReturn(List.of(new TipResponse(1L, "Cached Tip")));
+        when(tipRepository.save(Mockito.any())).thenReturn(new Tip(5L, "New Tip", "2"));
+
+        tipService.getAllTips("2");
+        tipService.insert(new Tip(null, "New Tip", "2"));
+        tipService.getAllTips("2");
+
+        verify(tipRepository, times(2)).findAllByUuid("2");
+    }
+
+    /**
+     * Concurrent callers of a session that isn't cached share a single query, however many they are.
+     * The query only returns once every other caller is waiting for it.
+     * @param callers the number of concurrent callers
+     * @throws Exception if a caller fails
+     */
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 8, 32 })
+    void testConcurrentReadsAreCoalesced(int callers) throws Exception {
+        SingleFlight<String, List<TipResponse>> loads = tipService.getSessionLoads();
+        long coalesced = loads.getCoalesced() + callers - 1;
+        List<TipResponse> tips = List.of(new TipResponse(1L, "A"), new TipResponse(2L, "B"), new TipResponse(3L, "C"));
+        when(tipRepository.findAllByUuid("3")).thenAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (loads.getCoalesced() < coalesced && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return tips;
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<TipResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return tipService.getAllTips("3");
+                }));
+            }
+            start.countDown();
+            for (Future<List<TipResponse>> result : results) {
+                assertEquals(tips, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(tipRepository, times(1)).findAllByUuid("3");
+        assertEquals(coalesced, loads.getCoalesced());
+    }
+
+}
@@ -0,0 +1,6 @@
+-- Schema of the replica database of ReadRoutingTest, run by H2 on every new connection.
+-- The replica holds its own version of tip 1, so the tests can tell which database served a read.
+create table if not exists tb01_tips (tip_id bigint primary key, tip_message varchar(254) not null, tip_uuid char(36) not null);
+create table if not exists tb02_heartbeat (heartbeat_id int primary key, heartbeat_at timestamp not null);
+merge into tb01_tips key (tip_id) values (1, 'Replica Message', '123e4567-e89b-12d3-a456-426614174000');
+insert into tb02_heartbeat select 1, current_timestamp where not exists (select 1 from tb02_heartbeat);